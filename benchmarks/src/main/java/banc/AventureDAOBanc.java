@@ -0,0 +1,58 @@
+package banc;
+
+import dao.AventureDAO;
+import java.util.concurrent.TimeUnit;
+import modele.Aventure;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks d'AventureDAO : aventure et ses participants.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AventureDAOBanc {
+
+    /**
+     * Nombre de participants de l'aventure
+     */
+    @Param({"1", "10", "100"})
+    public int participants;
+
+    private int aventure;
+
+    @Setup
+    public void setup() throws Exception {
+        try (Base base = new Base()) {
+            int joueur = base.joueur(Base.Nom("joueur"), Base.Nom("pwd"));
+            int mj = base.joueur(Base.Nom("mj"), Base.Nom("pwd"));
+            int univers = base.univers(Base.Nom("Univers "));
+
+            aventure = base.aventure(mj, univers, false);
+
+            for (int i = 0; i < participants; i++) {
+                base.participe(aventure, base.personnage(joueur, mj, univers));
+            }
+        }
+    }
+
+    @Benchmark
+    public Aventure getAventure() throws Exception {
+        return AventureDAO.Get().getAventure(aventure);
+    }
+}
@@ -0,0 +1,268 @@
+package banc;
+
+import dao.AventureDAO;
+import dao.BaseEmbarquee;
+import dao.BiographieDAO;
+import dao.DAOException;
+import dao.DroitsDAO;
+import dao.EpisodeDAO;
+import dao.JoueurDAO;
+import dao.ParagrapheDAO;
+import dao.ParticipeDAO;
+import dao.PersonnageDAO;
+import dao.UniversDAO;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+
+/**
+ * Base embarquée des benchmarks et création de leurs données.
+ *
+ * La base (propriété système rpg.embarquee, H2 en mémoire par défaut)
+ * est installée une fois par JVM avec les données de install_bd.sql,
+ * complétées si la propriété rpg.generation désigne un fichier de
+ * réglages du Generateur ; puis chaque benchmark y ajoute les siennes.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public final class Base implements AutoCloseable {
+
+    private static final String URL = System.getProperty("rpg.embarquee",
+            "jdbc:h2:mem:banc;MODE=Oracle;DB_CLOSE_DELAY=-1");
+
+    /**
+     * Texte des biographies et paragraphes générés (taille typique)
+     */
+    static final String TEXTE = "Lorem ipsum dolor sit amet, consectetur "
+            + "adipiscing elit, sed do eiusmod tempor incididunt ut labore "
+            + "et dolore magna aliqua. Ut enim ad minim veniam, quis nostrud "
+            + "exercitation ullamco laboris nisi ut aliquip ex ea commodo.";
+
+    private static DataSource source;
+
+    /**
+     * Numéro des noms générés, unique dans la JVM
+     */
+    private static int numero;
+
+    private final Connection link;
+
+    /**
+     * Ouvre une session de création de données, validée par close.
+     *
+     * @throws DAOException
+     */
+    Base() throws DAOException {
+        try {
+            link = Ouvrir().getConnection();
+            link.setAutoCommit(false);
+
+        } catch (SQLException e) {
+            throw new DAOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Installe la base et crée les DAO, au premier appel.
+     *
+     * @return Le datasource de la base
+     * @throws DAOException
+     */
+    static synchronized DataSource Ouvrir() throws DAOException {
+        if (source == null) {
+            source = BaseEmbarquee.Create(URL);
+
+            AventureDAO.Create(source);
+            BiographieDAO.Create(source);
+            EpisodeDAO.Create(source);
+            JoueurDAO.Create(source);
+            ParagrapheDAO.Create(source);
+            PersonnageDAO.Create(source);
+            UniversDAO.Create(source);
+            ParticipeDAO.Create(source);
+            DroitsDAO.Create(source);
+
+            // Données générées à grande échelle (cf. Generateur)
+            String reglages = System.getProperty("rpg.generation");
+
+            if (reglages != null) {
+                generer(reglages);
+            }
+        }
+
+        return source;
+    }
+
+    private static void generer(String reglages) throws DAOException {
+        try {
+            Connection link = source.getConnection();
+
+            try {
+                new Generateur(Generateur.Reglages(reglages)).remplir(link);
+            } finally {
+                link.close();
+            }
+
+        } catch (SQLException | IOException e) {
+            throw new DAOException("Génération des données : "
+                    + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Un nom non encore utilisé
+     *
+     * @param prefixe Le préfixe du nom
+     * @return Le nom
+     */
+    static synchronized String Nom(String prefixe) {
+        return prefixe + (++numero);
+    }
+
+    /**
+     * Exécute une insertion et retourne l'identifiant généré.
+     *
+     * @param sql        L'insertion
+     * @param parametres Ses paramètres
+     * @return L'identifiant
+     * @throws SQLException
+     */
+    private int inserer(String sql, Object... parametres) throws SQLException {
+        PreparedStatement statement = link.prepareStatement(sql,
+                new String[] {"ID"});
+
+        try {
+            executer(statement, parametres);
+            ResultSet cles = statement.getGeneratedKeys();
+            cles.next();
+
+            return cles.getInt(1);
+
+        } finally {
+            statement.close();
+        }
+    }
+
+    private static void executer(PreparedStatement statement,
+            Object... parametres) throws SQLException {
+        for (int i = 0; i < parametres.length; i++) {
+            statement.setObject(i + 1, parametres[i]);
+        }
+
+        statement.executeUpdate();
+    }
+
+    int joueur(String pseudo, String pwd) throws SQLException {
+        return inserer("INSERT INTO Joueur (pseudo, pwd) VALUES (?, ?)",
+                pseudo, pwd);
+    }
+
+    int univers(String nom) throws SQLException {
+        return inserer("INSERT INTO Univers (nom) VALUES (?)", nom);
+    }
+
+    int biographie() throws SQLException {
+        return inserer("INSERT INTO Biographie (texte) VALUES (?)", TEXTE);
+    }
+
+    /**
+     * Crée un personnage et sa biographie, validé si mj est renseigné.
+     *
+     * @param joueur  Le joueur
+     * @param mj      Le meneur, null si aucun
+     * @param univers L'univers
+     * @return L'identifiant du personnage
+     * @throws SQLException
+     */
+    int personnage(int joueur, Integer mj, int univers) throws SQLException {
+        return inserer("INSERT INTO Personnage (naissance, nom, portrait, "
+                + "profession, valide, biographie_id, joueur_id, mj_id, "
+                + "univers_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                "An 1000", Nom("Perso "), "", "Aventurier", mj == null ? 0 : 1,
+                biographie(), joueur, mj, univers);
+    }
+
+    int aventure(int mj, int univers, boolean finie) throws SQLException {
+        return inserer("INSERT INTO Aventure (adate, finie, lieu, situation, "
+                + "titre, mj_id, univers_id) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                "An 1000", finie ? 1 : 0, "Lieu", TEXTE, Nom("Aventure "),
+                mj, univers);
+    }
+
+    void participe(int aventure, int personnage) throws SQLException {
+        PreparedStatement statement = link.prepareStatement("INSERT INTO "
+                + "Participe (aventure_id, personnage_id) VALUES (?, ?)");
+
+        try {
+            executer(statement, aventure, personnage);
+
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Crée un épisode validé d'une biographie.
+     *
+     * @param biographie La biographie
+     * @param date       La date de l'épisode
+     * @param aventure   L'aventure associée, null si aucune
+     * @return L'identifiant de l'épisode
+     * @throws SQLException
+     */
+    int episode(int biographie, int date, Integer aventure) throws SQLException {
+        return inserer("INSERT INTO Episode (eDate, valide, aventure_id, "
+                + "biographie_id) VALUES (?, 1, ?, ?)",
+                date, aventure, biographie);
+    }
+
+    void paragraphe(int episode, boolean secret) throws SQLException {
+        inserer("INSERT INTO Paragraphe (secret, texte, episode_id) "
+                + "VALUES (?, ?, ?)", secret ? 1 : 0, TEXTE, episode);
+    }
+
+    /**
+     * Identifiant de biographie d'un personnage
+     *
+     * @param personnage Le personnage
+     * @return La biographie
+     * @throws SQLException
+     */
+    int biographieDe(int personnage) throws SQLException {
+        PreparedStatement statement = link.prepareStatement(
+                "SELECT biographie_id FROM Personnage WHERE id = ?");
+
+        try {
+            statement.setInt(1, personnage);
+            ResultSet rs = statement.executeQuery();
+            rs.next();
+
+            return rs.getInt(1);
+
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Valide les données créées et recharge les annuaires.
+     *
+     * @throws DAOException
+     */
+    @Override
+    public void close() throws DAOException {
+        try {
+            link.commit();
+            link.close();
+
+        } catch (SQLException e) {
+            throw new DAOException(e.getMessage(), e);
+        }
+
+        UniversDAO.Get().recharger();
+        JoueurDAO.Get().recharger();
+    }
+}
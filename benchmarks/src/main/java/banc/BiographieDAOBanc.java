@@ -0,0 +1,65 @@
+package banc;
+
+import dao.BiographieDAO;
+import java.util.concurrent.TimeUnit;
+import modele.Biographie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks de BiographieDAO : assemblage d'une biographie
+ * de N épisodes de M paragraphes (un sur deux secret).
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BiographieDAOBanc {
+
+    @Param({"1", "10", "100"})
+    public int episodes;
+
+    @Param({"1", "10"})
+    public int paragraphes;
+
+    private int biographie;
+
+    @Setup
+    public void setup() throws Exception {
+        try (Base base = new Base()) {
+            int joueur = base.joueur(Base.Nom("joueur"), Base.Nom("pwd"));
+            int mj = base.joueur(Base.Nom("mj"), Base.Nom("pwd"));
+            int univers = base.univers(Base.Nom("Univers "));
+            int aventure = base.aventure(mj, univers, true);
+
+            biographie = base.biographieDe(base.personnage(joueur, mj, univers));
+
+            for (int e = 0; e < episodes; e++) {
+                int episode = base.episode(biographie, e,
+                                           e % 2 == 0 ? aventure : null);
+
+                for (int p = 0; p < paragraphes; p++) {
+                    base.paragraphe(episode, p % 2 == 1);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Biographie getBiographieComplete() throws Exception {
+        return BiographieDAO.Get().getBiographieComplete(biographie, false);
+    }
+}
@@ -0,0 +1,525 @@
+package banc;
+
+import dao.BaseEmbarquee;
+import dao.DAOException;
+import dao.Dialecte;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Générateur de données de campagne, pour reproduire à grande échelle
+ * la forme des données de production.
+ *
+ * Les volumes et distributions sont réglés par des propriétés (cf.
+ * generation.properties) ; la graine rend la génération reproductible.
+ * Les identifiants sont attribués à la suite des existants et les
+ * lignes insérées par lots JDBC (addBatch), puis les séquences sont
+ * recalées après les identifiants générés.
+ *
+ * Distributions :
+ * - personnages par joueur : géométrique de moyenne personnages.moyenne ;
+ * - meneurs : les premiers sont les plus sollicités (validation des
+ *   personnages, aventures), selon un biais meneurs.biais ;
+ * - épisodes par personnage : loi de puissance d'exposant episodes.alpha,
+ *   bornée par episodes.max (la plupart en ont peu, quelques-uns beaucoup) ;
+ * - participants par aventure : loi de puissance bornée par aventure.max,
+ *   parmi les personnages du meneur.
+ *
+ * Ligne de commande :
+ * java -cp target/benchmarks.jar banc.Generateur url [fichier.properties]
+ * (-Dutilisateur=... -Dmotdepasse=... pour une base Oracle, dont le pilote
+ * doit être ajouté au classpath ; une base H2 est installée si besoin)
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public final class Generateur {
+
+    /**
+     * Tables générées et séquences de leurs identifiants
+     */
+    private static final String[][] SEQUENCES = {
+        {"Univers", "univers_seq"}, {"Joueur", "joueur_seq"},
+        {"Biographie", "bio_seq"}, {"Personnage", "pers_seq"},
+        {"Aventure", "av_seq"}, {"Episode", "epi_seq"},
+        {"Paragraphe", "para_seq"}
+    };
+
+    /**
+     * Texte d'où sont tirés les textes générés
+     */
+    private static final String TEXTE;
+
+    static {
+        StringBuilder sb = new StringBuilder();
+
+        while (sb.length() < 4000) {
+            sb.append(Base.TEXTE).append(' ');
+        }
+
+        TEXTE = sb.substring(0, 4000);
+    }
+
+    private final Random hasard;
+    private final int joueurs;
+    private final int univers;
+    private final double partMeneurs;
+    private final double biaisMeneurs;
+    private final double personnagesMoyenne;
+    private final double partValides;
+    private final int aventures;
+    private final double partFinies;
+    private final int aventureMax;
+    private final double aventureAlpha;
+    private final int episodesMax;
+    private final double episodesAlpha;
+    private final int paragraphesMax;
+    private final double partSecrets;
+    private final int texteMax;
+    private final int tailleLot;
+
+    /**
+     * Nombre de lignes générées, par table
+     */
+    private final Map<String, Integer> lignes = new LinkedHashMap<>();
+
+    private Connection link;
+
+    /**
+     * Crée un générateur.
+     *
+     * @param p Les réglages (valeurs par défaut pour les absents)
+     */
+    public Generateur(Properties p) {
+        hasard = new Random(Long.parseLong(p.getProperty("graine", "42")));
+        joueurs = entier(p, "joueurs", 1000);
+        univers = entier(p, "univers", 10);
+        partMeneurs = reel(p, "meneurs.part", 0.1);
+        biaisMeneurs = reel(p, "meneurs.biais", 2);
+        personnagesMoyenne = reel(p, "personnages.moyenne", 2);
+        partValides = reel(p, "personnages.valides", 0.8);
+        aventures = entier(p, "aventures", joueurs / 10);
+        partFinies = reel(p, "aventures.finies", 0.5);
+        aventureMax = entier(p, "aventure.max", 50);
+        aventureAlpha = reel(p, "aventure.alpha", 1);
+        episodesMax = entier(p, "episodes.max", 2000);
+        episodesAlpha = reel(p, "episodes.alpha", 1);
+        paragraphesMax = entier(p, "paragraphes.max", 5);
+        partSecrets = reel(p, "paragraphes.secrets", 0.3);
+        texteMax = Math.min(4000, entier(p, "texte.max", 1000));
+        tailleLot = entier(p, "lot", 1000);
+    }
+
+    private static int entier(Properties p, String nom, int defaut) {
+        return Integer.parseInt(p.getProperty(nom, String.valueOf(defaut)).trim());
+    }
+
+    private static double reel(Properties p, String nom, double defaut) {
+        return Double.parseDouble(p.getProperty(nom, String.valueOf(defaut)).trim());
+    }
+
+    /**
+     * Lot d'insertions d'une table. Un lot est exécuté quand il est plein,
+     * après celui de la table référencée (clé étrangère).
+     */
+    private final class Lot {
+        private final String table;
+        private final PreparedStatement statement;
+        private final Lot parent;
+        private int taille;
+
+        Lot(String table, String sql, Lot parent) throws SQLException {
+            this.table = table;
+            this.statement = link.prepareStatement(sql);
+            this.parent = parent;
+            lignes.put(table, 0);
+        }
+
+        void ajouter(Object... valeurs) throws SQLException {
+            for (int i = 0; i < valeurs.length; i++) {
+                if (valeurs[i] == null) {
+                    statement.setNull(i + 1, Types.INTEGER);
+                } else {
+                    statement.setObject(i + 1, valeurs[i]);
+                }
+            }
+
+            statement.addBatch();
+            lignes.put(table, lignes.get(table) + 1);
+
+            if (++taille >= tailleLot) {
+                executer();
+                link.commit();
+            }
+        }
+
+        void executer() throws SQLException {
+            if (parent != null) {
+                parent.executer();
+            }
+
+            if (taille > 0) {
+                statement.executeBatch();
+                taille = 0;
+            }
+        }
+
+        void fermer() throws SQLException {
+            executer();
+            statement.close();
+        }
+    }
+
+    /**
+     * Remplit la base.
+     *
+     * @param link La connexion à la base (schéma installé)
+     * @throws SQLException
+     * @throws DAOException si la base n'est pas supportée
+     */
+    public void remplir(Connection link) throws SQLException, DAOException {
+        this.link = link;
+        link.setAutoCommit(false);
+
+        Dialecte dialecte = Dialecte.Detecter(link);
+
+        // Univers
+        int premierUnivers = prochainId("Univers");
+        Lot lot = new Lot("Univers", "INSERT INTO Univers (id, nom) VALUES (?, ?)", null);
+
+        for (int u = 0; u < univers; u++) {
+            lot.ajouter(premierUnivers + u, "Univers " + (premierUnivers + u));
+        }
+
+        lot.fermer();
+
+        // Joueurs, dont les premiers sont meneurs.
+        // Le mot de passe d'un joueur généré est son pseudo.
+        int premierJoueur = prochainId("Joueur");
+        int meneurs = Math.max(1, (int) (joueurs * partMeneurs));
+        int[] universMeneur = new int[meneurs];
+        lot = new Lot("Joueur", "INSERT INTO Joueur (id, pseudo, pwd) VALUES (?, ?, ?)", null);
+
+        for (int j = 0; j < joueurs; j++) {
+            String pseudo = "joueur" + (premierJoueur + j);
+            lot.ajouter(premierJoueur + j, pseudo, Md5(pseudo));
+
+            if (j < meneurs) {
+                universMeneur[j] = premierUnivers + hasard.nextInt(univers);
+            }
+        }
+
+        lot.fermer();
+
+        // Personnages et biographies ; les personnages validés d'un meneur
+        // sont dans l'univers de ses aventures
+        int bioId = prochainId("Biographie");
+        int persoId = prochainId("Personnage");
+        List<List<Integer>> personnagesMeneur = new ArrayList<>();
+        List<int[]> personnages = new ArrayList<>();
+
+        for (int m = 0; m < meneurs; m++) {
+            personnagesMeneur.add(new ArrayList<Integer>());
+        }
+
+        Lot bios = new Lot("Biographie",
+                "INSERT INTO Biographie (id, texte) VALUES (?, ?)", null);
+        lot = new Lot("Personnage", "INSERT INTO Personnage (id, naissance, "
+                + "nom, portrait, profession, valide, biographie_id, joueur_id, "
+                + "mj_id, univers_id, validateur_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", bios);
+
+        for (int j = 0; j < joueurs; j++) {
+            int n = geometrique(personnagesMoyenne);
+
+            for (int k = 0; k < n; k++) {
+                int m = biaise(meneurs, biaisMeneurs);
+                boolean valide = hasard.nextDouble() < partValides;
+                Integer validateur = null;
+
+                if (valide) {
+                    personnagesMeneur.get(m).add(persoId);
+                } else if (hasard.nextBoolean()) {
+                    validateur = premierJoueur + m;
+                }
+
+                bios.ajouter(bioId, texte());
+                lot.ajouter(persoId, "An " + hasard.nextInt(3000),
+                        "Personnage " + persoId, "", "Aventurier",
+                        valide ? 1 : 0, bioId, premierJoueur + j,
+                        valide ? premierJoueur + m : null,
+                        valide ? universMeneur[m]
+                               : premierUnivers + hasard.nextInt(univers),
+                        validateur);
+
+                personnages.add(new int[] {persoId, bioId});
+                persoId++;
+                bioId++;
+            }
+        }
+
+        lot.fermer();
+        bios.fermer();
+
+        // Aventures, de taille biaisée, parmi les personnages du meneur
+        int avId = prochainId("Aventure");
+        Lot avs = new Lot("Aventure", "INSERT INTO Aventure (id, adate, finie, "
+                + "lieu, situation, titre, mj_id, univers_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", null);
+        lot = new Lot("Participe", "INSERT INTO Participe "
+                + "(aventure_id, personnage_id) VALUES (?, ?)", avs);
+        Map<Integer, Integer> aventurePersonnage = new LinkedHashMap<>();
+
+        for (int a = 0; a < aventures; a++, avId++) {
+            int m = biaise(meneurs, biaisMeneurs);
+            List<Integer> candidats = personnagesMeneur.get(m);
+
+            avs.ajouter(avId, "An " + hasard.nextInt(3000),
+                    hasard.nextDouble() < partFinies ? 1 : 0, "Lieu " + avId,
+                    texte(), "Aventure " + avId, premierJoueur + m,
+                    universMeneur[m]);
+
+            int taille = Math.min(candidats.size(),
+                    1 + puissance(aventureMax - 1, aventureAlpha));
+            Integer[] tirage = candidats.toArray(new Integer[candidats.size()]);
+
+            // Tirage sans remise des participants
+            for (int i = 0; i < taille; i++) {
+                int k = i + hasard.nextInt(tirage.length - i);
+                Integer p = tirage[k];
+                tirage[k] = tirage[i];
+                tirage[i] = p;
+
+                lot.ajouter(avId, p);
+                aventurePersonnage.put(p, avId);
+            }
+        }
+
+        lot.fermer();
+        avs.fermer();
+
+        // Episodes et paragraphes, rattachés pour moitié à une aventure
+        // du personnage
+        int epiId = prochainId("Episode");
+        int paraId = prochainId("Paragraphe");
+        Lot epis = new Lot("Episode", "INSERT INTO Episode (id, eDate, valide, "
+                + "aventure_id, biographie_id) VALUES (?, ?, ?, ?, ?)", null);
+        lot = new Lot("Paragraphe", "INSERT INTO Paragraphe (id, secret, "
+                + "texte, episode_id) VALUES (?, ?, ?, ?)", epis);
+
+        for (int[] perso : personnages) {
+            int n = puissance(episodesMax, episodesAlpha);
+            Integer aventure = aventurePersonnage.get(perso[0]);
+
+            for (int e = 0; e < n; e++, epiId++) {
+                epis.ajouter(epiId, e, hasard.nextDouble() < 0.9 ? 1 : 0,
+                        hasard.nextBoolean() ? aventure : null, perso[1]);
+
+                int k = 1 + hasard.nextInt(paragraphesMax);
+
+                for (int i = 0; i < k; i++, paraId++) {
+                    lot.ajouter(paraId,
+                            hasard.nextDouble() < partSecrets ? 1 : 0,
+                            texte(), epiId);
+                }
+            }
+        }
+
+        lot.fermer();
+        epis.fermer();
+        link.commit();
+
+        recalerSequences(dialecte);
+        link.commit();
+    }
+
+    /**
+     * Nombre de lignes générées, par table
+     *
+     * @return Les nombres de lignes
+     */
+    public Map<String, Integer> getLignes() {
+        return lignes;
+    }
+
+    /**
+     * Premier identifiant libre d'une table
+     */
+    private int prochainId(String table) throws SQLException {
+        Statement statement = link.createStatement();
+
+        try {
+            ResultSet rs = statement.executeQuery(
+                    "SELECT COALESCE(MAX(id), 0) + 1 FROM " + table);
+            rs.next();
+
+            return rs.getInt(1);
+
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Fait reprendre chaque séquence après le plus grand identifiant
+     * de sa table.
+     */
+    private void recalerSequences(Dialecte dialecte) throws SQLException {
+        Statement statement = link.createStatement();
+
+        try {
+            for (String[] s : SEQUENCES) {
+                int suivant = prochainId(s[0]);
+
+                if (dialecte == Dialecte.H2) {
+                    statement.execute("ALTER SEQUENCE " + s[1]
+                            + " RESTART WITH " + suivant);
+                    continue;
+                }
+
+                // Oracle : avance de l'écart en une valeur
+                ResultSet rs = statement.executeQuery(
+                        "SELECT " + s[1] + ".nextval FROM dual");
+                rs.next();
+                long ecart = suivant - rs.getLong(1) - 1;
+
+                if (ecart > 0) {
+                    statement.execute("ALTER SEQUENCE " + s[1]
+                            + " INCREMENT BY " + ecart);
+                    statement.executeQuery("SELECT " + s[1] + ".nextval FROM dual");
+                    statement.execute("ALTER SEQUENCE " + s[1]
+                            + " INCREMENT BY 1");
+                }
+            }
+
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Loi géométrique sur les entiers positifs, de moyenne donnée
+     */
+    private int geometrique(double moyenne) {
+        double p = 1 / (1 + moyenne);
+
+        return (int) (Math.log(1 - hasard.nextDouble()) / Math.log(1 - p));
+    }
+
+    /**
+     * Loi de puissance sur [0, max] : P(X >= x) = (x + 1)^-alpha
+     */
+    private int puissance(int max, double alpha) {
+        double x = Math.pow(1 - hasard.nextDouble(), -1 / alpha) - 1;
+
+        return (int) Math.min(max, x);
+    }
+
+    /**
+     * Indice dans [0, n[, d'autant plus souvent petit que biais est grand
+     */
+    private int biaise(int n, double biais) {
+        return (int) (n * Math.pow(hasard.nextDouble(), biais));
+    }
+
+    /**
+     * Texte de longueur aléatoire
+     */
+    private String texte() {
+        return TEXTE.substring(0, 20 + hasard.nextInt(texteMax - 19));
+    }
+
+    /**
+     * Hash md5 d'un mot de passe, tel que stocké dans Joueur.pwd
+     *
+     * @param pwd Le mot de passe
+     * @return Le hash, en hexadécimal
+     */
+    static String Md5(String pwd) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            StringBuilder sb = new StringBuilder();
+
+            for (byte b : md.digest(pwd.getBytes("UTF-8"))) {
+                sb.append(String.format("%02x", b));
+            }
+
+            return sb.toString();
+
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Charge des réglages de génération.
+     *
+     * @param fichier Le fichier de propriétés, null pour les valeurs par défaut
+     * @return Les réglages
+     * @throws IOException
+     */
+    public static Properties Reglages(String fichier) throws IOException {
+        Properties p = new Properties();
+
+        if (fichier != null) {
+            InputStream in = new FileInputStream(fichier);
+
+            try {
+                p.load(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        return p;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage : Generateur url [fichier.properties]");
+            System.exit(1);
+        }
+
+        String url = args[0];
+        Generateur generateur = new Generateur(
+                Reglages(args.length > 1 ? args[1] : null));
+        Connection link;
+
+        if (Dialecte.DepuisUrl(url) == Dialecte.H2) {
+            link = BaseEmbarquee.Create(url).getConnection();
+        } else {
+            link = DriverManager.getConnection(url,
+                    System.getProperty("utilisateur"),
+                    System.getProperty("motdepasse"));
+        }
+
+        long debut = System.currentTimeMillis();
+
+        try {
+            generateur.remplir(link);
+        } finally {
+            link.close();
+        }
+
+        for (Map.Entry<String, Integer> e : generateur.getLignes().entrySet()) {
+            System.out.println(e.getKey() + " " + e.getValue());
+        }
+
+        System.out.println("Durée (ms) " + (System.currentTimeMillis() - debut));
+    }
+}
@@ -0,0 +1,56 @@
+package banc;
+
+import dao.JoueurDAO;
+import java.util.concurrent.TimeUnit;
+import modele.Joueur;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks de JoueurDAO : recherche d'un joueur par pseudo
+ * (connexion), parmi un nombre croissant de joueurs.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JoueurDAOBanc {
+
+    @Param({"100", "10000"})
+    public int joueurs;
+
+    private String[] pseudos;
+    private int suivant;
+
+    @Setup
+    public void setup() throws Exception {
+        try (Base base = new Base()) {
+            pseudos = new String[joueurs];
+
+            for (int i = 0; i < joueurs; i++) {
+                pseudos[i] = Base.Nom("j");
+                base.joueur(pseudos[i], "0e87b8eadc71d22a1a41a53ae30774d4");
+            }
+        }
+    }
+
+    @Benchmark
+    public Joueur getJoueurParPseudo() throws Exception {
+        suivant = (suivant + 1) % pseudos.length;
+
+        return JoueurDAO.Get().getJoueur(pseudos[suivant]);
+    }
+}
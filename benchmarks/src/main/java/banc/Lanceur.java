@@ -0,0 +1,30 @@
+package banc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Point d'entrée des benchmarks : la ligne de commande de JMH,
+ * avec le profileur gc (taux d'allocation) si aucun profileur n'est demandé.
+ *
+ * java -jar target/benchmarks.jar [motif] [options JMH]
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public final class Lanceur {
+
+    private Lanceur() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+
+        if (!options.contains("-prof")) {
+            options.add(0, "-prof");
+            options.add(1, "gc");
+        }
+
+        org.openjdk.jmh.Main.main(options.toArray(new String[options.size()]));
+    }
+}
@@ -0,0 +1,86 @@
+package banc;
+
+import dao.PersonnageDAO;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import modele.Joueur;
+import modele.Personnage;
+import modele.Univers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks de PersonnageDAO : fiche d'un personnage (avec et sans
+ * le cache) et candidats d'une aventure.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PersonnageDAOBanc {
+
+    /**
+     * Personnages parcourus par getPersonnageHorsCache,
+     * au-delà de la capacité du cache
+     */
+    private static final int PERSONNAGES = 2500;
+
+    /**
+     * Nombre de personnages validés par le meneur dans l'univers
+     */
+    @Param({"10", "100"})
+    public int candidats;
+
+    private int[] ids;
+    private int suivant;
+    private Joueur mj;
+    private Univers univers;
+
+    @Setup
+    public void setup() throws Exception {
+        try (Base base = new Base()) {
+            int joueur = base.joueur(Base.Nom("joueur"), Base.Nom("pwd"));
+            int meneur = base.joueur(Base.Nom("mj"), Base.Nom("pwd"));
+            int u = base.univers(Base.Nom("Univers "));
+
+            ids = new int[PERSONNAGES];
+
+            for (int i = 0; i < PERSONNAGES; i++) {
+                ids[i] = base.personnage(joueur, i < candidats ? meneur : null, u);
+            }
+
+            mj = new Joueur(meneur);
+            univers = new Univers(u);
+        }
+    }
+
+    @Benchmark
+    public Personnage getPersonnageEnCache() throws Exception {
+        return PersonnageDAO.Get().getPersonnage(ids[0]);
+    }
+
+    @Benchmark
+    public Personnage getPersonnageHorsCache() throws Exception {
+        suivant = (suivant + 1) % ids.length;
+
+        return PersonnageDAO.Get().getPersonnage(ids[suivant]);
+    }
+
+    @Benchmark
+    public List<Personnage> getCandidats() throws Exception {
+        return PersonnageDAO.Get().getCandidats(mj, univers);
+    }
+}
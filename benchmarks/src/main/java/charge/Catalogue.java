@@ -0,0 +1,138 @@
+package charge;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Comptes des utilisateurs virtuels, lus dans la base : joueurs générés
+ * (cf. banc.Generateur, mot de passe égal au pseudo), leurs personnages
+ * validés, les épisodes à valider et les paragraphes secrets de chacun.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+final class Catalogue {
+
+    private static final String JOUEURS = "select id, pseudo from Joueur "
+            + "where pseudo like 'joueur%' order by id";
+
+    private static final String PERSONNAGES = "select id, biographie_id "
+            + "from Personnage where joueur_id = ? and mj_id is not null "
+            + "and biographie_id is not null";
+
+    private static final String EPISODES = "select id from Episode "
+            + "where biographie_id = ? and valide = 0";
+
+    private static final String PARAGRAPHES = "select p.id from Paragraphe p "
+            + "join Episode e on p.episode_id = e.id "
+            + "where e.biographie_id = ? and p.secret = 1";
+
+    /**
+     * Un personnage et ce qu'il reste à y modifier
+     */
+    static final class Perso {
+        final int id;
+        final int biographie;
+        final List<Integer> episodes = new ArrayList<>();
+        final List<Integer> paragraphes = new ArrayList<>();
+
+        Perso(int id, int biographie) {
+            this.id = id;
+            this.biographie = biographie;
+        }
+    }
+
+    /**
+     * Le compte d'un utilisateur virtuel
+     */
+    static final class Compte {
+        final String pseudo;
+        final List<Perso> persos = new ArrayList<>();
+
+        Compte(String pseudo) {
+            this.pseudo = pseudo;
+        }
+    }
+
+    private Catalogue() {
+    }
+
+    /**
+     * Tire des comptes parmi les joueurs générés.
+     *
+     * @param link    La connexion à la base
+     * @param nombre  Le nombre de comptes
+     * @param hasard  Le tirage
+     * @return Les comptes, distincts
+     * @throws SQLException
+     */
+    static List<Compte> Charger(Connection link, int nombre, Random hasard)
+            throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        List<String> pseudos = new ArrayList<>();
+
+        try (PreparedStatement st = link.prepareStatement(JOUEURS);
+             ResultSet rs = st.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+                pseudos.add(rs.getString(2));
+            }
+        }
+
+        if (ids.size() < nombre) {
+            throw new SQLException(ids.size() + " joueurs générés pour "
+                    + nombre + " utilisateurs (cf. banc.Generateur)");
+        }
+
+        List<Integer> ordre = new ArrayList<>();
+
+        for (int i = 0; i < ids.size(); i++) {
+            ordre.add(i);
+        }
+
+        Collections.shuffle(ordre, hasard);
+
+        List<Compte> comptes = new ArrayList<>();
+
+        try (PreparedStatement persos = link.prepareStatement(PERSONNAGES);
+             PreparedStatement episodes = link.prepareStatement(EPISODES);
+             PreparedStatement paragraphes = link.prepareStatement(PARAGRAPHES)) {
+
+            for (int i : ordre.subList(0, nombre)) {
+                Compte compte = new Compte(pseudos.get(i));
+                persos.setInt(1, ids.get(i));
+
+                try (ResultSet rs = persos.executeQuery()) {
+                    while (rs.next()) {
+                        compte.persos.add(new Perso(rs.getInt(1), rs.getInt(2)));
+                    }
+                }
+
+                for (Perso perso : compte.persos) {
+                    lire(episodes, perso.biographie, perso.episodes);
+                    lire(paragraphes, perso.biographie, perso.paragraphes);
+                }
+
+                comptes.add(compte);
+            }
+        }
+
+        return comptes;
+    }
+
+    private static void lire(PreparedStatement st, int biographie,
+            List<Integer> ids) throws SQLException {
+        st.setInt(1, biographie);
+
+        try (ResultSet rs = st.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package charge;
+
+import banc.Generateur;
+import dao.BaseEmbarquee;
+import dao.Dialecte;
+import java.io.File;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Test de charge HTTP de bout en bout : des utilisateurs virtuels
+ * rejouent un parcours (cf. Parcours) contre l'application, puis les
+ * centiles de latence sont rapportés par action de contrôleur.
+ *
+ * Sans cible, l'application est démarrée dans un Tomcat embarqué sur une
+ * base H2 remplie par le Generateur ; avec une cible, la base donnée est
+ * seulement lue pour tirer les comptes. Les réglages viennent du fichier
+ * en argument, les propriétés système (-Dnom=valeur) les remplacent :
+ *
+ * java -cp target/benchmarks.jar charge.Charge charge.properties
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public final class Charge {
+
+    private static final String PARCOURS
+            = "login,liste,fiche,biographie,validation,revelation,logout";
+
+    private Charge() {
+    }
+
+    private static String reglage(Properties p, String nom, String defaut) {
+        return System.getProperty(nom, p.getProperty(nom, defaut)).trim();
+    }
+
+    private static int entier(Properties p, String nom, int defaut) {
+        return Integer.parseInt(reglage(p, nom, String.valueOf(defaut)));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Properties p = Generateur.Reglages(args.length > 0 ? args[0] : null);
+
+        String cible = reglage(p, "cible", "");
+        String url = reglage(p, "base",
+                "jdbc:h2:mem:charge;MODE=Oracle;DB_CLOSE_DELAY=-1");
+        int utilisateurs = entier(p, "utilisateurs", 10);
+        int duree = entier(p, "duree", 60);
+        int montee = entier(p, "montee", 10);
+        int echauffement = Math.max(montee, entier(p, "echauffement", 15));
+        int pause = entier(p, "pause", 500);
+        long graine = Long.parseLong(reglage(p, "graine", "42"));
+        String[] etapes = reglage(p, "parcours", PARCOURS).split(",");
+        String resultats = reglage(p, "resultats", "");
+
+        for (String etape : etapes) {
+            if (!Parcours.ETAPES.contains(etape.trim())) {
+                throw new IllegalArgumentException("Etape inconnue : " + etape
+                        + " (étapes : " + Parcours.ETAPES + ")");
+            }
+        }
+
+        Serveur serveur = null;
+        List<Catalogue.Compte> comptes;
+
+        if (cible.isEmpty()) {
+            // Base remplie avant le démarrage : les annuaires de Main
+            // chargent les joueurs générés
+            try (Connection link = BaseEmbarquee.Create(url).getConnection()) {
+                String generation = reglage(p, "generation", "");
+                new Generateur(Generateur.Reglages(generation.isEmpty()
+                        ? null : generation)).remplir(link);
+                comptes = Catalogue.Charger(link, utilisateurs, new Random(graine));
+                link.commit();
+            }
+
+            System.setProperty("rpg.embarquee", url);
+            serveur = new Serveur(new File(reglage(p, "webapp",
+                    "../projet/src/main/webapp")), entier(p, "port", 0));
+            cible = serveur.demarrer();
+
+        } else {
+            Class.forName(Dialecte.DepuisUrl(url).getPilote());
+
+            try (Connection link = DriverManager.getConnection(url,
+                    System.getProperty("utilisateur"),
+                    System.getProperty("motdepasse"))) {
+                comptes = Catalogue.Charger(link, utilisateurs, new Random(graine));
+            }
+
+            if (!cible.endsWith("/")) {
+                cible += "/";
+            }
+        }
+
+        System.out.println("Cible " + cible + ", " + utilisateurs
+                + " utilisateurs, parcours " + Arrays.toString(etapes));
+
+        Mesures mesures = new Mesures();
+        List<Parcours> parcours = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+
+        try {
+            // Montée en charge : démarrages répartis sur la durée de montée
+            for (int i = 0; i < utilisateurs; i++) {
+                Parcours u = new Parcours(new Client(cible, mesures),
+                        comptes.get(i), etapes, pause, graine + i);
+                Thread t = new Thread(u, "utilisateur-" + i);
+                parcours.add(u);
+                threads.add(t);
+                t.start();
+
+                Thread.sleep(montee * 1000L / utilisateurs);
+            }
+
+            Thread.sleep(echauffement * 1000L - montee * 1000L);
+            mesures.activer();
+
+            long debut = System.nanoTime();
+            Thread.sleep(duree * 1000L);
+            double secondes = (System.nanoTime() - debut) / 1e9;
+
+            for (Parcours u : parcours) {
+                u.arreter();
+            }
+
+            for (Thread t : threads) {
+                t.join();
+            }
+
+            mesures.rapport(new PrintWriter(System.out), secondes, false);
+
+            if (!resultats.isEmpty()) {
+                mesures.enregistrer(resultats, secondes);
+                System.out.println("Résultats : " + resultats);
+            }
+
+        } finally {
+            if (serveur != null) {
+                serveur.arreter();
+            }
+        }
+    }
+}
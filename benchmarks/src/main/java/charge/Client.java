@@ -0,0 +1,128 @@
+package charge;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+
+/**
+ * Client HTTP d'un utilisateur virtuel : conserve le cookie de session
+ * et mesure chaque requete, réponse lue en entier. Les redirections ne
+ * sont pas suivies : une redirection inattendue (vers la page de login)
+ * compte comme une erreur.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+final class Client {
+
+    private final String base;
+    private final Mesures mesures;
+    private String session;
+
+    /**
+     * @param base    L'URL de l'application (http://hote:port/projet/)
+     * @param mesures Les mesures où enregistrer les requetes
+     */
+    Client(String base, Mesures mesures) {
+        this.base = base;
+        this.mesures = mesures;
+    }
+
+    /**
+     * Requete GET
+     *
+     * @param action  Le nom de l'action mesurée
+     * @param chemin  Le chemin et les paramètres (character?action=show&id=1)
+     * @param attendu Le statut attendu, tout autre est une erreur
+     * @return Le statut HTTP, -1 en cas d'erreur d'entrée-sortie
+     */
+    int get(String action, String chemin, int attendu) {
+        return executer(action, chemin, attendu, null);
+    }
+
+    /**
+     * Requete POST
+     *
+     * @param action     Le nom de l'action mesurée
+     * @param chemin     Le chemin
+     * @param attendu    Le statut attendu, tout autre est une erreur
+     * @param parametres Les paramètres, par paires nom, valeur
+     * @return Le statut HTTP, -1 en cas d'erreur d'entrée-sortie
+     */
+    int post(String action, String chemin, int attendu, Object... parametres) {
+        StringBuilder corps = new StringBuilder();
+
+        try {
+            for (int i = 0; i < parametres.length; i += 2) {
+                if (i > 0) {
+                    corps.append('&');
+                }
+
+                corps.append(parametres[i]).append('=').append(URLEncoder
+                        .encode(String.valueOf(parametres[i + 1]), "UTF-8"));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return executer(action, chemin, attendu, corps.toString());
+    }
+
+    private int executer(String action, String chemin, int attendu,
+            String corps) {
+        long debut = System.nanoTime();
+        int statut = -1;
+
+        try {
+            HttpURLConnection c = (HttpURLConnection) new URL(base + chemin)
+                    .openConnection();
+            c.setInstanceFollowRedirects(false);
+
+            if (session != null) {
+                c.setRequestProperty("Cookie", session);
+            }
+
+            if (corps != null) {
+                c.setRequestMethod("POST");
+                c.setDoOutput(true);
+                c.setRequestProperty("Content-Type",
+                        "application/x-www-form-urlencoded; charset=UTF-8");
+
+                OutputStream out = c.getOutputStream();
+                out.write(corps.getBytes("UTF-8"));
+                out.close();
+            }
+
+            statut = c.getResponseCode();
+
+            String cookie = c.getHeaderField("Set-Cookie");
+
+            if (cookie != null && cookie.startsWith("JSESSIONID=")) {
+                session = cookie.substring(0, cookie.indexOf(';') > 0
+                        ? cookie.indexOf(';') : cookie.length());
+            }
+
+            InputStream in = statut >= 400 ? c.getErrorStream() : c.getInputStream();
+
+            if (in != null) {
+                byte[] tampon = new byte[8192];
+
+                while (in.read(tampon) != -1) {
+                    // Réponse lue pour mesurer son rendu complet
+                }
+
+                in.close();
+            }
+
+        } catch (IOException e) {
+            statut = -1;
+        }
+
+        mesures.ajouter(action, (System.nanoTime() - debut) / 1000,
+                        statut != attendu);
+
+        return statut;
+    }
+}
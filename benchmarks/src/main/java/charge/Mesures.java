@@ -0,0 +1,155 @@
+package charge;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latences des requetes, par action de contrôleur
+ * (par exemple "character?action=show").
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+final class Mesures {
+
+    /**
+     * Centiles rapportés
+     */
+    private static final double[] CENTILES = {50, 90, 95, 99};
+
+    /**
+     * Les latences (µs) et erreurs d'une action
+     */
+    private static final class Serie {
+        private long[] latences = new long[1024];
+        private int taille;
+        private int erreurs;
+
+        synchronized void ajouter(long micros, boolean erreur) {
+            if (taille == latences.length) {
+                latences = Arrays.copyOf(latences, taille * 2);
+            }
+
+            latences[taille++] = micros;
+
+            if (erreur) {
+                erreurs++;
+            }
+        }
+
+        synchronized long[] triees() {
+            long[] copie = Arrays.copyOf(latences, taille);
+            Arrays.sort(copie);
+
+            return copie;
+        }
+
+        synchronized int getErreurs() {
+            return erreurs;
+        }
+    }
+
+    private final Map<String, Serie> series = new TreeMap<>();
+
+    /**
+     * Faux pendant l'échauffement : les requetes ne sont pas comptées
+     */
+    private volatile boolean actives;
+
+    /**
+     * Commence l'enregistrement, à la fin de l'échauffement.
+     */
+    void activer() {
+        actives = true;
+    }
+
+    /**
+     * Enregistre une requete.
+     *
+     * @param action L'action
+     * @param micros La durée (µs)
+     * @param erreur true si la requete a échoué
+     */
+    void ajouter(String action, long micros, boolean erreur) {
+        if (!actives) {
+            return;
+        }
+
+        Serie serie;
+
+        synchronized (series) {
+            serie = series.get(action);
+
+            if (serie == null) {
+                serie = new Serie();
+                series.put(action, serie);
+            }
+        }
+
+        serie.ajouter(micros, erreur);
+    }
+
+    private static double centile(long[] triees, double c) {
+        if (triees.length == 0) {
+            return 0;
+        }
+
+        int rang = (int) Math.ceil(c / 100 * triees.length) - 1;
+
+        return triees[Math.max(0, rang)] / 1000.0;
+    }
+
+    /**
+     * Ecrit le rapport : une ligne par action, latences en ms.
+     *
+     * @param out   La sortie
+     * @param duree La durée de mesure (s), pour le débit
+     * @param csv   true pour le format CSV, false pour un tableau aligné
+     */
+    void rapport(PrintWriter out, double duree, boolean csv) {
+        String format = csv ? "%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f%n"
+                            : "%-40s %8d %7d %9.1f %9.3f %9.3f %9.3f %9.3f %9.3f%n";
+
+        out.printf(csv ? "%s,%s,%s,%s,%s,%s,%s,%s,%s%n"
+                       : "%-40s %8s %7s %9s %9s %9s %9s %9s %9s%n",
+                "action", "requetes", "erreurs", "req/s",
+                "p50", "p90", "p95", "p99", "max");
+
+        synchronized (series) {
+            for (Map.Entry<String, Serie> e : series.entrySet()) {
+                long[] triees = e.getValue().triees();
+
+                out.printf(Locale.ROOT, format, e.getKey(),
+                        triees.length, e.getValue().getErreurs(),
+                        triees.length / duree,
+                        centile(triees, CENTILES[0]),
+                        centile(triees, CENTILES[1]),
+                        centile(triees, CENTILES[2]),
+                        centile(triees, CENTILES[3]),
+                        triees.length == 0 ? 0 : triees[triees.length - 1] / 1000.0);
+            }
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Ecrit le rapport CSV dans un fichier, pour comparer deux versions.
+     *
+     * @param fichier Le fichier
+     * @param duree   La durée de mesure (s)
+     * @throws IOException
+     */
+    void enregistrer(String fichier, double duree) throws IOException {
+        PrintWriter out = new PrintWriter(fichier, "UTF-8");
+
+        try {
+            rapport(out, duree, true);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package charge;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Utilisateur virtuel : rejoue en boucle un parcours (suite d'étapes)
+ * avec un temps de réflexion aléatoire entre deux requetes.
+ *
+ * Etapes : login, liste (personnages), fiche, biographie, validation
+ * (demande de validation d'un épisode), revelation (d'un paragraphe
+ * secret), logout. Les étapes portant sur un personnage en tirent un
+ * parmi ceux du compte ; validation et révélation consomment leurs
+ * cibles et sont ignorées quand il n'en reste plus.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+final class Parcours implements Runnable {
+
+    /**
+     * Les étapes connues
+     */
+    static final List<String> ETAPES = Arrays.asList("login", "liste",
+            "fiche", "biographie", "validation", "revelation", "logout");
+
+    private static final int OK = 200;
+    private static final int REDIRECTION = 302;
+
+    private final Client client;
+    private final Catalogue.Compte compte;
+    private final String[] etapes;
+    private final int pause;
+    private final Random hasard;
+    private volatile boolean arret;
+
+    /**
+     * @param client Le client HTTP
+     * @param compte Le compte joué
+     * @param etapes Les étapes du parcours
+     * @param pause  Le temps de réflexion moyen (ms)
+     * @param graine La graine du tirage
+     */
+    Parcours(Client client, Catalogue.Compte compte, String[] etapes,
+            int pause, long graine) {
+        this.client = client;
+        this.compte = compte;
+        this.etapes = etapes.clone();
+        this.pause = pause;
+        this.hasard = new Random(graine);
+    }
+
+    /**
+     * Arrete le parcours à la fin de l'étape en cours.
+     */
+    void arreter() {
+        arret = true;
+    }
+
+    @Override
+    public void run() {
+        while (!arret) {
+            for (String etape : etapes) {
+                if (arret) {
+                    return;
+                }
+
+                if (executer(etape.trim())) {
+                    reflechir();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true si une requete a été faite
+     */
+    private boolean executer(String etape) {
+        if ("login".equals(etape)) {
+            client.post("main?login", "main", OK,
+                    "nickname", compte.pseudo, "password", compte.pseudo);
+            return true;
+        }
+
+        if ("liste".equals(etape)) {
+            client.get("character?action=list", "character?action=list", OK);
+            return true;
+        }
+
+        if ("logout".equals(etape)) {
+            client.get("main?logout", "main?logout", REDIRECTION);
+            return true;
+        }
+
+        if (compte.persos.isEmpty()) {
+            return false;
+        }
+
+        Catalogue.Perso perso = compte.persos.get(
+                hasard.nextInt(compte.persos.size()));
+
+        switch (etape) {
+        case "fiche":
+            client.get("character?action=show",
+                    "character?action=show&id=" + perso.id, OK);
+            return true;
+
+        case "biographie":
+            client.get("biographie?action=afficher",
+                    "biographie?action=afficher&id=" + perso.id, OK);
+            return true;
+
+        case "validation": {
+            Integer episode = tirer(perso.episodes);
+
+            if (episode == null) {
+                return false;
+            }
+
+            client.post("episode?action=validate", "episode", REDIRECTION,
+                    "action", "validate", "pID", episode,
+                    "idBio", perso.biographie, "persoID", perso.id);
+            return true;
+        }
+
+        case "revelation": {
+            Integer paragraphe = tirer(perso.paragraphes);
+
+            if (paragraphe == null) {
+                return false;
+            }
+
+            client.post("paragraphe?action=reveler", "paragraphe", OK,
+                    "action", "reveler", "persoID", perso.id,
+                    "pID", paragraphe);
+            return true;
+        }
+
+        default:
+            throw new IllegalArgumentException("Etape inconnue : " + etape);
+        }
+    }
+
+    private Integer tirer(List<Integer> ids) {
+        return ids.isEmpty() ? null : ids.remove(hasard.nextInt(ids.size()));
+    }
+
+    private void reflechir() {
+        if (pause <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(hasard.nextInt(2 * pause + 1));
+
+        } catch (InterruptedException e) {
+            arret = true;
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package charge;
+
+import controleur.Main;
+import java.io.File;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.WebResourceRoot;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.webresources.DirResourceSet;
+import org.apache.catalina.webresources.JarResourceSet;
+import org.apache.catalina.webresources.StandardRoot;
+import org.apache.tomcat.util.scan.StandardJarScanFilter;
+import org.apache.tomcat.util.scan.StandardJarScanner;
+
+/**
+ * L'application dans un Tomcat embarqué : pages et web.xml du projet,
+ * classes compilées avec les benchmarks montées dans WEB-INF/classes.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+final class Serveur {
+
+    /**
+     * Les packages de l'application
+     */
+    private static final String[] PACKAGES = {"controleur", "dao", "modele"};
+
+    private static final String CONTEXTE = "/projet";
+
+    private final Tomcat tomcat = new Tomcat();
+
+    /**
+     * Prépare le serveur.
+     *
+     * @param webapp Le répertoire webapp du projet
+     * @param port   Le port HTTP, 0 pour un port libre
+     * @throws Exception si le répertoire de travail ne peut être créé
+     */
+    Serveur(File webapp, int port) throws Exception {
+        if (!new File(webapp, "WEB-INF/web.xml").isFile()) {
+            throw new IllegalArgumentException("Pas de WEB-INF/web.xml dans "
+                    + webapp.getAbsolutePath() + " (propriété webapp)");
+        }
+
+        tomcat.setBaseDir(Files.createTempDirectory("charge").toString());
+        tomcat.setPort(port);
+        tomcat.getConnector();
+
+        Context ctx = tomcat.addWebapp(CONTEXTE, webapp.getAbsolutePath());
+        WebResourceRoot ressources = new StandardRoot(ctx);
+        File classes = emplacementClasses();
+
+        for (String pkg : PACKAGES) {
+            String montage = "/WEB-INF/classes/" + pkg;
+
+            ressources.addPreResources(classes.isDirectory()
+                    ? new DirResourceSet(ressources, montage,
+                            new File(classes, pkg).getAbsolutePath(), "/")
+                    : new JarResourceSet(ressources, montage,
+                            classes.getAbsolutePath(), "/" + pkg));
+        }
+
+        ctx.setResources(ressources);
+
+        // Le jar des benchmarks contient Tomcat : seuls ses TLD (JSTL) sont lus
+        StandardJarScanFilter filtre = new StandardJarScanFilter();
+        filtre.setPluggabilitySkip("*");
+        ((StandardJarScanner) ctx.getJarScanner()).setJarScanFilter(filtre);
+    }
+
+    /**
+     * @return Le jar ou répertoire des classes compilées
+     */
+    private static File emplacementClasses() throws URISyntaxException {
+        return new File(Main.class.getProtectionDomain().getCodeSource()
+                .getLocation().toURI());
+    }
+
+    /**
+     * Démarre le serveur.
+     *
+     * @return L'URL de l'application, terminée par /
+     * @throws LifecycleException
+     */
+    String demarrer() throws LifecycleException {
+        tomcat.start();
+
+        return "http://localhost:" + tomcat.getConnector().getLocalPort()
+                + CONTEXTE + "/";
+    }
+
+    /**
+     * Arrete le serveur.
+     *
+     * @throws LifecycleException
+     */
+    void arreter() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+}
@@ -30,13 +30,14 @@ drop sequence epi_seq;
 
 
 -- Création des séquences
-create sequence av_seq;
-create sequence bio_seq;
+-- (les premières valeurs suivent les identifiants des données fournies)
+create sequence av_seq start with 11;
+create sequence bio_seq start with 13;
 create sequence joueur_seq;
 create sequence univers_seq;
-create sequence pers_seq;
-create sequence para_seq;
-create sequence epi_seq;
+create sequence pers_seq start with 13;
+create sequence para_seq start with 20;
+create sequence epi_seq start with 12;
 
 
 -- Création de la bdd
@@ -50,6 +51,7 @@ create table Aventure (
     titre varchar(70) not null,
     mj_id int not null,
     univers_id int not null,
+    version int default 0 not null,
     primary key (id)
 );
 
@@ -66,6 +68,7 @@ create table Episode (
     aventure_id int,
     biographie_id int not null,
     mj_id int,
+    version int default 0 not null,
     primary key (id)
 );
 
@@ -87,6 +90,7 @@ create table Paragraphe (
     secret int default 1 not null,
     texte varchar(4000) not null,
     episode_id int not null,
+    version int default 0 not null,
     primary key (id)
 );
 
@@ -103,6 +107,7 @@ create table Personnage (
     transfert_id int,
     univers_id int not null,
     validateur_id int,
+    version int default 0 not null,
     primary key (id)
 );
 
@@ -186,6 +191,12 @@ alter table Personnage
     foreign key (joueur_id) 
     references Joueur;
 
+-- Index des listes paginées (ordre d'affichage + identifiant),
+-- la pagination par clé suppose un tri binaire (NLS_SORT=BINARY,
+-- fixé à la connexion par dao.Dialecte)
+create index IDX_Personnage_Liste on Personnage (nom, id);
+create index IDX_Aventure_Liste on Aventure (finie, titre, id);
+
 
 
 
@@ -234,9 +245,6 @@ Bhunivelze est un dieu ayant confié à Lightning la mission de sauver le plus d
 insert into AVENTURE (ID,ADATE,EVENTS,FINIE,LIEU,SITUATION,TITRE,MJ_ID,UNIVERS_ID) values ('4','24 mars 2008',null,'0','Nibelheim','Crisis Core se déroule sept ans avant le commencement de Final Fantasy VII, et englobe les événements qui ont eu lieu juste avant le début. Son héros est Zack Fair, qui est un personnage secondaire de Final Fantasy VII et le précédent propriétaire de l''Épée Broyeuse avant Cloud Strife. Il est membre du SOLDAT, travaillant pour la Shinra sous les ordres de Lazard Deusericus. Le jeu raconte l''histoire de la bataille de Zack contre le vil première classe du SOLDAT, Génésis Rhapsodos, et les autres produits pervers du Projet Jenova.','Crisis Core','2','1');
 insert into AVENTURE (ID,ADATE,EVENTS,FINIE,LIEU,SITUATION,TITRE,MJ_ID,UNIVERS_ID) values ('5','Il y a 1000 ans','Sin (Jecht) est vaincu par Tidus \& co, suivi de l''ensemble des chimères tour à tour possédées par Yu Yevon jusqu''à finalement son extinction à lui aussi.','1','Zanarkand','Il y a mille ans, une terrible guerre faisait rage entre deux puissantes villes-machine, Zanarkand et Bevelle. Au paroxysme de ce conflit, une entité dévastatrice du nom de Sin fit son apparition et réduisit Zanarkand à néant pour punir les hommes de leur vanité. Effrayés par cette menace inattendue, les habitants du reste de Spira se réunirent autour de la religion. Ainsi naquit Yevon, le culte de la culpabilité. Depuis mille ans, des Invokeurs se succèdent pour effectuer un pèlerinage ayant pour but d''anéantir Sin... mais seulement pour une courte durée : la Félicité. Jusqu''à présent, seules cinq Félicités ont eu été apportées. La dernière en date est celle de Braska, il y a dix ans. Mais déjà Sin est de retour. Et c''est sa fille, Yuna, qui se décide à offrir au reste de Spira cet période de calme, espérant que cette fois-ci sera la dernière : l''éternelle Félicité. Mais Sin disparaîtra-t-il un jour ? Et surtout, d''où vient ce mystérieux jeune homme nommé Tidus ?','Final Fantasy X','2','1');
 
-drop sequence av_seq;
-create sequence av_seq start with 11;
-
 
 insert into BIOGRAPHIE (ID,TEXTE) values ('8','On sait très peu de choses sur Mew. Il est dit qu''autrefois, ils étaient nombreux, mais ils auraient tous disparus sauf 1. Ce Pokémon mythique peut apprendre toutes les capacités, c''est pour cela que certains pensent qu''il est l''ancêtre de tous les Pokémon. Pacifique, il passe son temps à jouer et à s''amuser.');
 insert into BIOGRAPHIE (ID,TEXTE) values ('9','Mewtwo est un Pokémon créé par manipulation génétique. Cependant, bien que les connaissances scientifiques des humains aient réussi à créer son corps, elles n''ont pas pu doter Mewtwo d''un cœur sensible.');
@@ -271,9 +279,6 @@ Pikachu est capable de lâcher des décharges d''électricité à la puissance v
 insert into BIOGRAPHIE (ID,TEXTE) values ('6','L''extraordinaire puissance de Sin précipite Tidus, champion de l''équipe de blitzball des "Zanarkand Abes", dans ce qui restera la plus grande aventure de sa vie. Sin l''emmène dans une contrée éloignée, une contrée tellement lointaine qu''aucun retour ne semble possible. Loin de chez lui et des siens, Tidus s''éprend de la magnifique Yuna tout en entretenant une haine féroce envers son père Jecht (lui aussi une star de blitzball).');
 insert into BIOGRAPHIE (ID,TEXTE) values ('7','Le nom de Yuna vient du japonais signifiant "hibiscus". Cette même fleur se retrouve sur la robe du personnage. Yuna est une jeune femme honnête et emplie de compassion. Voulant faire le bien autour d''elle, elle est consciente qu''elle seule peut arrêter Sin. Elle considère qu''il est donc de sa responsabilité de l''arrêter à n''importe quel prix, y compris sa propre vie. Elle en vient à négliger son propre bonheur pour sauver et aider autrui. Elle suit les préceptes de Yevon mais sa rencontre avec Tidus la rend plus ouverte et plus critique.');
 
-drop sequence bio_seq;
-create sequence bio_seq start with 13;
-
 
 insert into EPISODE (ID,EDATE,VALIDE,AVENTURE_ID,BIOGRAPHIE_ID,MJ_ID) values ('2','77','1','6','5',null);
 insert into EPISODE (ID,EDATE,VALIDE,AVENTURE_ID,BIOGRAPHIE_ID,MJ_ID) values ('3','0','1','6','5',null);
@@ -286,9 +291,6 @@ insert into EPISODE (ID,EDATE,VALIDE,AVENTURE_ID,BIOGRAPHIE_ID,MJ_ID) values ('1
 insert into EPISODE (ID,EDATE,VALIDE,AVENTURE_ID,BIOGRAPHIE_ID,MJ_ID) values ('6','0','1',null,'2',null);
 insert into EPISODE (ID,EDATE,VALIDE,AVENTURE_ID,BIOGRAPHIE_ID,MJ_ID) values ('8','0','1',null,'9',null);
 
-drop sequence epi_seq;
-create sequence epi_seq start with 12;
-
 
 insert into PARAGRAPHE (ID,SECRET,TEXTE,EPISODE_ID) values ('2','0','Sacha gagne les 8 badges de la région et s''inscrit à la ligue. Malencontreusement, il échoue face à Richie, car Dracaufeu ne veut pas combattre Sparky, le Pikachu de Richie.','2');
 insert into PARAGRAPHE (ID,SECRET,TEXTE,EPISODE_ID) values ('3','0','Pikachu est découvert dès le premier épisode, adoptant un caractère exécrable. Ne prenant pas goût à son nouveau dresseur, il l''ignora constamment, et lorsque Sacha échoua dans la capture d''un Roucool, Pikachu se moqua de lui. Toutefois, d''ici la fin de l''épisode, il finira par accorder sa confiance à Sacha, celui-ci l''ayant protégé d''une attaque par une horde de Piafabec et entraîné au Centre Pokémon. Depuis, ils sont devenus inséparables.','3');
@@ -311,9 +313,6 @@ insert into PARAGRAPHE (ID,SECRET,TEXTE,EPISODE_ID) values ('10','1','« Le tout
 insert into PARAGRAPHE (ID,SECRET,TEXTE,EPISODE_ID) values ('13','0','Création de Mewtwo par clonage : il détruit le laboratoire de ses créateurs ...','8');
 insert into PARAGRAPHE (ID,SECRET,TEXTE,EPISODE_ID) values ('14','1','Mewtwo est furieux, mais Giovanni parvient à le faire travailler pour lui.','8');
 
-drop sequence para_seq;
-create sequence para_seq start with 20;
-
 
 insert into PERSONNAGE (ID,NAISSANCE,NOM,PORTRAIT,PROFESSION,VALIDE,BIOGRAPHIE_ID,JOUEUR_ID,MJ_ID,TRANSFERT_ID,UNIVERS_ID,VALIDATEUR_ID) values ('8','Origine de l''univers','Mew','img/mew.png','Pokémon légendaire','1','8','4','3',null,'2',null);
 insert into PERSONNAGE (ID,NAISSANCE,NOM,PORTRAIT,PROFESSION,VALIDE,BIOGRAPHIE_ID,JOUEUR_ID,MJ_ID,TRANSFERT_ID,UNIVERS_ID,VALIDATEUR_ID) values ('9','666','Mewtwo','img/mewtwo.jpg','Menace planétaire','1','9','1','3',null,'2','3');
@@ -327,9 +326,6 @@ insert into PERSONNAGE (ID,NAISSANCE,NOM,PORTRAIT,PROFESSION,VALIDE,BIOGRAPHIE_I
 insert into PERSONNAGE (ID,NAISSANCE,NOM,PORTRAIT,PROFESSION,VALIDE,BIOGRAPHIE_ID,JOUEUR_ID,MJ_ID,TRANSFERT_ID,UNIVERS_ID,VALIDATEUR_ID) values ('6','Il y a 17 ans','Tidus','img/tidus.jpg','Joueur de Blitzball','1','6','4','2',null,'1',null);
 insert into PERSONNAGE (ID,NAISSANCE,NOM,PORTRAIT,PROFESSION,VALIDE,BIOGRAPHIE_ID,JOUEUR_ID,MJ_ID,TRANSFERT_ID,UNIVERS_ID,VALIDATEUR_ID) values ('7','Il y a 17 ans','Yuna','img/yuna.jpg','Invokeur','1','7','3','2',null,'1',null);
 
-drop sequence pers_seq;
-create sequence pers_seq start with 13;
-
 
 insert into PARTICIPE (AVENTURE_ID,PERSONNAGE_ID) values ('2','3');
 insert into PARTICIPE (AVENTURE_ID,PERSONNAGE_ID) values ('2','4');
@@ -0,0 +1,19 @@
+
+
+
+-- Migration d'une base installée avant l'ajout des colonnes de version
+-- (détection des modifications concurrentes), sans perte de données.
+-- A exécuter une seule fois, comme install_bd.sql :
+-- NLS_LANG=FRENCH_FRANCE.UTF8 sqlplus login@ensioracle1
+
+set sqlblanklines on;
+set define off;
+
+
+alter table Aventure add (version int default 0 not null);
+alter table Episode add (version int default 0 not null);
+alter table Paragraphe add (version int default 0 not null);
+alter table Personnage add (version int default 0 not null);
+
+
+commit;
@@ -8,6 +8,7 @@ import dao.UniversDAO;
 import dao.ParticipeDAO;
 import java.io.*;
 import java.util.Collection;
+import java.util.List;
 import javax.servlet.*;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.*;
@@ -21,6 +22,11 @@ import modele.*;
 @WebServlet(name = "AventureCtrl", urlPatterns = {"/game"})
 public class AventureCtrl extends HttpServlet {
 
+    /**
+     * Nombre d'aventures par page de la liste
+     */
+    private static final int TAILLE_PAGE = 50;
+
     /**
      * Requetes GET
      *
@@ -137,9 +143,30 @@ public class AventureCtrl extends HttpServlet {
                     titre = "Parties menées";
                     break;
 
-                // Par défaut on affiche la liste des aventures
+                // Par défaut on affiche la liste des aventures,
+                // par pages repérées par la dernière aventure affichée
                 default:
-                    parties = avDAO.getAventures();
+                    Aventure apres = null;
+                    String apresTitre = request.getParameter("apresTitre");
+                    
+                    if (apresTitre != null) {
+                        apres = new Aventure(Integer.parseInt(
+                                request.getParameter("apresId")));
+                        apres.setTitre(apresTitre);
+                        apres.setFinie(Boolean.parseBoolean(
+                                request.getParameter("apresFinie")));
+                    }
+                    
+                    List<Aventure> tranche = avDAO.getAventures(apres,
+                                                             TAILLE_PAGE + 1);
+                    
+                    if (tranche.size() > TAILLE_PAGE) {
+                        tranche = tranche.subList(0, TAILLE_PAGE);
+                        request.setAttribute("suivant", tranche.get(TAILLE_PAGE - 1));
+                    }
+                    
+                    request.setAttribute("pagine", apres != null);
+                    parties = tranche;
                     break;
                 }
 
@@ -363,6 +390,9 @@ public class AventureCtrl extends HttpServlet {
             }
 
             String events = request.getParameter("events");
+
+            // La partie ne doit pas avoir changé depuis son affichage
+            aventure.setVersion(Integer.parseInt(request.getParameter("version")));
             
             AventureDAO.Get().finishPartie(aventure, events);
             
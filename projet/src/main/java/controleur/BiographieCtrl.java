@@ -2,8 +2,6 @@ package controleur;
 
 import dao.BiographieDAO;
 import dao.DAOException;
-import dao.EpisodeDAO;
-import dao.ParagrapheDAO;
 import dao.PersonnageDAO;
 import java.io.IOException;
 import javax.servlet.ServletException;
@@ -11,7 +9,6 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import modele.Episode;
 import modele.Joueur;
 import modele.Personnage;
 
@@ -52,21 +49,15 @@ public class BiographieCtrl extends HttpServlet {
                 int persoID = Integer.parseInt(request.getParameter("id"));
                 PersonnageDAO persoD = PersonnageDAO.Get();
                 BiographieDAO bioD = BiographieDAO.Get();
-                EpisodeDAO epiD = EpisodeDAO.Get();
-                ParagrapheDAO paD = ParagrapheDAO.Get();
 
                 Personnage p = persoD.getPersonnage(persoID);
                 p.setId(persoID);
                 
-                // Récupération de la biographie
+                // Récupération de la biographie, de ses épisodes
+                // validés et de leurs paragraphes
                 Joueur j = Main.GetJoueurSession(request);
-                p.setBiographie(bioD.getBiographie(p));
-                p.getBiographie().episodes = epiD.getEpisodes(p.getBiographie());
-                
-                // Récupération des paragraphes de chaque épisode
-                for (Episode e : p.getBiographie().episodes) {
-                    e.paragraphes = paD.getParagraphes(e);
-                }
+                p.setBiographie(bioD.getBiographieComplete(
+                        p.getBiographie().getID(), false));
                 
                 request.setAttribute("perso", p);
                 request.setAttribute("owner", p.getJoueur().getId() == j.getId() || p.getMj().getId() == j.getId());
@@ -90,21 +81,14 @@ public class BiographieCtrl extends HttpServlet {
 
                 PersonnageDAO persoD = PersonnageDAO.Get();
                 BiographieDAO bioD = BiographieDAO.Get();
-                EpisodeDAO epiD = EpisodeDAO.Get();
-                ParagrapheDAO paD = ParagrapheDAO.Get();
 
                 // Check sécurité
                 Main.CheckOwnerOrMj(persoID, request);
 
-                // Récupération de la biographie
+                // Récupération de la biographie, de ses épisodes
+                // en édition et de leurs paragraphes
                 Personnage p = persoD.getPersonnage(persoID);
-                p.setBiographie(bioD.getBiographie(bioID));
-                p.getBiographie().episodes = epiD.getEpisodesEnEdition(p.getBiographie());
-                
-                // Récupération des paragraphes de chaque épisode
-                for (Episode e : p.getBiographie().episodes) {
-                    e.paragraphes = paD.getParagraphes(e);
-                }
+                p.setBiographie(bioD.getBiographieComplete(bioID, true));
 
                 request.setAttribute("perso", p);
                 request.getRequestDispatcher("/WEB-INF/biographie/EditionBio.jsp").forward(request, response);
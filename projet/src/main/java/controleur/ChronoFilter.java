@@ -0,0 +1,331 @@
+package controleur;
+
+import dao.Evenements;
+import dao.Metriques;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRegistration;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import modele.Joueur;
+
+/**
+ * Filtre chronométrant chaque requete des contrôleurs, par contrôleur et
+ * action (paramètre action, ou première clé de la requete : main?login) :
+ * durée totale, temps passé dans les DAO (cf. dao.Metriques.getCumul)
+ * et temps de rendu des JSP (forward).
+ *
+ * Les centiles sont glissants, sur les rpg.performances.fenetre dernières
+ * secondes (web.xml), cf. PerformancesCtrl. Chaque requete est aussi un
+ * événement JFR (cf. dao.Evenements), avec le joueur connecté.
+ *
+ * Premier filtre de la chaine (web.xml, dispatchers REQUEST et FORWARD) :
+ * la durée totale comprend la sonde et le commit de TransactionFilter.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public class ChronoFilter implements Filter {
+
+    /**
+     * Attribut de requete cumulant le temps de rendu des JSP (ns)
+     */
+    private static final String RENDU = "rpg.rendu";
+
+    /**
+     * Centiles publiés
+     */
+    static final double[] CENTILES = {0.5, 0.95, 0.99};
+
+    /**
+     * Tranches de la fenetre glissante
+     */
+    private static final int TRANCHES = 5;
+
+    /**
+     * Nombre maximal d'actions distinctes (le paramètre action vient du
+     * client) : au-delà, elles sont regroupées sous AUTRE
+     */
+    private static final int ACTIONS_MAX = 200;
+    private static final String AUTRE = "autre";
+
+    /**
+     * Les actions chronométrées, par contrôleur et action
+     */
+    private static final ConcurrentHashMap<String, Action> actions
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Durée de la fenetre glissante (ms)
+     */
+    private static volatile long fenetre = 300000;
+
+    /**
+     * Les contrôleurs de l'application, par chemin
+     */
+    private final Map<String, String> controleurs = new HashMap<>();
+
+    /**
+     * Chronométrage d'une action de contrôleur
+     */
+    public static final class Action {
+        private final String servlet;
+        private final String action;
+        private final Metriques.Fenetre total;
+        private final Metriques.Fenetre base;
+        private final Metriques.Fenetre rendu;
+
+        private Action(String servlet, String action) {
+            this.servlet = servlet;
+            this.action = action;
+            this.total = new Metriques.Fenetre(fenetre, TRANCHES);
+            this.base = new Metriques.Fenetre(fenetre, TRANCHES);
+            this.rendu = new Metriques.Fenetre(fenetre, TRANCHES);
+        }
+
+        public String getServlet() {
+            return servlet;
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        /**
+         * Nombre de requetes dans la fenetre
+         *
+         * @return Le nombre
+         */
+        public long getNombre() {
+            return total.getNombre();
+        }
+
+        /**
+         * Centiles de la durée totale (ms)
+         *
+         * @return Les centiles de CENTILES
+         */
+        public double[] getTotal() {
+            return total.getCentiles(CENTILES);
+        }
+
+        /**
+         * Centiles du temps passé dans les DAO (ms)
+         *
+         * @return Les centiles de CENTILES
+         */
+        public double[] getBase() {
+            return base.getCentiles(CENTILES);
+        }
+
+        /**
+         * Centiles du temps de rendu des JSP (ms)
+         *
+         * @return Les centiles de CENTILES
+         */
+        public double[] getRendu() {
+            return rendu.getCentiles(CENTILES);
+        }
+    }
+
+    @Override
+    public void init(FilterConfig config) {
+        String valeur = config.getServletContext()
+                .getInitParameter("rpg.performances.fenetre");
+
+        if (valeur != null) {
+            fenetre = Long.parseLong(valeur.trim()) * 1000;
+        }
+
+        // Ni les ressources statiques, ni les JSP appelées directement
+        for (ServletRegistration r : config.getServletContext()
+                .getServletRegistrations().values()) {
+            if (r.getClassName() != null
+                    && r.getClassName().startsWith("controleur.")) {
+                for (String chemin : r.getMappings()) {
+                    controleurs.put(chemin, r.getName());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response,
+            FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) request;
+
+        if (req.getDispatcherType() == DispatcherType.FORWARD) {
+            rendre(req, response, chain);
+            return;
+        }
+
+        String servlet = controleurs.get(req.getServletPath());
+
+        if (servlet == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Object evenement = Evenements.DebutAction();
+        long[] rendu = new long[1];
+        long debut = System.nanoTime();
+        long dao = Metriques.getCumul();
+
+        req.setAttribute(RENDU, rendu);
+
+        try {
+            chain.doFilter(request, response);
+
+        } finally {
+            long duree = System.nanoTime() - debut;
+
+            // Lu après le contrôleur : les paramètres sont alors décodés
+            // dans son encodage
+            Action a = getAction(servlet, action(req));
+            dao = Metriques.getCumul() - dao;
+            a.total.ajouter(duree);
+            a.base.ajouter(dao);
+            a.rendu.ajouter(rendu[0]);
+
+            Evenements.FinAction(evenement, servlet, a.action, joueur(req),
+                                 dao, rendu[0]);
+        }
+    }
+
+    /**
+     * Le joueur connecté, sans créer de session
+     */
+    private static int joueur(HttpServletRequest req) {
+        HttpSession session = req.getSession(false);
+        Object joueur = null;
+
+        try {
+            joueur = session == null ? null : session.getAttribute("user");
+        } catch (IllegalStateException e) {
+            // Session invalidée par la requete (déconnexion)
+        }
+
+        return joueur instanceof Joueur ? ((Joueur) joueur).getId() : 0;
+    }
+
+    /**
+     * Chronomètre le rendu d'une JSP appelée par un contrôleur
+     */
+    private static void rendre(HttpServletRequest req,
+            ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        Object rendu = req.getAttribute(RENDU);
+
+        if (!(rendu instanceof long[]) || !req.getServletPath().endsWith(".jsp")) {
+            chain.doFilter(req, response);
+            return;
+        }
+
+        long debut = System.nanoTime();
+
+        try {
+            chain.doFilter(req, response);
+
+        } finally {
+            ((long[]) rendu)[0] += System.nanoTime() - debut;
+        }
+    }
+
+    /**
+     * L'action d'une requete : son paramètre action, sinon la première
+     * clé de sa requete (main?login), sinon sa méthode
+     */
+    private static String action(HttpServletRequest req) {
+        String action = req.getParameter("action");
+
+        if (action != null) {
+            return action;
+        }
+
+        String query = req.getQueryString();
+
+        if (query != null && !query.isEmpty()) {
+            return query.split("[=&]", 2)[0];
+        }
+
+        return req.getMethod();
+    }
+
+    private static Action getAction(String servlet, String action) {
+        String cle = servlet + " " + action;
+        Action a = actions.get(cle);
+
+        if (a == null && actions.size() >= ACTIONS_MAX
+                && !AUTRE.equals(action)) {
+            return getAction(servlet, AUTRE);
+        }
+
+        if (a == null) {
+            actions.putIfAbsent(cle, new Action(servlet, action));
+            a = actions.get(cle);
+        }
+
+        return a;
+    }
+
+    /**
+     * Getter de la durée de la fenetre glissante
+     *
+     * @return La durée (ms)
+     */
+    public static long getFenetre() {
+        return fenetre;
+    }
+
+    /**
+     * Getter des actions chronométrées
+     *
+     * @return Les actions, triées par contrôleur et action
+     */
+    public static List<Action> getActions() {
+        return new ArrayList<>(new TreeMap<>(actions).values());
+    }
+
+    /**
+     * Centiles des actions, au format texte (une métrique par ligne,
+     * durées en ms).
+     *
+     * @return Les métriques
+     */
+    public static String getStatistiques() {
+        StringBuilder sb = new StringBuilder();
+
+        for (Action a : getActions()) {
+            String nom = "action." + a.servlet + "." + a.action;
+
+            sb.append(nom).append(".requetes ").append(a.getNombre()).append('\n');
+            centiles(sb, nom + ".total", a.getTotal());
+            centiles(sb, nom + ".dao", a.getBase());
+            centiles(sb, nom + ".jsp", a.getRendu());
+        }
+
+        return sb.toString();
+    }
+
+    private static void centiles(StringBuilder sb, String nom, double[] valeurs) {
+        for (int i = 0; i < CENTILES.length; i++) {
+            sb.append(nom).append(".p").append(Math.round(CENTILES[i] * 100))
+              .append(' ').append(valeurs[i]).append('\n');
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
@@ -127,13 +127,9 @@ public class EpisodeCtrl extends HttpServlet {
 
         case "validationList": {
             try {
+                // Episodes à valider avec leurs paragraphes
                 List<Episode> epi = ed.getEpisodesAValider(user);
 
-                // Récupératon des paragraphes d'épisodes à valider
-                for (Episode e : epi) {
-                    e.paragraphes = pad.getParagraphes(e);
-                }
-
                 request.setAttribute("episodes", epi);
                 request.getRequestDispatcher("/WEB-INF/episode/AValider.jsp").forward(request, response);
 
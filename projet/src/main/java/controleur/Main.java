@@ -1,17 +1,35 @@
 package controleur;
 
+import dao.AbstractDAO;
 import dao.AventureDAO;
+import dao.BaseEmbarquee;
 import dao.BiographieDAO;
+import dao.DAOException;
+import dao.Dialecte;
+import dao.DroitsDAO;
 import dao.EpisodeDAO;
 import dao.JoueurDAO;
+import dao.JournalLent;
 import dao.ParagrapheDAO;
 import dao.ParticipeDAO;
 import dao.PersonnageDAO;
+import dao.PooledDataSource;
+import dao.Sonde;
+import dao.StatementCache;
 import dao.UniversDAO;
 
 import java.io.*;
 import java.security.MessageDigest;
-import javax.annotation.Resource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
 import javax.servlet.*;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.*;
@@ -24,24 +42,213 @@ import org.apache.commons.lang.StringEscapeUtils;
  * 
  * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
  */
-@WebServlet(name = "Main", urlPatterns = {"/main"})
+@WebServlet(name = "Main", urlPatterns = {"/main"}, loadOnStartup = 1)
 public class Main extends HttpServlet {
 
-    @Resource(name = "jdbc/rpg")
-    private DataSource ds;
+    /**
+     * Paramètre (ou propriété système) donnant l'URL JDBC de la base
+     * embarquée à utiliser à la place de jdbc/rpg
+     */
+    private static final String EMBARQUEE = "rpg.embarquee";
+    
+    /**
+     * Attribut de requete mémorisant les droits déjà vérifiés
+     */
+    private static final String DROITS = "rpg.droits";
+    
+    /**
+     * Rechargement périodique des annuaires (univers, joueurs)
+     */
+    private ScheduledExecutorService rafraichissement;
     
     @Override
-    public void init() {
+    public void init() throws ServletException {
+        DataSource ds = getDataSource();
+        
+        // Sonde JDBC optionnelle : compteurs par requete, détection des N+1
+        // et journal des requetes lentes
+        boolean sonde = Boolean.parseBoolean(
+                getServletContext().getInitParameter("rpg.sonde"));
+        int seuil = sonde ? getIntParameter("rpg.sonde.seuil", 10) : 0;
+        String lentes = getServletContext().getInitParameter("rpg.lentes.fichier");
+        
+        if (lentes != null && !lentes.trim().isEmpty()) {
+            File fichier = new File(lentes.trim());
+            
+            if (!fichier.isAbsolute()) {
+                fichier = new File(System.getProperty("catalina.base", "."),
+                                   lentes.trim());
+            }
+            
+            Sonde.SetJournal(JournalLent.Create(fichier.getPath(),
+                    getIntParameter("rpg.lentes.seuil", 500),
+                    getIntParameter("rpg.lentes.taille", 10) * 1024L * 1024L,
+                    getIntParameter("rpg.lentes.fichiers", 5),
+                    getIntParameter("rpg.lentes.file", 1000)));
+            sonde = true;
+        }
+        
+        if (sonde) {
+            ds = Sonde.Create(ds, seuil);
+        }
+        
+        DataSource source = ds;
+        
+        // Pool instrumenté optionnel devant celui du conteneur
+        if (Boolean.parseBoolean(getServletContext().getInitParameter("rpg.pool"))) {
+            source = PooledDataSource.Create(ds,
+                    getIntParameter("rpg.pool.min", 1),
+                    getIntParameter("rpg.pool.max", 2),
+                    getIntParameter("rpg.pool.attente", 20000),
+                    getIntParameter("rpg.pool.fuite", 30000));
+        }
+        
+        // Réplique en lecture seule optionnelle
+        DataSource replique = lookupDataSource("java:comp/env/jdbc/rpg-ro");
+        
+        if (replique != null) {
+            if (sonde) {
+                replique = Sonde.Create(replique, seuil);
+            }
+            
+            AbstractDAO.SetReplique(replique,
+                    getIntParameter("rpg.replique.delai", 5000));
+        }
+        
+        StatementCache.SetCapacite(getIntParameter("rpg.statements.max", 50));
         
         // Creation des DAO
-        AventureDAO.Create(ds);
-        BiographieDAO.Create(ds);
-        EpisodeDAO.Create(ds);
-        JoueurDAO.Create(ds);
-        ParagrapheDAO.Create(ds);
-        PersonnageDAO.Create(ds);
-        UniversDAO.Create(ds);
-        ParticipeDAO.Create(ds);
+        AventureDAO.Create(source);
+        BiographieDAO.Create(source);
+        EpisodeDAO.Create(source);
+        JoueurDAO.Create(source);
+        ParagrapheDAO.Create(source);
+        PersonnageDAO.Create(source);
+        UniversDAO.Create(source);
+        ParticipeDAO.Create(source);
+        DroitsDAO.Create(source);
+        
+        // Annuaires en mémoire, rechargés périodiquement
+        rechargerAnnuaires();
+        
+        int periode = getIntParameter("rpg.annuaires.periode", 300);
+        rafraichissement = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "rpg-annuaires");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        
+        rafraichissement.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                rechargerAnnuaires();
+            }
+        }, periode, periode, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Recharge les instantanés des univers et des joueurs.
+     * En cas d'échec, les précédents restent servis.
+     */
+    private static void rechargerAnnuaires() {
+        try {
+            UniversDAO.Get().recharger();
+            JoueurDAO.Get().recharger();
+            
+        } catch (DAOException e) {
+            Logger.getLogger(Main.class.getName()).log(Level.WARNING,
+                    "Chargement des annuaires impossible", e);
+        }
+    }
+    
+    @Override
+    public void destroy() {
+        rafraichissement.shutdownNow();
+        
+        JournalLent journal = Sonde.getJournal();
+        
+        if (journal != null) {
+            Sonde.SetJournal(null);
+            journal.fermer();
+        }
+        
+        PooledDataSource pool = PooledDataSource.Get();
+        
+        if (pool != null) {
+            pool.close();
+        }
+    }
+    
+    /**
+     * Ouvre la base de l'application : la base embarquée si elle est
+     * configurée, jdbc/rpg sinon. Le dialecte des DAO est celui de la base.
+     * 
+     * @return Le datasource de la base
+     * @throws ServletException si la base embarquée ne peut être installée
+     */
+    private DataSource getDataSource() throws ServletException {
+        String url = getServletContext().getInitParameter(EMBARQUEE);
+        
+        if (url == null || url.trim().isEmpty()) {
+            url = System.getProperty(EMBARQUEE);
+        }
+        
+        if (url != null && !url.trim().isEmpty()) {
+            try {
+                return BaseEmbarquee.Create(url.trim());
+                
+            } catch (DAOException e) {
+                throw new ServletException(e.getMessage(), e);
+            }
+        }
+        
+        DataSource ds = lookupDataSource("java:comp/env/jdbc/rpg");
+        
+        if (ds == null) {
+            throw new ServletException("Ressource jdbc/rpg absente et "
+                    + EMBARQUEE + " non renseigné");
+        }
+        
+        try {
+            Dialecte.Set(Dialecte.Detecter(ds));
+            
+        } catch (DAOException e) {
+            Logger.getLogger(Main.class.getName()).log(Level.WARNING,
+                    "Dialecte de jdbc/rpg indéterminé, Oracle supposé", e);
+        }
+        
+        return ds;
+    }
+    
+    /**
+     * Recherche une ressource DataSource optionnelle (context.xml).
+     * 
+     * @param nom Le nom JNDI de la ressource
+     * @return La ressource, null si elle n'est pas déclarée
+     */
+    private static DataSource lookupDataSource(String nom) {
+        try {
+            return (DataSource) new InitialContext().lookup(nom);
+            
+        } catch (NamingException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Lit un paramètre entier du contexte (web.xml).
+     * 
+     * @param nom    Le nom du paramètre
+     * @param defaut La valeur par défaut
+     * @return La valeur du paramètre
+     */
+    private int getIntParameter(String nom, int defaut) {
+        String valeur = getServletContext().getInitParameter(nom);
+        
+        return valeur == null ? defaut : Integer.parseInt(valeur.trim());
     }
     
     /**
@@ -75,19 +282,33 @@ public class Main extends HttpServlet {
     public static void CheckOwnerOrMj(int persoID,
             HttpServletRequest request) throws SecurityException {
         Joueur user = Main.GetJoueurSession(request);
-        PersonnageDAO persoD = PersonnageDAO.Get();
-        SecurityException se = new SecurityException("Accès refusé");
         
-        try {
-            Personnage p = persoD.getPersonnage(persoID);
-            
-            if (p.getJoueur().getId() != user.getId()
-                && p.getMj().getId() != user.getId()) {
-                throw se;
+        // Vérifications déjà effectuées pendant cette requete
+        @SuppressWarnings("unchecked")
+        Map<Integer, Boolean> droits
+                = (Map<Integer, Boolean>) request.getAttribute(DROITS);
+        
+        if (droits == null) {
+            droits = new HashMap<>();
+            request.setAttribute(DROITS, droits);
+        }
+        
+        Boolean autorise = droits.get(persoID);
+        
+        if (autorise == null) {
+            try {
+                autorise = user != null
+                        && DroitsDAO.Get().isOwnerOrMj(persoID, user.getId());
+                
+            } catch (Exception e) {
+                autorise = false;
             }
             
-        } catch (Exception e) {
-            throw se;
+            droits.put(persoID, autorise);
+        }
+        
+        if (!autorise) {
+            throw new SecurityException("Accès refusé");
         }
     }
 
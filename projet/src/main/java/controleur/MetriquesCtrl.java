@@ -0,0 +1,150 @@
+package controleur;
+
+import dao.DroitsDAO;
+import dao.JournalLent;
+import dao.Metriques;
+import dao.PersonnageDAO;
+import dao.PooledDataSource;
+import dao.Reprise;
+import dao.Sonde;
+import dao.StatementCache;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import javax.servlet.*;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.*;
+
+/**
+ * Contrôleur des métriques au format texte de Prometheus : latences des
+ * DAO (cf. dao.Metriques), puis pool, caches et reprises (ceux de /stats).
+ *
+ * Un collecteur y accède sans être connecté en présentant le jeton du
+ * paramètre rpg.metriques.jeton (web.xml) dans l'en-tête
+ * « Authorization: Bearer jeton » ; sans jeton configuré, la connexion
+ * est exigée.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+@WebServlet(name = "MetriquesCtrl", urlPatterns = {"/metrics"})
+public class MetriquesCtrl extends HttpServlet {
+
+    private static final String BEARER = "Bearer ";
+
+    /**
+     * Jeton des collecteurs, null si aucun n'est autorisé sans connexion
+     */
+    private byte[] jeton;
+
+    @Override
+    public void init() throws ServletException {
+        String valeur = getServletContext().getInitParameter("rpg.metriques.jeton");
+
+        if (valeur != null && !valeur.trim().isEmpty()) {
+            jeton = valeur.trim().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Indique si la requete présente le jeton des collecteurs
+     * (comparaison en temps constant).
+     *
+     * @param request La requete
+     * @return true si le jeton est configuré et présenté
+     */
+    private boolean estCollecteur(HttpServletRequest request) {
+        String entete = request.getHeader("Authorization");
+
+        if (jeton == null || entete == null || !entete.startsWith(BEARER)) {
+            return false;
+        }
+
+        return MessageDigest.isEqual(jeton, entete.substring(BEARER.length())
+                .trim().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Requetes GET
+     *
+     * @param request
+     * @param response
+     * @throws java.io.IOException
+     * @throws javax.servlet.ServletException
+     */
+    @Override
+    public void doGet(HttpServletRequest request,
+            HttpServletResponse response)
+            throws IOException, ServletException {
+
+        // Force le login, sauf pour les collecteurs
+        if (!estCollecteur(request) && Main.notLogged(request, response)) {
+            return;
+        }
+
+        response.setContentType("text/plain;version=0.0.4;charset=UTF-8");
+        PrintWriter out = response.getWriter();
+        PooledDataSource pool = PooledDataSource.Get();
+
+        out.print(Metriques.getPrometheus());
+
+        if (pool != null) {
+            convertir(out, pool.getStatistiques());
+        }
+
+        out.println("rpg_statements_hits " + StatementCache.getHits());
+        out.println("rpg_statements_misses " + StatementCache.getMisses());
+        out.println("rpg_statements_evictions " + StatementCache.getEvictions());
+        convertir(out, PersonnageDAO.Get().getCache().getStatistiques("personnages"));
+        convertir(out, DroitsDAO.Get().getCache().getStatistiques("droits"));
+        convertir(out, Reprise.getStatistiques());
+
+        JournalLent journal = Sonde.getJournal();
+
+        if (journal != null) {
+            convertir(out, journal.getStatistiques());
+        }
+    }
+
+    /**
+     * Convertit des statistiques au format de /stats (« nom{etiquette=valeur}
+     * nombre » par ligne) en métriques Prometheus préfixées par rpg_ ;
+     * les lignes non numériques sont ignorées.
+     *
+     * @param out          La sortie
+     * @param statistiques Les statistiques
+     */
+    private static void convertir(PrintWriter out, String statistiques) {
+        for (String ligne : statistiques.split("\n")) {
+            String[] champs = ligne.trim().split(" ");
+
+            if (champs.length != 2 || !estNombre(champs[1])) {
+                continue;
+            }
+
+            String nom = champs[0];
+            String etiquettes = "";
+            int accolade = nom.indexOf('{');
+
+            if (accolade > 0 && nom.endsWith("}")) {
+                String[] etiquette = nom.substring(accolade + 1, nom.length() - 1)
+                                        .split("=", 2);
+                etiquettes = "{" + etiquette[0] + "=\""
+                        + (etiquette.length > 1 ? etiquette[1] : "") + "\"}";
+                nom = nom.substring(0, accolade);
+            }
+
+            out.println("rpg_" + nom.replaceAll("[^A-Za-z0-9_]", "_")
+                        + etiquettes + " " + champs[1]);
+        }
+    }
+
+    private static boolean estNombre(String valeur) {
+        try {
+            Double.parseDouble(valeur);
+            return true;
+
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
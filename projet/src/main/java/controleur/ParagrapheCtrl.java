@@ -168,11 +168,12 @@ public class ParagrapheCtrl extends HttpServlet {
                 int idBio = Integer.parseInt(request.getParameter("idBio"));
                 int idEpi = Integer.parseInt(request.getParameter("idEpi"));
                 int persoID = Integer.parseInt(request.getParameter("persoID"));
+                int version = Integer.parseInt(request.getParameter("version"));
 
                 Main.CheckOwnerOrMj(persoID, request);
 
                 ParagrapheDAO pad = ParagrapheDAO.Get();
-                pad.updateParagraphe(pid, texte);
+                pad.updateParagraphe(pid, texte, version);
 
                 response.sendRedirect("episode?action=edit&id="
                         + idEpi + "&persoID=" + persoID + "&idBio=" + idBio);
@@ -0,0 +1,48 @@
+package controleur;
+
+import java.io.*;
+import javax.servlet.*;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.*;
+
+/**
+ * Contrôleur des temps de réponse par contrôleur et action (cf.
+ * ChronoFilter) : page d'administration sur /performances, texte brut
+ * sur /performances.txt
+ * 
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+@WebServlet(name = "PerformancesCtrl",
+        urlPatterns = {"/performances", "/performances.txt"})
+public class PerformancesCtrl extends HttpServlet {
+
+    /**
+     * Requetes GET
+     *
+     * @param request
+     * @param response
+     * @throws java.io.IOException
+     * @throws javax.servlet.ServletException
+     */
+    @Override
+    public void doGet(HttpServletRequest request,
+            HttpServletResponse response)
+            throws IOException, ServletException {
+
+        // Force le login
+        if (Main.notLogged(request, response)) {
+            return;
+        }
+
+        if (request.getServletPath().endsWith(".txt")) {
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().print(ChronoFilter.getStatistiques());
+            return;
+        }
+
+        request.setAttribute("actions", ChronoFilter.getActions());
+        request.setAttribute("centiles", ChronoFilter.CENTILES);
+        request.setAttribute("fenetre", ChronoFilter.getFenetre());
+        request.getRequestDispatcher("/WEB-INF/performances.jsp").forward(request, response);
+    }
+}
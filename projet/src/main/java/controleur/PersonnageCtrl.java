@@ -22,6 +22,11 @@ import modele.*;
 @WebServlet(name = "PersonnageCtrl", urlPatterns = {"/character"})
 public class PersonnageCtrl extends HttpServlet {
 
+    /**
+     * Nombre de personnages par page de la liste
+     */
+    private static final int TAILLE_PAGE = 50;
+
     /**
      * Requetes GET
      *
@@ -177,10 +182,28 @@ public class PersonnageCtrl extends HttpServlet {
                     request.setAttribute("persoKiller", persoKiller);
                     break;
 
-                // Par défaut on affiche la liste des personnages
+                // Par défaut on affiche la liste des personnages,
+                // par pages repérées par le dernier personnage affiché
                 case "list":
                 default:
-                    persos = persoDAO.getPersonnages();
+                    Personnage apres = null;
+                    String apresNom = request.getParameter("apresNom");
+                    
+                    if (apresNom != null) {
+                        apres = new Personnage(Integer.parseInt(
+                                request.getParameter("apresId")), apresNom);
+                    }
+                    
+                    List<Personnage> tranche = persoDAO.getPersonnages(apres,
+                                                        TAILLE_PAGE + 1);
+                    
+                    if (tranche.size() > TAILLE_PAGE) {
+                        tranche = tranche.subList(0, TAILLE_PAGE);
+                        request.setAttribute("suivant", tranche.get(TAILLE_PAGE - 1));
+                    }
+                    
+                    request.setAttribute("pagine", apres != null);
+                    persos = tranche;
                     titre = "Liste des personnages";
                     break;
                 }
@@ -432,6 +455,7 @@ public class PersonnageCtrl extends HttpServlet {
 
             Personnage perso = new Personnage(idPerso);
             perso.setProfession(request.getParameter("newWork"));
+            perso.setVersion(Integer.parseInt(request.getParameter("version")));
 
             // Requete SQL
             PersonnageDAO.Get().modifierPersonnage(perso, user.getId());
@@ -0,0 +1,197 @@
+package controleur;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Réponse dont l'envoi est différé jusqu'à la fin de la transaction de
+ * requete (cf. TransactionFilter) : le corps, les redirections et les
+ * erreurs sont retenus, puis transmis par envoyer après le commit, ou
+ * abandonnés si celui-ci échoue.
+ *
+ * Les en-tetes et le statut sont transmis directement à la réponse
+ * d'origine, qui n'est pas validée avant envoyer.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+final class ReponseDifferee extends HttpServletResponseWrapper {
+
+    private final ByteArrayOutputStream corps = new ByteArrayOutputStream();
+    private ServletOutputStream flux;
+    private PrintWriter writer;
+
+    /**
+     * Redirection retenue (sendRedirect), ou null
+     */
+    private String redirection;
+
+    /**
+     * Erreur retenue (sendError), 0 si aucune
+     */
+    private int erreur;
+    private String message;
+
+    ReponseDifferee(HttpServletResponse response) {
+        super(response);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() déjà appelé");
+        }
+
+        if (flux == null) {
+            flux = new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    corps.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    corps.write(b, off, len);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        return flux;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (flux != null) {
+            throw new IllegalStateException("getOutputStream() déjà appelé");
+        }
+
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(corps,
+                    getCharacterEncoding()));
+        }
+
+        return writer;
+    }
+
+    @Override
+    public void sendRedirect(String location) {
+        verifierOuverte();
+        redirection = location;
+    }
+
+    @Override
+    public void sendError(int sc) {
+        sendError(sc, null);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) {
+        verifierOuverte();
+        erreur = sc;
+        message = msg;
+    }
+
+    private void verifierOuverte() {
+        if (isCommitted()) {
+            throw new IllegalStateException("Réponse déjà terminée");
+        }
+    }
+
+    /**
+     * Une réponse redirigée ou en erreur est terminée, comme celle
+     * d'origine le serait.
+     */
+    @Override
+    public boolean isCommitted() {
+        return redirection != null || erreur != 0;
+    }
+
+    /**
+     * Le corps est retenu en entier : les vidages sont sans effet.
+     */
+    @Override
+    public void flushBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+    }
+
+    /**
+     * La longueur est celle du corps retenu, fixée à l'envoi.
+     */
+    @Override
+    public void setContentLength(int len) {
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+    }
+
+    @Override
+    public void resetBuffer() {
+        verifierOuverte();
+
+        if (writer != null) {
+            writer.flush();
+        }
+
+        corps.reset();
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        super.reset();
+        flux = null;
+        writer = null;
+    }
+
+    /**
+     * Transmet à la réponse d'origine ce qui a été retenu.
+     *
+     * @throws IOException
+     */
+    void envoyer() throws IOException {
+        HttpServletResponse origine = (HttpServletResponse) getResponse();
+
+        if (redirection != null) {
+            origine.sendRedirect(redirection);
+
+        } else if (erreur != 0) {
+            if (message == null) {
+                origine.sendError(erreur);
+            } else {
+                origine.sendError(erreur, message);
+            }
+
+        } else {
+            if (writer != null) {
+                writer.flush();
+            }
+
+            if (corps.size() > 0) {
+                origine.setContentLength(corps.size());
+                corps.writeTo(origine.getOutputStream());
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package controleur;
+
+import dao.Sonde;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Filtre de la sonde JDBC (cf. dao.Sonde, paramètre rpg.sonde) : observe
+ * chaque requete et ajoute ses compteurs à la réponse dans l'en-tête
+ * Server-Timing (affiché par les outils de développement des navigateurs).
+ *
+ * L'en-tête est posé à la première écriture de la réponse (avant son
+ * envoi) : les accès à la base ultérieurs, comme le commit de fin de
+ * requete, n'y figurent pas. Il n'est posé que si rpg.sonde est vrai :
+ * la sonde installée pour le seul journal des requetes lentes
+ * (rpg.lentes.fichier) n'expose rien aux clients.
+ *
+ * Déclaré dans web.xml après ChronoFilter et avant TransactionFilter :
+ * le commit de fin de requete est compté dans le relevé de la requete.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public class SondeFilter implements Filter {
+
+    private static final String SERVER_TIMING = "Server-Timing";
+
+    /**
+     * true si l'en-tête Server-Timing est posé
+     */
+    private boolean entete;
+
+    @Override
+    public void init(FilterConfig config) {
+        entete = Boolean.parseBoolean(
+                config.getServletContext().getInitParameter("rpg.sonde"));
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response,
+            FilterChain chain) throws IOException, ServletException {
+        if (!Sonde.isActive()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        HttpServletRequest req = (HttpServletRequest) request;
+        String query = req.getQueryString();
+
+        Sonde.Debut(req.getMethod() + " " + req.getRequestURI()
+                    + (query == null ? "" : "?" + query));
+
+        try {
+            chain.doFilter(request, entete
+                    ? new Reponse((HttpServletResponse) response) : response);
+
+        } finally {
+            Sonde.Fin();
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    /**
+     * Réponse posant l'en-tête Server-Timing avant d'être envoyée
+     */
+    private static final class Reponse extends HttpServletResponseWrapper {
+        private boolean posee;
+        private ServletOutputStream flux;
+        private PrintWriter writer;
+
+        Reponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        void poser() {
+            Sonde.Releve releve = Sonde.getReleve();
+
+            if (!posee && releve != null && !isCommitted()) {
+                posee = true;
+                addHeader(SERVER_TIMING, releve.getServerTiming());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (flux == null) {
+                final ServletOutputStream out = super.getOutputStream();
+
+                flux = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        poser();
+                        out.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        poser();
+                        out.write(b, off, len);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        poser();
+                        out.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        poser();
+                        out.close();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return out.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener listener) {
+                        out.setWriteListener(listener);
+                    }
+                };
+            }
+
+            return flux;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                final PrintWriter out = super.getWriter();
+
+                writer = new PrintWriter(new Writer() {
+                    @Override
+                    public void write(char[] cbuf, int off, int len) {
+                        poser();
+                        out.write(cbuf, off, len);
+                    }
+
+                    @Override
+                    public void flush() {
+                        poser();
+                        out.flush();
+                    }
+
+                    @Override
+                    public void close() {
+                        poser();
+                        out.close();
+                    }
+                });
+            }
+
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            poser();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            poser();
+            super.sendRedirect(location);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            poser();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            poser();
+            super.sendError(sc);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package controleur;
+
+import dao.DroitsDAO;
+import dao.JournalLent;
+import dao.Metriques;
+import dao.PersonnageDAO;
+import dao.PooledDataSource;
+import dao.Reprise;
+import dao.Sonde;
+import dao.StatementCache;
+import java.io.*;
+import javax.servlet.*;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.*;
+
+/**
+ * Contrôleur des statistiques d'accès à la base (texte brut)
+ * 
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+@WebServlet(name = "StatsCtrl", urlPatterns = {"/stats"})
+public class StatsCtrl extends HttpServlet {
+
+    /**
+     * Requetes GET
+     *
+     * @param request
+     * @param response
+     * @throws java.io.IOException
+     * @throws javax.servlet.ServletException
+     */
+    @Override
+    public void doGet(HttpServletRequest request,
+            HttpServletResponse response)
+            throws IOException, ServletException {
+
+        // Force le login
+        if (Main.notLogged(request, response)) {
+            return;
+        }
+
+        response.setContentType("text/plain;charset=UTF-8");
+        PrintWriter out = response.getWriter();
+        PooledDataSource pool = PooledDataSource.Get();
+
+        if (pool != null) {
+            out.print(pool.getStatistiques());
+        } else {
+            out.println("pool.actif 0");
+        }
+
+        out.println("statements.hits " + StatementCache.getHits());
+        out.println("statements.misses " + StatementCache.getMisses());
+        out.println("statements.evictions " + StatementCache.getEvictions());
+        out.print(PersonnageDAO.Get().getCache().getStatistiques("personnages"));
+        out.print(DroitsDAO.Get().getCache().getStatistiques("droits"));
+        out.print(Reprise.getStatistiques());
+        out.print(Metriques.getStatistiques());
+
+        JournalLent journal = Sonde.getJournal();
+
+        if (journal != null) {
+            out.print(journal.getStatistiques());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package controleur;
+
+import dao.DAOException;
+import dao.RequestTransaction;
+import java.io.IOException;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+/**
+ * Filtre ouvrant une transaction par requete : tous les DAO appelés
+ * pendant la requete partagent la même connexion, validée en une fois
+ * à la fin du traitement (ou annulée en cas d'erreur).
+ *
+ * La réponse (page rendue ou redirection) est retenue jusqu'au commit
+ * (cf. ReponseDifferee) : si celui-ci échoue, le client reçoit la page
+ * d'erreur bdd, et non une page annonçant une écriture perdue.
+ *
+ * La date du dernier commit d'écritures est conservée en session, afin
+ * que les requetes suivantes de la session lisent leurs propres écritures
+ * (cf. AbstractDAO.getConnectionLecture).
+ *
+ * Dernier filtre de la chaine (web.xml) : la transaction n'encadre que
+ * le contrôleur et ses JSP.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public class TransactionFilter implements Filter {
+
+    /**
+     * Attribut de session : date (ms) du dernier commit d'écritures
+     */
+    private static final String DERNIERE_ECRITURE = "rpg.derniereEcriture";
+
+    @Override
+    public void init(FilterConfig config) {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response,
+            FilterChain chain) throws IOException, ServletException {
+        HttpSession session = ((HttpServletRequest) request).getSession(false);
+        Long derniere = session == null ? null
+                : (Long) session.getAttribute(DERNIERE_ECRITURE);
+
+        RequestTransaction tx = RequestTransaction.Begin(
+                derniere == null ? 0 : derniere);
+        ReponseDifferee differee
+                = new ReponseDifferee((HttpServletResponse) response);
+        boolean success = false;
+
+        try {
+            chain.doFilter(request, differee);
+            success = true;
+
+        } finally {
+            if (!success) {
+                try {
+                    tx.end(false);
+
+                } catch (DAOException e) {
+                    // Ne pas masquer l'exception d'origine
+                }
+            }
+        }
+
+        try {
+            if (tx.end(true)) {
+                session = ((HttpServletRequest) request).getSession(false);
+
+                if (session != null) {
+                    session.setAttribute(DERNIERE_ECRITURE,
+                            System.currentTimeMillis());
+                }
+            }
+
+        } catch (DAOException e) {
+            // Rien n'est encore envoyé : la réponse retenue est abandonnée
+            Main.dbError((HttpServletRequest) request,
+                    (HttpServletResponse) response, e);
+            return;
+        }
+
+        differee.envoyer();
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
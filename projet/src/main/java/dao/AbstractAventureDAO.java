@@ -22,8 +22,27 @@ public abstract class AbstractAventureDAO extends AbstractDAO {
     
     public abstract void creerPartie(Aventure a) throws DAOException;
     
-    public abstract Collection<Aventure> getAventures() throws DAOException;
-    
+    /**
+     * Récupère une page de la liste des aventures, classées par
+     * état (en cours d'abord), titre puis identifiant.
+     *
+     * @param apres  La dernière aventure de la page précédente
+     *               (titre, finie et id renseignés), null pour la première
+     * @param limite Le nombre maximal d'aventures
+     * @return Les aventures suivant apres
+     * @throws DAOException
+     */
+    public abstract List<Aventure> getAventures(Aventure apres, int limite)
+            throws DAOException;
+    
+    /**
+     * Retourne les aventures terminées auxquelles a participé
+     * un personnage, réduites à leur identifiant et leur titre.
+     *
+     * @param persoID Le personnage
+     * @return Les aventures terminées, classées par titre
+     * @throws DAOException
+     */
     public abstract List<Aventure> getAventureAssociee(int persoID) throws DAOException;
  
     public abstract Aventure getAventure(int id) throws DAOException;
@@ -33,4 +33,17 @@ public abstract  class AbstractBiographieDAO extends AbstractDAO {
      */
     public abstract Biographie getBiographie(int id) throws DAOException;
 
+    /**
+     * Retourne une biographie avec ses épisodes et leurs paragraphes,
+     * chargés en une seule requete.
+     *
+     * @param id        L'identifiant de la biographie
+     * @param enEdition true pour les épisodes en édition,
+     *                  false pour les épisodes validés
+     * @return La biographie complète
+     * @throws DAOException
+     */
+    public abstract Biographie getBiographieComplete(int id, boolean enEdition)
+            throws DAOException;
+
 }
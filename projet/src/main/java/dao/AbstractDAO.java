@@ -1,79 +1,229 @@
 package dao;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import javax.sql.DataSource;
 
 /**
  * Classe de DAO générique
- * 
+ *
+ * Les singletons de DAO étant partagés par tous les threads, aucune
+ * connexion n'est conservée dans l'instance : si une transaction de
+ * requete est ouverte (cf. RequestTransaction), sa connexion est
+ * réutilisée, sinon chaque méthode ouvre et ferme la sienne.
+ *
+ * Si une réplique en lecture seule est configurée (cf. SetReplique),
+ * les lectures qui ne conditionnent aucune écriture ni aucun cache
+ * lui sont adressées par getConnectionLecture.
+ *
+ * Chaque accès à la base est mesuré (cf. Metriques) : les méthodes
+ * encadrent leur transaction par mesurer, enTransaction le fait pour
+ * les unités de travail.
+ *
  * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
  */
 public abstract class AbstractDAO {
-    
+
     protected final DataSource dataSource;
-    protected Connection curLink;
+
+    /**
+     * Préfixe des métriques du DAO (nom de sa classe)
+     */
+    private final String prefixeMetriques;
+
+    /**
+     * La réplique en lecture seule, null si absente
+     */
+    private static volatile DataSource replique;
+
+    /**
+     * Le retard maximal (ms) de la réplique sur la base principale
+     */
+    private static volatile long delaiReplique;
 
     protected AbstractDAO(DataSource ds) {
         this.dataSource = ds;
+        this.prefixeMetriques = getClass().getSimpleName() + ".";
+    }
+
+    /**
+     * Débute la mesure d'un appel de méthode (cf. Metriques.Mesure).
+     *
+     * @param methode Le nom de la méthode
+     * @return La mesure, à terminer dans un finally
+     */
+    protected final Metriques.Mesure mesurer(String methode) {
+        return Metriques.Debut(prefixeMetriques + methode);
+    }
+
+    /**
+     * Configure la réplique en lecture seule partagée par tous les DAO.
+     *
+     * @param ds    Le datasource de la réplique, null pour la désactiver
+     * @param delai Le retard maximal (ms) de la réplique : une session
+     *              ayant écrit depuis moins longtemps lit sur la base principale
+     */
+    public static void SetReplique(DataSource ds, long delai) {
+        delaiReplique = delai;
+        replique = ds;
     }
 
     /**
      * Méthode permettant de récupérer la connection sans autocommit.
-     * 
+     *
      * @return La connection
      * @throws SQLException
      */
     protected Connection getConnection() throws SQLException {
-        curLink = dataSource.getConnection();
-        curLink.setAutoCommit(false);
+        RequestTransaction tx = RequestTransaction.Get();
+
+        if (tx != null) {
+            return tx.getConnection(dataSource, false);
+        }
 
-        return curLink;
+        Connection link = dataSource.getConnection();
+        link.setAutoCommit(false);
+        isoler(link);
+
+        return link;
     }
 
     /**
-     * Méthode permettant d'initialiser une transaction avec SERIALIZABLE.
-     * 
+     * Méthode permettant de récupérer une connexion pour une lecture
+     * pouvant être servie par la réplique : à défaut de réplique, ou si
+     * la session a écrit récemment (lecture de ses propres écritures),
+     * c'est la connexion de getConnection.
+     *
+     * @return La connection
+     * @throws SQLException
+     */
+    protected Connection getConnectionLecture() throws SQLException {
+        DataSource ro = replique;
+        RequestTransaction tx = RequestTransaction.Get();
+
+        if (ro == null || (tx != null && !tx.peutLireReplique(delaiReplique))) {
+            return getConnection();
+        }
+
+        if (tx != null) {
+            return tx.getLecture(ro);
+        }
+
+        Connection link = ro.getConnection();
+        link.setAutoCommit(false);
+        link.setReadOnly(true);
+        isoler(link);
+
+        return link;
+    }
+
+    /**
+     * Méthode permettant de récupérer une connexion ne voyant que des
+     * données validées, pour alimenter un cache partagé : celle de la
+     * transaction de requete tant qu'elle n'a pas écrit, sinon une
+     * connexion dédiée, hors de cette transaction.
+     *
+     * @return La connection
+     * @throws SQLException
+     */
+    protected Connection getConnectionValidee() throws SQLException {
+        if (!hasPendingWrites()) {
+            return getConnection();
+        }
+
+        Connection link = dataSource.getConnection();
+        link.setAutoCommit(false);
+        isoler(link);
+
+        return link;
+    }
+
+    /**
+     * Méthode permettant d'initialiser une transaction d'écriture.
+     *
+     * Les transactions restent en READ COMMITTED : les conflits entre
+     * écritures concurrentes sont détectés par les colonnes version
+     * (cf. verifierVersion) plutôt que par une isolation SERIALIZABLE.
+     *
      * @return La connection
      * @throws SQLException
      */
     public Connection initConnection() throws SQLException {
-        getConnection();
-        curLink.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
-        
-        return curLink;
+        RequestTransaction tx = RequestTransaction.Get();
+
+        if (tx != null) {
+            return tx.getConnection(dataSource, true);
+        }
+
+        return getConnection();
     }
 
     /**
-     * Fermeture d'une connexion
+     * Place une connexion en READ COMMITTED si elle n'y est pas déjà
+     * (connexion rendue au pool dans un autre niveau d'isolation).
      *
-     * @param link La connexion à fermer
-     * @throws DAOException si problème lors de la fermeture de la connexion
+     * @param link La connexion
+     * @throws SQLException
      */
-    protected void closeConnection(Connection link) throws DAOException {
-        if (link != null) {
-            try {
-                link.close();
-                
-            } catch (SQLException sqle) {
-                throw new DAOException("Erreur à la "
-                        + "fermeture de connexion", sqle);
-            }
+    static void isoler(Connection link) throws SQLException {
+        if (link.getTransactionIsolation() != Connection.TRANSACTION_READ_COMMITTED) {
+            link.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        }
+    }
+
+    /**
+     * Vérifie qu'une mise à jour conditionnée par les droits
+     * de l'utilisateur a bien modifié une ligne.
+     *
+     * @param lignes Le nombre de lignes modifiées
+     * @throws DAOException si l'utilisateur n'en avait pas le droit
+     */
+    protected static void verifierDroit(int lignes) throws DAOException {
+        if (lignes == 0) {
+            throw new DAOException("Accès refusé");
+        }
+    }
+
+    /**
+     * Vérifie qu'une mise à jour conditionnée par la version
+     * d'une ligne l'a bien modifiée.
+     *
+     * @param lignes Le nombre de lignes modifiées
+     * @throws ConflitException si la ligne a été modifiée entre temps
+     */
+    protected static void verifierVersion(int lignes) throws ConflitException {
+        if (lignes == 0) {
+            throw new ConflitException("Modification concurrente : "
+                    + "les données ont changé depuis leur lecture");
         }
     }
 
     /**
-     * Fermeture de la connexion
+     * Indique si la connexion appartient à la transaction de requete.
      *
+     * @param link La connexion
+     * @return true si elle est partagée
+     */
+    private static boolean isShared(Connection link) {
+        RequestTransaction tx = RequestTransaction.Get();
+
+        return tx != null && tx.owns(link);
+    }
+
+    /**
+     * Fermeture d'une connexion
+     * (sans effet sur la connexion partagée de la requete)
+     *
+     * @param link La connexion à fermer
      * @throws DAOException si problème lors de la fermeture de la connexion
      */
-    protected void closeConnection() throws DAOException {
-        if (curLink != null) {
+    protected void closeConnection(Connection link) throws DAOException {
+        if (link != null && !isShared(link)) {
             try {
-                curLink.close();
-                curLink = null;
-                
+                link.close();
+
             } catch (SQLException sqle) {
                 throw new DAOException("Erreur à la "
                         + "fermeture de connexion", sqle);
@@ -83,6 +233,7 @@ public abstract class AbstractDAO {
 
     /**
      * Annulation de transaction
+     * (la transaction de requete est alors entièrement annulée)
      *
      * @param link La connexion
      * @throws DAOException si problème lors du rollback
@@ -90,54 +241,216 @@ public abstract class AbstractDAO {
     protected void rollback(Connection link) throws DAOException {
         if (link != null) {
             try {
-                link.rollback();
-                
+                if (isShared(link)) {
+                    RequestTransaction.Get().rollback();
+                } else {
+                    link.rollback();
+                }
+
             } catch (SQLException sqle) {
                 throw new DAOException("Erreur de rollback", sqle);
             }
         }
     }
-    
+
     /**
-     * Annulation de transaction
+     * Unité de travail d'écriture, exécutée par enTransaction.
+     * Elle peut être rejouée : elle ne doit rien modifier hors de la base
+     * avant termine.
      *
-     * @throws DAOException si problème lors du rollback
+     * @param <T> Le type de résultat
      */
-    protected void rollback() throws DAOException {
-        if (curLink != null) {
-            try {
-                curLink.rollback();
-                
-            } catch (SQLException sqle) {
-                throw new DAOException("Erreur de rollback", sqle);
+    protected static abstract class Travail<T> {
+
+        /**
+         * Effectue le travail sur la connexion, sans commit.
+         *
+         * @param link La connexion
+         * @return Le résultat du travail
+         * @throws SQLException
+         * @throws DAOException
+         */
+        protected abstract T executer(Connection link)
+                throws SQLException, DAOException;
+
+        /**
+         * Appelée une seule fois, après le commit du travail
+         * (invalidation de cache par exemple).
+         *
+         * @param link La connexion
+         */
+        protected void termine(Connection link) {
+        }
+    }
+
+    /**
+     * Exécute une unité de travail dans une transaction d'écriture,
+     * en la rejouant (cf. Reprise) si elle échoue sur un interblocage.
+     *
+     * Une tentative n'est rejouée qu'après l'annulation complète de la
+     * transaction, donc sans verrou détenu pendant l'attente : dans la
+     * transaction de requete, seule la première unité d'écriture est
+     * rejouée (ses lectures précédentes, en READ COMMITTED, ne retiennent
+     * rien) ; une unité suivant d'autres écritures de la requete échoue
+     * sans reprise. Toute erreur définitive annule toute la transaction,
+     * comme rollback.
+     *
+     * @param <T>     Le type de résultat
+     * @param nom     Le nom de l'unité (métriques)
+     * @param travail Le travail
+     * @return Le résultat du travail
+     * @throws DAOException
+     */
+    protected <T> T enTransaction(String nom, Travail<T> travail)
+            throws DAOException {
+        Connection link = null;
+        Metriques.Mesure mesure = mesurer(nom);
+        Reprise.debut();
+
+        try {
+            boolean reprenable = !hasPendingWrites();
+            link = initConnection();
+
+            for (int tentative = 1;; tentative++) {
+                try {
+                    T resultat = travail.executer(link);
+
+                    commit(link);
+                    travail.termine(link);
+                    mesure.reussie(0);
+
+                    return resultat;
+
+                } catch (SQLException e) {
+                    if (!reprenable || !Reprise.estTransitoire(e)) {
+                        throw e;
+                    }
+
+                    if (tentative >= Reprise.TENTATIVES_MAX) {
+                        Reprise.abandon();
+                        throw e;
+                    }
+
+                    recommencer(link);
+                    Reprise.attendre(nom, tentative);
+                }
             }
+
+        } catch (SQLException e) {
+            rollback(link);
+            throw new DAOException(e.getMessage(), e);
+
+        } catch (DAOException | RuntimeException e) {
+            // Refus d'accès ou conflit de version
+            rollback(link);
+            throw e;
+
+        } finally {
+            closeConnection(link);
+            mesure.terminer();
         }
     }
-    
+
+    /**
+     * Annule toute la transaction avant une nouvelle tentative, sans
+     * interdire le commit de la transaction de requete.
+     *
+     * @param link La connexion
+     * @throws SQLException
+     */
+    private static void recommencer(Connection link) throws SQLException {
+        if (isShared(link)) {
+            RequestTransaction.Get().recommencer();
+        } else {
+            link.rollback();
+        }
+    }
+
+    /**
+     * Prépare une requete du catalogue, en la reprenant du cache
+     * de la connexion si elle y a déjà été préparée.
+     * La requete doit être rendue par CloseStatement.
+     *
+     * @param link    La connexion
+     * @param requete La requete
+     * @return La requete préparée
+     * @throws SQLException
+     */
+    protected static PreparedStatement prepare(Connection link,
+            Requete requete) throws SQLException {
+        return StatementCache.prepare(link, requete.name(), requete.getSql(),
+                                      requete.getClesGenerees());
+    }
+
+    /**
+     * Prépare une requete du catalogue comportant une liste IN.
+     *
+     * @param link    La connexion
+     * @param requete La requete
+     * @param n       Le nombre de paramètres de la liste
+     * @return La requete préparée
+     * @throws SQLException
+     */
+    protected static PreparedStatement prepare(Connection link,
+            Requete requete, int n) throws SQLException {
+        return StatementCache.prepare(link, requete.name() + "#" + n,
+                                      requete.getSql(n), null);
+    }
+
     /**
      * Permet de fermer une requete facilement.
-     * 
+     * Une requete du cache est simplement rendue, pas fermée.
+     *
      * @param statement La requete
      */
     public static void CloseStatement(Statement statement) {
-        if (statement != null) {
+        if (statement != null && !StatementCache.release(statement)) {
             try {
                 statement.close();
             } catch (SQLException ex) {}
         }
     }
-    
+
     /**
-     * Effectue un commit sur la connection courante.
+     * Exécute une action idempotente (invalidation de cache) à appeler
+     * après commit(link) : elle est exécutée immédiatement et, pour la
+     * connexion partagée, de nouveau une fois la requete validée.
      *
+     * @param link   La connexion
+     * @param action L'action
+     */
+    protected static void apresCommit(Connection link, Runnable action) {
+        if (isShared(link)) {
+            RequestTransaction.Get().apresCommit(action);
+        }
+
+        action.run();
+    }
+
+    /**
+     * Indique si la transaction de requete en cours a des écritures
+     * non validées, invisibles des autres requetes.
+     *
+     * @return true si un cache partagé ne doit pas être alimenté
+     */
+    protected static boolean hasPendingWrites() {
+        RequestTransaction tx = RequestTransaction.Get();
+
+        return tx != null && tx.hasWrites();
+    }
+
+    /**
+     * Effectue un commit sur la connection donnée.
+     * Le commit de la connexion partagée est différé à la fin de la requete.
+     *
+     * @param link La connexion
      * @throws DAOException
      */
-    public void commit() throws DAOException {
-        if (curLink != null) {
+    protected void commit(Connection link) throws DAOException {
+        if (link != null && !isShared(link)) {
             try {
-                curLink.commit();
-                curLink = null;
-                
+                link.commit();
+
             } catch (SQLException sqle) {
                 throw new DAOException("Erreur de commit", sqle);
             }
@@ -0,0 +1,26 @@
+package dao;
+
+import javax.sql.DataSource;
+
+/**
+ * Classe abstraite du DAO de vérification des droits sur les personnages
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public abstract class AbstractDroitsDAO extends AbstractDAO {
+
+    public AbstractDroitsDAO(DataSource ds) {
+        super(ds);
+    }
+
+    /**
+     * Indique si un joueur est propriétaire ou meneur d'un personnage.
+     *
+     * @param idPerso  Le personnage
+     * @param idJoueur Le joueur
+     * @return true si le joueur a des droits sur le personnage
+     * @throws DAOException
+     */
+    public abstract boolean isOwnerOrMj(int idPerso, int idJoueur)
+            throws DAOException;
+}
@@ -24,5 +24,14 @@ public abstract class AbstractParagrapheDAO extends AbstractDAO {
 
     public abstract void ajouteParagraphe(boolean secret, String texte, int episode) throws DAOException;
 
-    public abstract void updateParagraphe(int paragid, String texte) throws DAOException;
+    /**
+     * Modifie le texte d'un paragraphe, s'il n'a pas changé depuis sa lecture.
+     *
+     * @param paragid Le paragraphe
+     * @param texte   Le nouveau texte
+     * @param version La version lue avec le paragraphe
+     * @throws DAOException (ConflitException si le paragraphe a changé)
+     */
+    public abstract void updateParagraphe(int paragid, String texte, int version)
+            throws DAOException;
 }
@@ -2,6 +2,7 @@ package dao;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import javax.sql.DataSource;
 import modele.Aventure;
 import modele.Joueur;
@@ -21,13 +22,17 @@ public abstract class AbstractPersonnageDAO extends AbstractDAO {
 
 
     /**
-     * Récupère la liste de tous les personnages classés par nom
+     * Récupère une page de la liste des personnages classés par nom
+     * (puis par identifiant).
      *
-     * @return La liste de tous les personnages
+     * @param apres  Le dernier personnage de la page précédente
+     *               (nom et id renseignés), null pour la première
+     * @param limite Le nombre maximal de personnages
+     * @return Les personnages suivant apres
      * @throws DAOException
      */
-    public abstract Collection<Personnage> getPersonnages()
-            throws DAOException;
+    public abstract List<Personnage> getPersonnages(Personnage apres,
+            int limite) throws DAOException;
 
     /**
      * Récupère la liste de tous les personnages
@@ -60,6 +65,17 @@ public abstract class AbstractPersonnageDAO extends AbstractDAO {
     
     public abstract Personnage getPersonnage(int personnageID)
             throws DAOException;
+
+    /**
+     * Charge en une seule requete (par tranche de 1000) les personnages
+     * demandés, dans l'ordre des identifiants fournis.
+     *
+     * @param ids Les identifiants des personnages
+     * @return La liste des personnages trouvés
+     * @throws DAOException
+     */
+    public abstract List<Personnage> getPersonnages(Collection<Integer> ids)
+            throws DAOException;
     
     public abstract void creer(Personnage p, String bio)
             throws DAOException;
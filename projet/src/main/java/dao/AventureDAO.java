@@ -25,6 +25,16 @@ public final class AventureDAO extends AbstractAventureDAO {
      * Le singleton
      */
     static private AventureDAO instance;
+
+    /**
+     * La liste des meneurs de l'annuaire des joueurs dépend des aventures
+     */
+    private static final Runnable INVALIDER_MENEURS = new Runnable() {
+        @Override
+        public void run() {
+            JoueurDAO.Get().invalider();
+        }
+    };
     
     /**
      * Constructeur privé du singleton
@@ -60,13 +70,12 @@ public final class AventureDAO extends AbstractAventureDAO {
     public void creerPartie(Aventure a) throws DAOException {
         Connection link = null;
         PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("creerPartie");
 
         try {
             link = initConnection();
             
-            statement = link.prepareStatement("INSERT INTO Aventure "
-                    + "(adate, lieu, situation, titre, mj_id, univers_id) "
-                    + " VALUES (?, ?, ?, ?, ?, ?)");
+            statement = prepare(link, Requete.AVENTURE_INSERT);
 
             statement.setString(1, a.getDate());
             statement.setString(2, a.getLieu());
@@ -76,29 +85,48 @@ public final class AventureDAO extends AbstractAventureDAO {
             statement.setInt(6, a.getUnivers().getId());
             statement.executeUpdate();
             
-            link.commit();
+            commit(link);
+            apresCommit(link, INVALIDER_MENEURS);
+            mesure.reussie(0);
 
         } catch (SQLException e) {
-            rollback();
+            rollback(link);
             throw new DAOException("Erreur à la création d'une aventure "
                     +  e.getMessage(), e);
 
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
         }
     }
 
     @Override
-    public ArrayList<Aventure> getAventures() throws DAOException {
+    public List<Aventure> getAventures(Aventure apres, int limite)
+            throws DAOException {
         ArrayList<Aventure> avs = new ArrayList<>();
         Connection link = null;
         PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("getAventures");
 
         try {
-            link = getConnection();
-            statement = link.prepareStatement("SELECT id, titre, finie "
-                    + "FROM Aventure ORDER BY finie, titre, id");
+            link = getConnectionLecture();
+            
+            if (apres == null) {
+                statement = prepare(link, Requete.AVENTURES_PREMIERES);
+                statement.setInt(1, limite);
+                
+            } else {
+                int finie = apres.isFinie() ? 1 : 0;
+                
+                statement = prepare(link, Requete.AVENTURES_SUIVANTES);
+                statement.setInt(1, finie);
+                statement.setInt(2, finie);
+                statement.setString(3, apres.getTitre());
+                statement.setString(4, apres.getTitre());
+                statement.setInt(5, apres.getId());
+                statement.setInt(6, limite);
+            }
             
             ResultSet res = statement.executeQuery();
             Aventure av;
@@ -112,6 +140,8 @@ public final class AventureDAO extends AbstractAventureDAO {
                 avs.add(av);
             }
 
+            mesure.reussie(avs.size());
+
         } catch (Exception e) {
             throw new DAOException("Erreur d'accès à la liste des aventures "
                     +  e.getMessage(), e);
@@ -119,6 +149,7 @@ public final class AventureDAO extends AbstractAventureDAO {
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
         }
 
         return avs;
@@ -129,12 +160,11 @@ public final class AventureDAO extends AbstractAventureDAO {
         ArrayList<Aventure> avs = new ArrayList<>();
         Connection link = null;
         PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("getPartiesMenees");
 
         try {
-            link = getConnection();
-            statement = link.prepareStatement("SELECT a.id, titre, finie "
-                    + "FROM Aventure a JOIN Joueur j on a.mj_id = j.id "
-                    + "WHERE j.id = ? ORDER BY finie, titre");
+            link = getConnectionLecture();
+            statement = prepare(link, Requete.PARTIES_MENEES);
             
             statement.setInt(1, j.getId());
             ResultSet res = statement.executeQuery();
@@ -150,6 +180,8 @@ public final class AventureDAO extends AbstractAventureDAO {
                 avs.add(av);
             }
 
+            mesure.reussie(avs.size());
+
         } catch (Exception e) {
             throw new DAOException("Erreur d'accès à la liste des aventures "
                     + "menées " +  e.getMessage(), e);
@@ -157,33 +189,44 @@ public final class AventureDAO extends AbstractAventureDAO {
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
         }
 
         return avs;
     }
 
+    /**
+     * Retourne les aventures terminées auxquelles a participé
+     * un personnage, réduites à leur identifiant et leur titre.
+     *
+     * @param persoID Le personnage
+     * @return Les aventures terminées, classées par titre
+     * @throws DAOException
+     */
     @Override
     public List<Aventure> getAventureAssociee(int persoID) throws DAOException {
-        LinkedList<Integer> avt = null;
-        LinkedList<Aventure> a;
+        LinkedList<Aventure> a = new LinkedList<>();
         PreparedStatement ps = null;
         Connection c = null;
+        Metriques.Mesure mesure = mesurer("getAventureAssociee");
         
         try {
-            c = getConnection();
-            ps = c.prepareStatement("SELECT aventure_id "
-                    + "FROM Participe p LEFT JOIN Aventure a "
-                    + "on p.aventure_id = a.id WHERE personnage_id = ? "
-                    + "AND finie = 1");
+            c = getConnectionLecture();
+            ps = prepare(c, Requete.AVENTURES_ASSOCIEES);
 
             ps.setInt(1, persoID);
             ResultSet rs = ps.executeQuery();
+            Aventure av;
             
-            // On récupère tous les ids d'aventures
-            avt = new LinkedList<>();
             while (rs.next()) {
-                avt.add(rs.getInt("aventure_id"));
+                av = new Aventure(rs.getInt("id"));
+                av.setTitre(rs.getString("titre"));
+                av.setFinie(true);
+
+                a.add(av);
             }
+
+            mesure.reussie(a.size());
             
         } catch (Exception e) {
             throw new DAOException(e.getMessage(), e);
@@ -191,12 +234,7 @@ public final class AventureDAO extends AbstractAventureDAO {
         } finally {
             CloseStatement(ps);
             closeConnection(c);
-        }
-        
-        // On récupère toutes les aventures
-        a = new LinkedList<>();
-        for(int id : avt){
-            a.add(getAventure(id));
+            mesure.terminer();
         }
         
         return a;
@@ -208,14 +246,11 @@ public final class AventureDAO extends AbstractAventureDAO {
         Aventure aventure = null;
         Connection link = null;
         PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("getAventure");
 
         try {
-            link = getConnection();
-            statement = link.prepareStatement("SELECT a.id, aDate, events, "
-                    + "finie, lieu, situation, titre, mj_id, univers_id, "
-                    + "nom, j.pseudo as meneur FROM Aventure a "
-                    + "JOIN Univers u on a.univers_id = u.id "
-                    + "LEFT JOIN Joueur j on j.id = mj_id WHERE a.id = ?");
+            link = getConnectionLecture();
+            statement = prepare(link, Requete.AVENTURE);
             
             statement.setInt(1, id);
             ResultSet rs = statement.executeQuery();
@@ -230,6 +265,7 @@ public final class AventureDAO extends AbstractAventureDAO {
             aventure.setEvents(rs.getString("events"));
             aventure.setSituation(rs.getString("situation"));
             aventure.setFinie(rs.getBoolean("finie"));
+            aventure.setVersion(rs.getInt("version"));
             aventure.setMj(new Joueur(rs.getInt("mj_id"),
                                       rs.getString("meneur")));
             aventure.setUnivers(new Univers(rs.getInt("univers_id"),
@@ -239,8 +275,7 @@ public final class AventureDAO extends AbstractAventureDAO {
             
             
             // Liste des participants de l'aventure
-            statement = link.prepareStatement("SELECT aventure_id, "
-                    + "personnage_id FROM Participe WHERE aventure_id = ?");
+            statement = prepare(link, Requete.PARTICIPANTS);
             
             statement.setInt(1, id);
             rs = statement.executeQuery();
@@ -250,6 +285,8 @@ public final class AventureDAO extends AbstractAventureDAO {
                 listPersoId.add(rs.getInt("personnage_id"));
             }
 
+            mesure.reussie(1);
+
         } catch (Exception e) {
             throw new DAOException("Erreur d'accès à une partie "
                     + e.getMessage(), e);
@@ -257,15 +294,12 @@ public final class AventureDAO extends AbstractAventureDAO {
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
         }
 
-        // On récupère tous les participants
+        // On récupère tous les participants en une fois
         if (aventure != null) {
-            List<Personnage> listPerso = new ArrayList<>();
-            for (int idPerso : listPersoId) {
-                listPerso.add(PersonnageDAO.Get().getPersonnage(idPerso));
-            }
-            aventure.setPersonnages(listPerso);
+            aventure.setPersonnages(PersonnageDAO.Get().getPersonnages(listPersoId));
         }
         
         return aventure;
@@ -276,13 +310,11 @@ public final class AventureDAO extends AbstractAventureDAO {
         ArrayList<Aventure> avs = new ArrayList<>();
         Connection link = null;
         PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("getPartiesPersonnage");
 
         try {
-            link = getConnection();
-            statement = link.prepareStatement("SELECT a.id, titre, finie "
-                    + "FROM Aventure a JOIN Participe r "
-                    + "on a.id = r.aventure_id JOIN Personnage p "
-                    + "on p.id = r.personnage_id WHERE p.id = ? ORDER BY finie, titre");
+            link = getConnectionLecture();
+            statement = prepare(link, Requete.PARTIES_PERSONNAGE);
             
             statement.setInt(1, p.getId());
             ResultSet res = statement.executeQuery();
@@ -297,6 +329,8 @@ public final class AventureDAO extends AbstractAventureDAO {
                 avs.add(av);
             }
 
+            mesure.reussie(avs.size());
+
         } catch (Exception e) {
             throw new DAOException("Erreur d'accès à la liste des aventures "
                     + "d'un personnage " +  e.getMessage(), e);
@@ -304,6 +338,7 @@ public final class AventureDAO extends AbstractAventureDAO {
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
         }
 
         return avs;
@@ -314,14 +349,11 @@ public final class AventureDAO extends AbstractAventureDAO {
         ArrayList<Aventure> avs = new ArrayList<>();
         Connection link = null;
         PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("getPartiesJoueur");
 
         try {
-            link = getConnection();
-            statement = link.prepareStatement("SELECT a.id, titre, finie, "
-                    + "p.id as p_id, p.nom FROM Aventure a JOIN Participe r "
-                    + "on a.id = r.aventure_id JOIN Personnage p "
-                    + "on p.id = r.personnage_id JOIN Joueur j "
-                    + "on p.joueur_id = j.id WHERE j.id = ? ORDER BY finie, titre");
+            link = getConnectionLecture();
+            statement = prepare(link, Requete.PARTIES_JOUEUR);
             
             statement.setInt(1, j.getId());
             ResultSet res = statement.executeQuery();
@@ -342,6 +374,8 @@ public final class AventureDAO extends AbstractAventureDAO {
                 avs.add(av);
             }
 
+            mesure.reussie(avs.size());
+
         } catch (Exception e) {
             throw new DAOException("Erreur d'accès à la liste des aventures "
                     + "d'un personnage " +  e.getMessage(), e);
@@ -349,6 +383,7 @@ public final class AventureDAO extends AbstractAventureDAO {
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
         }
 
         return avs;
@@ -358,59 +393,61 @@ public final class AventureDAO extends AbstractAventureDAO {
     public void finishPartie(Aventure aventure, String events) throws DAOException {
         Connection link = null;
         PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("finishPartie");
 
         try {
             link = initConnection();
-            statement = link.prepareStatement("UPDATE Aventure "
-                    + "SET events = ?, finie=1 WHERE id = ?");
+            statement = prepare(link, Requete.AVENTURE_FIN);
             
             statement.setString(1, events);
             statement.setInt(2, aventure.getId());
-            statement.executeUpdate();
-            link.commit();
+            statement.setInt(3, aventure.getVersion());
+            verifierVersion(statement.executeUpdate());
+            commit(link);
+            mesure.reussie(0);
+
+        } catch (ConflitException e) {
+            rollback(link);
+            throw e;
 
         } catch (Exception e) {
-            rollback();
+            rollback(link);
             throw new DAOException("Erreur lors de la terminaison d'une partie "
                     +  e.getMessage(), e);
 
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
         }
     }
 
     @Override
-    public void deletePartie(Aventure aventure) throws DAOException {
-        Connection link = null;
-        PreparedStatement statement = null;
-
-        try {
-            link = initConnection();
-            statement = link.prepareStatement("DELETE FROM Participe "
-                    + "WHERE aventure_id = ?");
-            
-            statement.setInt(1, aventure.getId());
-            statement.executeUpdate();
-            
-            
-            statement.close();
-            statement = link.prepareStatement("DELETE FROM Aventure "
-                    + "WHERE id = ?");
-            statement.setInt(1, aventure.getId());
-            statement.executeUpdate();
-            commit();
-
-        } catch (Exception e) {
-            rollback();
-            throw new DAOException("Erreur lors de la suppression "
-                    + "d'une partie " + e.getMessage(), e);
-
-        } finally {
-            CloseStatement(statement);
-            closeConnection(link);
-        }
+    public void deletePartie(final Aventure aventure) throws DAOException {
+        enTransaction("deletePartie", new Travail<Void>() {
+            @Override
+            protected Void executer(Connection link) throws SQLException {
+                PreparedStatement statement = null;
+
+                try {
+                    // Les participations suivent (FK_Participe_Aventure
+                    // on delete cascade)
+                    statement = prepare(link, Requete.AVENTURE_DELETE);
+                    statement.setInt(1, aventure.getId());
+                    statement.executeUpdate();
+
+                } finally {
+                    CloseStatement(statement);
+                }
+
+                return null;
+            }
 
+            @Override
+            protected void termine(Connection link) {
+                apresCommit(link, INVALIDER_MENEURS);
+            }
+        });
     }
-    
+
 }
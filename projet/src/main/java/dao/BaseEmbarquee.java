@@ -0,0 +1,239 @@
+package dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Base embarquée (H2), pour faire tourner l'application sans serveur
+ * Oracle : tests de charge, profilage (activée par le paramètre
+ * rpg.embarquee du web.xml ou la propriété système du même nom).
+ *
+ * A la création, si la base ne contient pas encore le schéma, le script
+ * install_bd.sql est exécuté comme le ferait sqlplus : les commandes
+ * sqlplus (set) sont ignorées, ainsi que les échecs des drop initiaux.
+ * Chaque getConnection ouvre une connexion du pilote ; le pool
+ * (rpg.pool) peut être placé devant.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public final class BaseEmbarquee implements DataSource {
+
+    private static final Logger LOG = Logger.getLogger(BaseEmbarquee.class.getName());
+
+    /**
+     * Le script de création du schéma et des données, dans le classpath
+     */
+    private static final String SCRIPT = "/install_bd.sql";
+
+    /**
+     * Table témoin de l'installation du schéma
+     */
+    private static final String TABLE_TEMOIN = "AVENTURE";
+
+    private final String url;
+
+    private BaseEmbarquee(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Ouvre la base embarquée et y installe le schéma si besoin.
+     * Le dialecte des DAO est positionné en conséquence.
+     *
+     * @param url L'URL JDBC de la base (par exemple
+     *            jdbc:h2:mem:rpg;MODE=Oracle;DB_CLOSE_DELAY=-1)
+     * @return Le datasource de la base
+     * @throws DAOException si le pilote est absent ou l'installation échoue
+     */
+    public static BaseEmbarquee Create(String url) throws DAOException {
+        Dialecte dialecte = Dialecte.DepuisUrl(url);
+
+        try {
+            Class.forName(dialecte.getPilote());
+
+        } catch (ClassNotFoundException e) {
+            throw new DAOException("Pilote absent : " + dialecte.getPilote()
+                    + " (profil maven embarquee)", e);
+        }
+
+        BaseEmbarquee base = new BaseEmbarquee(url);
+        base.installer();
+        Dialecte.Set(dialecte);
+
+        return base;
+    }
+
+    /**
+     * Exécute le script d'installation si le schéma est absent.
+     *
+     * @throws DAOException
+     */
+    private void installer() throws DAOException {
+        Connection link = null;
+
+        try {
+            link = getConnection();
+
+            ResultSet tables = link.getMetaData().getTables(null, null,
+                    TABLE_TEMOIN, new String[] {"TABLE"});
+
+            if (tables.next()) {
+                LOG.log(Level.INFO, "Base embarquée {0} déjà installée", url);
+                return;
+            }
+
+            List<String> requetes = lireScript();
+            Statement statement = link.createStatement();
+
+            for (String sql : requetes) {
+                try {
+                    statement.execute(sql);
+
+                } catch (SQLException e) {
+                    if (!sql.regionMatches(true, 0, "drop ", 0, 5)) {
+                        throw e;
+                    }
+                }
+            }
+
+            statement.close();
+            LOG.log(Level.INFO, "Base embarquée {0} installée ({1} requetes)",
+                    new Object[] {url, requetes.size()});
+
+        } catch (SQLException | IOException e) {
+            throw new DAOException("Installation de la base embarquée : "
+                    + e.getMessage(), e);
+
+        } finally {
+            if (link != null) {
+                try {
+                    link.close();
+                } catch (SQLException e) {}
+            }
+        }
+    }
+
+    /**
+     * Découpe le script d'installation en requetes : les points-virgules
+     * et commentaires contenus dans une chaîne sont conservés, les
+     * commandes sqlplus sont ignorées.
+     *
+     * @return Les requetes, sans point-virgule final
+     * @throws IOException si le script est illisible
+     */
+    private static List<String> lireScript() throws IOException {
+        InputStream in = BaseEmbarquee.class.getResourceAsStream(SCRIPT);
+
+        if (in == null) {
+            throw new IOException("Script " + SCRIPT + " introuvable");
+        }
+
+        List<String> requetes = new ArrayList<>();
+        StringBuilder courante = new StringBuilder();
+        boolean chaine = false;
+        boolean commentaire = false;
+
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            int prec = -1;
+
+            for (int c = reader.read(); c != -1; prec = c, c = reader.read()) {
+                if (commentaire) {
+                    commentaire = c != '\n';
+                    continue;
+                }
+
+                // Un '' dans une chaîne ferme puis rouvre la chaîne
+                if (c == '\'') {
+                    chaine = !chaine;
+
+                } else if (!chaine && c == '-' && prec == '-') {
+                    courante.setLength(courante.length() - 1);
+                    commentaire = true;
+                    continue;
+
+                } else if (!chaine && c == ';') {
+                    ajouterRequete(requetes, courante.toString().trim());
+                    courante.setLength(0);
+                    continue;
+                }
+
+                courante.append((char) c);
+            }
+        }
+
+        ajouterRequete(requetes, courante.toString().trim());
+
+        return requetes;
+    }
+
+    private static void ajouterRequete(List<String> requetes, String sql) {
+        if (!sql.isEmpty() && !sql.regionMatches(true, 0, "set ", 0, 4)) {
+            requetes.add(sql);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return DriverManager.getConnection(url);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password)
+            throws SQLException {
+        return DriverManager.getConnection(url, username, password);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return DriverManager.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        DriverManager.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return LOG.getParent();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+
+        throw new SQLException("Pas d'enveloppe pour " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+}
@@ -6,6 +6,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import javax.sql.DataSource;
 import modele.Biographie;
+import modele.Episode;
 import modele.Personnage;
 
 /**
@@ -52,26 +53,29 @@ public final class BiographieDAO extends AbstractBiographieDAO {
 
     @Override
     public Biographie getBiographie(Personnage p) throws DAOException {
+        PreparedStatement ps = null;
         Connection c = null;
         Biographie b = null;
+        Metriques.Mesure mesure = mesurer("getBiographiePersonnage");
         
         try {
-            c = getConnection();
-            PreparedStatement ps = c.prepareStatement("select b.id, b.texte "
-                    + "from Biographie b, Personnage p "
-                    + "where b.id=p.biographie_id and p.id=?");
+            c = getConnectionLecture();
+            ps = prepare(c, Requete.BIOGRAPHIE_PERSONNAGE);
 
             ps.setInt(1, p.getId());
             ResultSet res = ps.executeQuery();
             
             res.next();
             b = new Biographie(res.getInt("id"), res.getString("texte"));
+            mesure.reussie(1);
             
         } catch (Exception e) {
             throw new DAOException("", e);
             
         } finally {
+            CloseStatement(ps);
             closeConnection(c);
+            mesure.terminer();
         }
         
         return b;
@@ -82,12 +86,11 @@ public final class BiographieDAO extends AbstractBiographieDAO {
         PreparedStatement statement = null;
         Connection link = null;
         Biographie bio = null;
+        Metriques.Mesure mesure = mesurer("getBiographie");
 
         try {
-            link = getConnection();
-            statement = link.prepareStatement("SELECT * "
-                    + "FROM Biographie b "
-                    + "where b.id = ?");
+            link = getConnectionLecture();
+            statement = prepare(link, Requete.BIOGRAPHIE);
 
             statement.setInt(1, id);
             ResultSet rs = statement.executeQuery();
@@ -98,6 +101,7 @@ public final class BiographieDAO extends AbstractBiographieDAO {
             }
 
             bio = new Biographie(rs.getInt("id"), rs.getString("texte"));
+            mesure.reussie(1);
 
         } catch (Exception e) {
             throw new DAOException(e.getMessage(), e);
@@ -105,6 +109,53 @@ public final class BiographieDAO extends AbstractBiographieDAO {
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
+        }
+
+        return bio;
+    }
+
+    @Override
+    public Biographie getBiographieComplete(int id, boolean enEdition)
+            throws DAOException {
+        PreparedStatement statement = null;
+        Connection link = null;
+        Biographie bio = null;
+        Metriques.Mesure mesure = mesurer("getBiographieComplete");
+
+        try {
+            link = getConnectionLecture();
+            statement = prepare(link, enEdition ? Requete.BIOGRAPHIE_EN_EDITION
+                                               : Requete.BIOGRAPHIE_COMPLETE);
+
+            statement.setInt(1, id);
+            ResultSet rs = statement.executeQuery();
+            Episode epi = null;
+
+            while (rs.next()) {
+                if (bio == null) {
+                    bio = new Biographie(rs.getInt("bid"),
+                                         rs.getString("btexte"));
+                }
+
+                epi = EpisodeDAO.LireLigne(rs, epi, !enEdition, bio,
+                                           bio.episodes);
+            }
+
+            if (bio == null) {
+                throw new Exception("Aucune biographie "
+                        + "correspondant à l'ID " + id);
+            }
+
+            mesure.reussie(1 + bio.episodes.size());
+
+        } catch (Exception e) {
+            throw new DAOException(e.getMessage(), e);
+
+        } finally {
+            CloseStatement(statement);
+            closeConnection(link);
+            mesure.terminer();
         }
 
         return bio;
@@ -0,0 +1,18 @@
+package dao;
+
+/**
+ * Exception levée lorsqu'une mise à jour porte sur une ligne modifiée
+ * par une autre transaction depuis sa lecture (colonne version).
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public class ConflitException extends DAOException {
+
+    public ConflitException(String message) {
+        super(message);
+    }
+
+    public ConflitException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
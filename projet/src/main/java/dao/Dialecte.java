@@ -0,0 +1,168 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+
+/**
+ * Dialectes SQL des bases supportées.
+ *
+ * Les requetes du catalogue (cf. Requete) sont écrites en SQL commun ;
+ * seules les constructions propres à une base (limitation du nombre de
+ * lignes d'une page) sont produites par le dialecte courant, détecté au
+ * démarrage (cf. Set).
+ *
+ * La pagination par clé (requetes *_SUIVANT*) compare la dernière clé
+ * lue à celles de la page suivante : tri et comparaisons doivent suivre
+ * le même ordre, celui des index de listes (cf. initialiser).
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public enum Dialecte {
+
+    ORACLE("Oracle", "jdbc:oracle:", "oracle.jdbc.OracleDriver") {
+        @Override
+        public String limiter(String sql) {
+            return "SELECT * FROM (" + sql + ") WHERE ROWNUM <= ?";
+        }
+
+        @Override
+        public void initialiser(Connection physique) throws SQLException {
+            // Sous NLS_LANGUAGE=FRENCH, ORDER BY suivrait NLS_SORT=FRENCH
+            // et les prédicats NLS_COMP=BINARY : des lignes seraient
+            // sautées ou répétées d'une page à l'autre
+            try (Statement s = physique.createStatement()) {
+                s.execute("ALTER SESSION SET NLS_SORT = BINARY NLS_COMP = BINARY");
+            }
+        }
+    },
+
+    H2("H2", "jdbc:h2:", "org.h2.Driver") {
+        @Override
+        public String limiter(String sql) {
+            return sql + " FETCH FIRST ? ROWS ONLY";
+        }
+
+        @Override
+        public void initialiser(Connection physique) {
+            // Tri et comparaisons suivent déjà la collation de la base
+        }
+    };
+
+    /**
+     * Le dialecte des DAO, Oracle par défaut
+     */
+    private static volatile Dialecte courant = ORACLE;
+
+    private final String produit;
+    private final String prefixeUrl;
+    private final String pilote;
+
+    private Dialecte(String produit, String prefixeUrl, String pilote) {
+        this.produit = produit;
+        this.prefixeUrl = prefixeUrl;
+        this.pilote = pilote;
+    }
+
+    /**
+     * Limite le nombre de lignes d'une requete triée.
+     * La limite est le dernier paramètre de la requete obtenue.
+     *
+     * @param sql La requete
+     * @return La requete limitée
+     */
+    public abstract String limiter(String sql);
+
+    /**
+     * Prépare une connexion physique aux requetes du catalogue,
+     * avant sa première requete (cf. StatementCache) : tri et
+     * comparaisons de chaînes y deviennent binaires.
+     *
+     * @param physique La connexion du pilote
+     * @throws SQLException
+     */
+    public abstract void initialiser(Connection physique) throws SQLException;
+
+    /**
+     * Getter de la classe du pilote JDBC
+     *
+     * @return Le nom de la classe
+     */
+    public String getPilote() {
+        return pilote;
+    }
+
+    /**
+     * Getter du dialecte des DAO
+     *
+     * @return Le dialecte
+     */
+    public static Dialecte Get() {
+        return courant;
+    }
+
+    /**
+     * Définit le dialecte des DAO, avant toute requete
+     * (les requetes préparées ne sont pas regénérées).
+     *
+     * @param dialecte Le dialecte
+     */
+    public static void Set(Dialecte dialecte) {
+        courant = dialecte;
+    }
+
+    /**
+     * Détermine le dialecte d'une base d'après son URL JDBC.
+     *
+     * @param url L'URL de connexion
+     * @return Le dialecte
+     * @throws DAOException si la base n'est pas supportée
+     */
+    public static Dialecte DepuisUrl(String url) throws DAOException {
+        for (Dialecte d : values()) {
+            if (url.startsWith(d.prefixeUrl)) {
+                return d;
+            }
+        }
+
+        throw new DAOException("Base non supportée : " + url);
+    }
+
+    /**
+     * Détermine le dialecte d'une base d'après ses métadonnées.
+     *
+     * @param ds Le datasource de la base
+     * @return Le dialecte
+     * @throws DAOException si la base est injoignable ou non supportée
+     */
+    public static Dialecte Detecter(DataSource ds) throws DAOException {
+        try (Connection link = ds.getConnection()) {
+            return Detecter(link);
+
+        } catch (SQLException e) {
+            throw new DAOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Détermine le dialecte d'une base d'après ses métadonnées.
+     *
+     * @param link Une connexion à la base
+     * @return Le dialecte
+     * @throws SQLException si les métadonnées sont inaccessibles
+     * @throws DAOException si la base n'est pas supportée
+     */
+    public static Dialecte Detecter(Connection link)
+            throws SQLException, DAOException {
+        String nom = link.getMetaData().getDatabaseProductName();
+
+        for (Dialecte d : values()) {
+            if (nom.startsWith(d.produit)) {
+                return d;
+            }
+        }
+
+        throw new DAOException("Base non supportée : " + nom);
+    }
+}
@@ -0,0 +1,144 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+
+/**
+ * Singleton du DAO de vérification des droits sur les personnages
+ *
+ * Seuls le propriétaire et le meneur d'un personnage sont lus (et mis
+ * en cache), la vérification ne nécessitant aucune jointure.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public final class DroitsDAO extends AbstractDroitsDAO {
+
+    /**
+     * Nombre de personnages en cache et durée de vie (ms) d'une entrée
+     */
+    private static final int CACHE_CAPACITE = 2000;
+    private static final long CACHE_TTL = 60000;
+
+    /**
+     * Le singleton
+     */
+    private static DroitsDAO instance;
+
+    /**
+     * Propriétaire et meneur de chaque personnage : {joueur_id, mj_id}
+     */
+    private final LruCache<Integer, int[]> cache
+            = new LruCache<>("droits", CACHE_CAPACITE, CACHE_TTL);
+
+    /**
+     * Constructeur privé du singleton
+     */
+    private DroitsDAO(DataSource ds) {
+        super(ds);
+    }
+
+    /**
+     * Crée le singleton
+     *
+     * @param ds Le datasource d'accès bdd
+     * @return Le singleton
+     */
+    public static DroitsDAO Create(DataSource ds) {
+        if (instance == null) {
+            instance = new DroitsDAO(ds);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Getter du singleton
+     *
+     * @return Le singleton
+     */
+    public static DroitsDAO Get() {
+        return instance;
+    }
+
+    @Override
+    public boolean isOwnerOrMj(int idPerso, int idJoueur) throws DAOException {
+        int[] responsables = getResponsables(idPerso);
+
+        return responsables != null
+               && (responsables[0] == idJoueur || responsables[1] == idJoueur);
+    }
+
+    /**
+     * Récupère le propriétaire et le meneur d'un personnage.
+     *
+     * @param idPerso Le personnage
+     * @return {joueur_id, mj_id} (0 si absent), null si le personnage n'existe pas
+     * @throws DAOException
+     */
+    private int[] getResponsables(int idPerso) throws DAOException {
+        boolean cacheable = !hasPendingWrites();
+        int[] responsables = cacheable ? cache.get(idPerso) : null;
+
+        if (responsables != null) {
+            return responsables;
+        }
+
+        long generation = cache.getGeneration();
+        Connection link = null;
+        PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("getResponsables");
+
+        try {
+            link = getConnection();
+            statement = prepare(link, Requete.DROITS);
+
+            statement.setInt(1, idPerso);
+            ResultSet rs = statement.executeQuery();
+
+            if (!rs.next()) {
+                mesure.reussie(0);
+                return null;
+            }
+
+            responsables = new int[] {rs.getInt("joueur_id"), rs.getInt("mj_id")};
+            mesure.reussie(1);
+
+        } catch (SQLException e) {
+            throw new DAOException("Erreur de vérification des droits "
+                    + e.getMessage(), e);
+
+        } finally {
+            CloseStatement(statement);
+            closeConnection(link);
+            mesure.terminer();
+        }
+
+        if (cacheable) {
+            cache.put(idPerso, responsables, generation);
+        }
+
+        return responsables;
+    }
+
+    /**
+     * Oublie les responsables d'un personnage dont le propriétaire
+     * ou le meneur a changé.
+     *
+     * @param idPerso Le personnage
+     */
+    void invalider(int idPerso) {
+        cache.remove(idPerso);
+    }
+
+    /**
+     * Getter du cache des droits (pour ses statistiques)
+     *
+     * @return Le cache
+     */
+    public LruCache<Integer, int[]> getCache() {
+        return cache;
+    }
+}
@@ -4,13 +4,16 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import javax.sql.DataSource;
 import modele.Aventure;
 import modele.Biographie;
 import modele.Episode;
 import modele.Joueur;
+import modele.Paragraphe;
 
 /**
  * Singleton du DAO d'accès aux épisodes
@@ -59,13 +62,12 @@ public final class EpisodeDAO extends AbstractEpisodeDAO {
         LinkedList<Episode> epi = new LinkedList<>();
         PreparedStatement ps = null;
         Connection c = null;
+        Metriques.Mesure mesure = mesurer("getEpisodesEnEdition");
 
         try {
-            c = getConnection();
+            c = getConnectionLecture();
             
-            ps = c.prepareStatement("select * "
-                    + "from Episode e where e.biographie_id = ? "
-                    + "and e.valide = 0 order by e.eDate");
+            ps = prepare(c, Requete.EPISODES_EN_EDITION);
 
             ps.setInt(1, b.getID());
             ResultSet rs = ps.executeQuery();
@@ -81,12 +83,15 @@ public final class EpisodeDAO extends AbstractEpisodeDAO {
                 }
             }
 
+            mesure.reussie(epi.size());
+
         } catch (Exception e) {
             throw new DAOException(e.getMessage(), e);
 
         } finally {
             CloseStatement(ps);
             closeConnection(c);
+            mesure.terminer();
         }
 
         return epi;
@@ -104,17 +109,12 @@ public final class EpisodeDAO extends AbstractEpisodeDAO {
         LinkedList<Episode> epis = new LinkedList<>();
         PreparedStatement ps = null;
         Connection c = null;
+        Metriques.Mesure mesure = mesurer("getEpisodes");
         
         try {
-            c = getConnection();
+            c = getConnectionLecture();
             
-            ps = c.prepareStatement("select a.id as idAv, titre, "
-                    + "e.id as eid, eDate, e.mj_id as mj "
-                    + "from Episode e left join Aventure a "
-                    + "on a.id = e.aventure_id "
-                    + "where e.biographie_id = ? "
-                    + "and e.valide = 1 and e.mj_id IS NULL "
-                    + "order by e.eDate");
+            ps = prepare(c, Requete.EPISODES);
 
             ps.setInt(1, b.getID());
             ResultSet rs = ps.executeQuery();
@@ -138,79 +138,133 @@ public final class EpisodeDAO extends AbstractEpisodeDAO {
                 epis.add(epi);
             }
 
+            mesure.reussie(epis.size());
+
         } catch (Exception e) {
             throw new DAOException(e.getMessage(), e);
 
         } finally {
             CloseStatement(ps);
             closeConnection(c);
+            mesure.terminer();
         }
         
         return epis;
     }
 
+    /**
+     * Retourne les épisodes à valider par un MJ avec leurs biographies
+     * et leurs paragraphes, en deux requetes quelle que soit leur quantité.
+     *
+     * @param mj Le MJ
+     * @return Les épisodes à valider
+     * @throws DAOException
+     */
     @Override
     public List<Episode> getEpisodesAValider(Joueur mj) throws DAOException {
         LinkedList<Episode> epis = new LinkedList<>();
+        Map<Integer, Biographie> bios = new HashMap<>();
         PreparedStatement ps = null;
         Connection c = null;
+        Metriques.Mesure mesure = mesurer("getEpisodesAValider");
 
         try {
-            c = getConnection();
-            ps = c.prepareStatement("select a.id as idAv, titre, valide, "
-                    + "e.id as eid, eDate, e.mj_id as mj, biographie_id "
-                    + "from Episode e left join Aventure a "
-                    + "on a.id = e.aventure_id where e.mj_id = ? "
-                    + "and e.valide = 1 order by e.eDate");
+            c = getConnectionLecture();
+
+            // Biographies concernées par la file de validation
+            ps = prepare(c, Requete.BIOGRAPHIES_A_VALIDER);
 
             ps.setInt(1, mj.getId());
             ResultSet rs = ps.executeQuery();
-            
-            BiographieDAO bioD = BiographieDAO.Get();
-            Aventure av;
-            Episode epi;
-            
+
             while (rs.next()) {
-                
-                if (rs.getObject("idAv") != null) {
-                    av = new Aventure();
-                    av.setId(rs.getInt("idAv"));
-                    av.setTitre(rs.getString("titre"));
-                    
-                } else {
-                    av = null;
-                }
-                
-                epi = new Episode(rs.getInt("eid"), rs.getInt("eDate"),
-                        rs.getBoolean("valide"), av,
-                        new Joueur(rs.getInt("mj")),
-                        bioD.getBiographie(rs.getInt("biographie_id")));
-                
-                epis.add(epi);
+                bios.put(rs.getInt("id"), new Biographie(rs.getInt("id"),
+                                                         rs.getString("texte")));
             }
 
+            CloseStatement(ps);
+
+            // Episodes et paragraphes
+            ps = prepare(c, Requete.EPISODES_A_VALIDER);
+
+            ps.setInt(1, mj.getId());
+            rs = ps.executeQuery();
+            Episode epi = null;
+
+            while (rs.next()) {
+                epi = LireLigne(rs, epi, true,
+                        bios.get(rs.getInt("biographie_id")), epis);
+            }
+
+            mesure.reussie(epis.size());
+
         } catch (Exception e) {
             throw new DAOException(e.getMessage(), e);
 
         } finally {
             CloseStatement(ps);
             closeConnection(c);
+            mesure.terminer();
         }
 
         return epis;
     }
 
+    /**
+     * Lit une ligne de requete Episode / Aventure / Paragraphe triée
+     * par épisode puis paragraphe, et la reporte dans le graphe :
+     * un nouvel épisode commence à chaque changement d'identifiant.
+     *
+     * Colonnes attendues : eid, eDate, mj, idAv, titre, pid, secret, ptexte
+     *
+     * @param rs        Le résultat positionné sur la ligne
+     * @param courant   L'épisode de la ligne précédente (ou null)
+     * @param valide    L'état de validation des épisodes lus
+     * @param b         La biographie de l'épisode
+     * @param episodes  La liste où ajouter les nouveaux épisodes
+     * @return L'épisode de la ligne
+     * @throws SQLException
+     */
+    static Episode LireLigne(ResultSet rs, Episode courant, boolean valide,
+            Biographie b, List<Episode> episodes) throws SQLException {
+
+        // Jointure externe sans épisode
+        if (rs.getObject("eid") == null) {
+            return courant;
+        }
+
+        if (courant == null || courant.getId() != rs.getInt("eid")) {
+            Aventure av = null;
+
+            if (rs.getObject("idAv") != null) {
+                av = new Aventure(rs.getInt("idAv"));
+                av.setTitre(rs.getString("titre"));
+            }
+
+            courant = new Episode(rs.getInt("eid"), rs.getInt("eDate"),
+                    valide, av, new Joueur(rs.getInt("mj")), b);
+            episodes.add(courant);
+        }
+
+        if (rs.getObject("pid") != null) {
+            courant.paragraphes.add(new Paragraphe(rs.getInt("pid"),
+                    rs.getInt("secret") == 1, rs.getString("ptexte")));
+        }
+
+        return courant;
+    }
+
     @Override
     public Episode getEpisode(int id) throws DAOException {
         PreparedStatement ps = null;
         Connection c = null;
         Episode epi = null;
+        Metriques.Mesure mesure = mesurer("getEpisode");
         
         try {
-            c = getConnection();
+            c = getConnectionLecture();
             
-            ps = c.prepareStatement("select * "
-                    + "from Episode e where e.id = ?");
+            ps = prepare(c, Requete.EPISODE);
 
             ps.setInt(1, id);
             ResultSet rs = ps.executeQuery();
@@ -226,130 +280,105 @@ public final class EpisodeDAO extends AbstractEpisodeDAO {
                         true, null, new Joueur(rs.getInt("mj_id")), null);
             }
 
+            epi.setVersion(rs.getInt("version"));
+            mesure.reussie(1);
+
         } catch (Exception e) {
             throw new DAOException(e.getMessage(), e);
 
         } finally {
             CloseStatement(ps);
             closeConnection(c);
+            mesure.terminer();
         }
             
         return epi;
     }
 
     @Override
-    public void suppressEpisode(int pid) throws DAOException {
-        PreparedStatement ps = null;
-        Connection c = null;
-        
-        try {
-            c = initConnection();
-            
-            ps = c.prepareStatement("delete from paragraphe where episode_id =?");
-            ps.setInt(1, pid);
-            ps.executeUpdate();
-            
-            ps.close();
-            ps = c.prepareStatement("delete from episode where id = ?");
-            ps.setInt(1, pid);
-            ps.executeUpdate();
-            
-            c.commit();
-
-        } catch (Exception e) {
-            rollback();
-            throw new DAOException(e.getMessage(), e);
+    public void suppressEpisode(final int pid) throws DAOException {
+        enTransaction("suppressEpisode", new Travail<Void>() {
+            @Override
+            protected Void executer(Connection c) throws SQLException {
+                PreparedStatement ps = null;
+
+                try {
+                    // Les paragraphes suivent (FK_Paragraphe_Episode
+                    // on delete cascade)
+                    ps = prepare(c, Requete.EPISODE_DELETE);
+                    ps.setInt(1, pid);
+                    ps.executeUpdate();
+
+                } finally {
+                    CloseStatement(ps);
+                }
 
-        } finally {
-            CloseStatement(ps);
-            closeConnection(c);
-        }
+                return null;
+            }
+        });
     }
 
     @Override
-    public void valideEpisode(int pid, int persoID, int joueurID) throws DAOException {
-        PreparedStatement ps = null;
-        Connection c = null;
-
-        try {
-            c = initConnection();
-            ps = c.prepareStatement("select mj_id "
-                    + "from personnage where id = ?");
-            ps.setInt(1, persoID);
-            
-            ResultSet rs = ps.executeQuery();
-            rs.next();
-
-            int mj = rs.getInt("mj_id");
-            ps.close();
-
-            if (mj == joueurID) {
-                ps = c.prepareStatement("update episode set valide = 1, "
-                        + " mj_id = NULL where id = ?");
-                ps.setInt(1, pid);
+    public void valideEpisode(final int pid, final int persoID,
+            final int joueurID) throws DAOException {
+        enTransaction("valideEpisode", new Travail<Void>() {
+            @Override
+            protected Void executer(Connection c)
+                    throws SQLException, DAOException {
+                PreparedStatement ps = null;
+
+                try {
+                    // Le personnage est verrouillé : son MJ ne peut changer
+                    // (acceptTransfer) avant le commit de la validation
+                    ps = prepare(c, Requete.PERSONNAGE_VERROU);
+                    ps.setInt(1, persoID);
+
+                    if (!ps.executeQuery().next()) {
+                        throw new DAOException("Aucun personnage d'id " + persoID);
+                    }
+
+                    CloseStatement(ps);
+
+                    // L'épisode va au MJ du personnage, ou est validé
+                    // directement si le joueur en est le MJ
+                    ps = prepare(c, Requete.EPISODE_VALIDATION);
+                    ps.setInt(1, joueurID);
+                    ps.setInt(2, persoID);
+                    ps.setInt(3, pid);
+                    ps.executeUpdate();
+
+                } finally {
+                    CloseStatement(ps);
+                }
 
-            } else {
-                ps = c.prepareStatement("update episode set valide = 1, "
-                        + "mj_id = ? where id = ?");
-                ps.setInt(1, mj);
-                ps.setInt(2, pid);
+                return null;
             }
-
-            ps.executeUpdate();
-            c.commit();
-            
-        } catch (Exception e) {
-            rollback();
-            throw new DAOException(e.getMessage(), e);
-
-        } finally {
-            CloseStatement(ps);
-            closeConnection(c);
-        }
+        });
     }
 
     @Override
-    public void valideEpisodeParMj(int idEpi, int idUser) throws DAOException {
-        Connection link = null;
-        PreparedStatement ps = null;
-
-        try {
-            link = initConnection();
-
-            // On vérifie que l'utilisateur est bien MJ de l'épisode
-            ps = link.prepareStatement("SELECT 1 FROM Episode e "
-                    + "JOIN Biographie b on e.biographie_id = b.id "
-                    + "JOIN Personnage p on p.biographie_id = b.id "
-                    + "JOIN Joueur j on p.mj_id = j.id "
-                    + "WHERE e.id = ? and j.id = ?");
-
-            ps.setInt(1, idEpi);
-            ps.setInt(2, idUser);
-            ResultSet rs = ps.executeQuery();
-
-            if (!rs.next())
-                throw new DAOException("Accès refusé");
-
-            ps.close();
-            ps = link.prepareStatement("UPDATE Episode "
-                    + "SET mj_id = NULL WHERE id = ?");
-            
-            ps.setInt(1, idEpi);
-            ps.executeUpdate();
-
-            link.commit();
-
-        } catch (DAOException e) {
-            throw e;
-
-        } catch (SQLException e) {
-            rollback();
-            throw new DAOException(e.getMessage(), e);
+    public void valideEpisodeParMj(final int idEpi, final int idUser)
+            throws DAOException {
+        enTransaction("valideEpisodeParMj", new Travail<Void>() {
+            @Override
+            protected Void executer(Connection link)
+                    throws SQLException, DAOException {
+                // On valide l'épisode, si l'utilisateur en est bien le MJ
+                PreparedStatement ps = prepare(link,
+                        Requete.EPISODE_VALIDATION_MJ);
+
+                try {
+                    ps.setInt(1, idEpi);
+                    ps.setInt(2, idUser);
+                    verifierDroit(ps.executeUpdate());
+
+                } finally {
+                    CloseStatement(ps);
+                }
 
-        } finally {
-            CloseStatement(ps);
-            closeConnection(link);
-        }
+                return null;
+            }
+        });
     }
 
     @Override
@@ -357,34 +386,35 @@ public final class EpisodeDAO extends AbstractEpisodeDAO {
             int bioID, int date) throws DAOException {
         PreparedStatement ps = null;
         Connection c = null;
+        Metriques.Mesure mesure = mesurer("nouvelEpisode");
         
         try {
             c = initConnection();
             
             if (avtValide) {
-                ps = c.prepareStatement("insert into episode values (default, "
-                        + "?, default, ?, ?, NULL )");
+                ps = prepare(c, Requete.EPISODE_INSERT_AVENTURE);
                 ps.setInt(1, date);
                 ps.setInt(2, aventureID);
                 ps.setInt(3, bioID);
                 
             } else {
-                ps = c.prepareStatement("insert into episode values (default, "
-                        + "?, default, NULL, ?, NULL )");
+                ps = prepare(c, Requete.EPISODE_INSERT);
                 ps.setInt(1, date);
                 ps.setInt(2, bioID);
             }
 
             ps.executeUpdate();
-            commit();
+            commit(c);
+            mesure.reussie(0);
 
         } catch (SQLException | DAOException e) {
-            rollback();
+            rollback(c);
             throw new DAOException(e.getMessage(), e);
 
         } finally {
             CloseStatement(ps);
             closeConnection(c);
+            mesure.terminer();
         }
     }
 
@@ -393,15 +423,16 @@ public final class EpisodeDAO extends AbstractEpisodeDAO {
         PreparedStatement ps = null;
         Connection link = null;
         boolean result = false;
+        Metriques.Mesure mesure = mesurer("hasMJ");
         
         try {
             link = getConnection();
-            ps = link.prepareStatement("SELECT 1 FROM Personnage "
-                                     + "WHERE id = ? AND mj_id IS NOT NULL");
+            ps = prepare(link, Requete.PERSONNAGE_A_MJ);
             ps.setInt(1, persoID);
             
             ResultSet rs = ps.executeQuery();
             result = rs.next();
+            mesure.reussie(result ? 1 : 0);
             
         } catch (SQLException e) {
             throw new DAOException(e.getMessage(), e);
@@ -409,6 +440,7 @@ public final class EpisodeDAO extends AbstractEpisodeDAO {
         } finally {
             CloseStatement(ps);
             closeConnection(link);
+            mesure.terminer();
         }
         
         return result;
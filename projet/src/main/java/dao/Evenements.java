@@ -0,0 +1,147 @@
+package dao;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Evénements Java Flight Recorder de l'application : appels de DAO
+ * (méthode, requetes du catalogue, lignes), recherches dans les caches
+ * et actions des contrôleurs (contrôleur, action, joueur).
+ *
+ * Les événements sont définis par EvenementsJfr, chargée seulement si la
+ * JVM fournit jdk.jfr (Java 11 et suivantes) : l'application reste
+ * exécutable en Java 7. Sans enregistrement en cours (ou événement
+ * désactivé), chaque Debut rend null et la Fin correspondante ne fait rien.
+ *
+ * La propriété système rpg.jfr=false désactive les événements.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public final class Evenements {
+
+    /**
+     * Les événements de la JVM, null si elle n'en fournit pas
+     */
+    private static final Enregistreur JFR = charger();
+
+    private Evenements() {
+    }
+
+    /**
+     * Création et envoi des événements, cf. EvenementsJfr
+     */
+    abstract static class Enregistreur {
+        abstract Object debutDao();
+
+        abstract void finDao(Object evenement, String methode,
+                String requetes, int lignes, boolean reussi);
+
+        abstract Object debutCache();
+
+        abstract void finCache(Object evenement, String cache, Object cle,
+                boolean trouve);
+
+        abstract Object debutAction();
+
+        abstract void finAction(Object evenement, String servlet,
+                String action, int joueur, long dao, long rendu);
+    }
+
+    private static Enregistreur charger() {
+        if (!Boolean.parseBoolean(System.getProperty("rpg.jfr", "true"))) {
+            return null;
+        }
+
+        try {
+            Class.forName("jdk.jfr.Event");
+
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+
+        try {
+            return (Enregistreur) Class.forName("dao.EvenementsJfr")
+                    .getDeclaredConstructor().newInstance();
+
+        } catch (ReflectiveOperationException | LinkageError e) {
+            Logger.getLogger(Evenements.class.getName()).log(Level.WARNING,
+                    "Evénements JFR indisponibles", e);
+            return null;
+        }
+    }
+
+    /**
+     * Débute un appel de DAO (cf. Metriques.Mesure).
+     *
+     * @return L'événement, null s'il n'est pas enregistré
+     */
+    static Object DebutDao() {
+        return JFR == null ? null : JFR.debutDao();
+    }
+
+    /**
+     * Termine un appel de DAO.
+     *
+     * @param evenement L'événement de DebutDao
+     * @param methode   La méthode (DAO.methode)
+     * @param requetes  Les requetes du catalogue préparées
+     * @param lignes    Les lignes lues
+     * @param reussi    false si l'appel a échoué
+     */
+    static void FinDao(Object evenement, String methode, String requetes,
+            int lignes, boolean reussi) {
+        if (evenement != null) {
+            JFR.finDao(evenement, methode, requetes, lignes, reussi);
+        }
+    }
+
+    /**
+     * Débute une recherche dans un cache.
+     *
+     * @return L'événement, null s'il n'est pas enregistré
+     */
+    static Object DebutCache() {
+        return JFR == null ? null : JFR.debutCache();
+    }
+
+    /**
+     * Termine une recherche dans un cache.
+     *
+     * @param evenement L'événement de DebutCache
+     * @param cache     Le nom du cache
+     * @param cle       La clé recherchée
+     * @param trouve    true si la valeur était en cache
+     */
+    static void FinCache(Object evenement, String cache, Object cle,
+            boolean trouve) {
+        if (evenement != null) {
+            JFR.finCache(evenement, cache, cle, trouve);
+        }
+    }
+
+    /**
+     * Débute le traitement d'une action de contrôleur.
+     *
+     * @return L'événement, null s'il n'est pas enregistré
+     */
+    public static Object DebutAction() {
+        return JFR == null ? null : JFR.debutAction();
+    }
+
+    /**
+     * Termine le traitement d'une action de contrôleur.
+     *
+     * @param evenement L'événement de DebutAction
+     * @param servlet   Le contrôleur
+     * @param action    L'action
+     * @param joueur    Le joueur connecté, 0 si aucun
+     * @param dao       Le temps passé dans les DAO (ns)
+     * @param rendu     Le temps de rendu des JSP (ns)
+     */
+    public static void FinAction(Object evenement, String servlet,
+            String action, int joueur, long dao, long rendu) {
+        if (evenement != null) {
+            JFR.finAction(evenement, servlet, action, joueur, dao, rendu);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package dao;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evénements JFR de l'application (cf. Evenements) : cette classe n'est
+ * chargée que par une JVM fournissant jdk.jfr.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+final class EvenementsJfr extends Evenements.Enregistreur {
+
+    @Name("rpg.AppelDao")
+    @Label("Appel de DAO")
+    @Category({"RPG", "DAO"})
+    static final class AppelDao extends Event {
+        @Label("Méthode")
+        String methode;
+
+        @Label("Requetes")
+        @Description("Requetes du catalogue préparées pendant l'appel")
+        String requetes;
+
+        @Label("Lignes")
+        int lignes;
+
+        @Label("Réussi")
+        boolean reussi;
+    }
+
+    @Name("rpg.RechercheCache")
+    @Label("Recherche en cache")
+    @Category({"RPG", "Cache"})
+    @StackTrace(false)
+    static final class RechercheCache extends Event {
+        @Label("Cache")
+        String cache;
+
+        @Label("Clé")
+        String cle;
+
+        @Label("Trouvée")
+        boolean trouve;
+    }
+
+    @Name("rpg.Action")
+    @Label("Action de contrôleur")
+    @Category({"RPG", "Contrôleur"})
+    @StackTrace(false)
+    static final class Action extends Event {
+        @Label("Contrôleur")
+        String servlet;
+
+        @Label("Action")
+        String action;
+
+        @Label("Joueur")
+        int joueur;
+
+        @Label("Temps DAO")
+        @Timespan(Timespan.NANOSECONDS)
+        long dao;
+
+        @Label("Rendu JSP")
+        @Timespan(Timespan.NANOSECONDS)
+        long rendu;
+    }
+
+    /**
+     * Débute un événement s'il est enregistré
+     */
+    private static <E extends Event> E debut(E evenement) {
+        if (!evenement.isEnabled()) {
+            return null;
+        }
+
+        evenement.begin();
+        return evenement;
+    }
+
+    @Override
+    Object debutDao() {
+        return debut(new AppelDao());
+    }
+
+    @Override
+    void finDao(Object evenement, String methode, String requetes,
+            int lignes, boolean reussi) {
+        AppelDao e = (AppelDao) evenement;
+        e.end();
+
+        if (e.shouldCommit()) {
+            e.methode = methode;
+            e.requetes = requetes;
+            e.lignes = lignes;
+            e.reussi = reussi;
+            e.commit();
+        }
+    }
+
+    @Override
+    Object debutCache() {
+        return debut(new RechercheCache());
+    }
+
+    @Override
+    void finCache(Object evenement, String cache, Object cle, boolean trouve) {
+        RechercheCache e = (RechercheCache) evenement;
+        e.end();
+
+        if (e.shouldCommit()) {
+            e.cache = cache;
+            e.cle = String.valueOf(cle);
+            e.trouve = trouve;
+            e.commit();
+        }
+    }
+
+    @Override
+    Object debutAction() {
+        return debut(new Action());
+    }
+
+    @Override
+    void finAction(Object evenement, String servlet, String action,
+            int joueur, long dao, long rendu) {
+        Action e = (Action) evenement;
+        e.end();
+
+        if (e.shouldCommit()) {
+            e.servlet = servlet;
+            e.action = action;
+            e.joueur = joueur;
+            e.dao = dao;
+            e.rendu = rendu;
+            e.commit();
+        }
+    }
+}
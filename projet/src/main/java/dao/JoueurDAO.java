@@ -5,11 +5,12 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.sql.DataSource;
 import modele.*;
 
@@ -25,6 +26,34 @@ public final class JoueurDAO extends AbstractJoueurDAO {
      */
     static private JoueurDAO instance;
 
+    /**
+     * Instantané immuable des joueurs (triés par pseudo)
+     * et des identifiants des meneurs de parties,
+     * avec la génération relevée avant sa lecture en base
+     */
+    private static final class Annuaire {
+        final List<Joueur> joueurs;
+        final Set<Integer> meneurs;
+        final long generation;
+
+        Annuaire(List<Joueur> joueurs, Set<Integer> meneurs, long generation) {
+            this.joueurs = Collections.unmodifiableList(joueurs);
+            this.meneurs = Collections.unmodifiableSet(meneurs);
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Le dernier annuaire publié, null avant le premier chargement
+     */
+    private final AtomicReference<Annuaire> annuaire = new AtomicReference<>();
+
+    /**
+     * La génération courante, incrémentée à chaque invalidation :
+     * l'annuaire est périmé s'il porte une génération antérieure
+     */
+    private final AtomicLong generation = new AtomicLong();
+
     /**
      * Constructeur privé du singleton
      */
@@ -60,10 +89,11 @@ public final class JoueurDAO extends AbstractJoueurDAO {
         Joueur joueur = null;
         Connection link = null;
         PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("getJoueur");
 
         try {
             link = getConnection();
-            statement = link.prepareStatement("SELECT pseudo, pwd FROM Joueur where id = ?");
+            statement = prepare(link, Requete.JOUEUR);
             statement.setInt(1, id);
             ResultSet res = statement.executeQuery();
 
@@ -71,6 +101,7 @@ public final class JoueurDAO extends AbstractJoueurDAO {
                 throw new Exception("Aucun joueur d'id " + id);
 
             joueur = new Joueur(id, res.getString("pseudo"), res.getString("pwd"));
+            mesure.reussie(1);
 
         } catch (Exception e) {
             throw new DAOException("Erreur d'accès au joueur spécifié " + e.getMessage(), e);
@@ -78,6 +109,7 @@ public final class JoueurDAO extends AbstractJoueurDAO {
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
         }
 
         return joueur;
@@ -88,10 +120,11 @@ public final class JoueurDAO extends AbstractJoueurDAO {
         Joueur joueur = null;
         Connection link = null;
         PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("getJoueurPseudo");
 
         try {
             link = getConnection();
-            statement = link.prepareStatement("SELECT id, pwd FROM Joueur where pseudo = ?");
+            statement = prepare(link, Requete.JOUEUR_PSEUDO);
             statement.setString(1, pseudo);
             ResultSet rs = statement.executeQuery();
 
@@ -99,6 +132,7 @@ public final class JoueurDAO extends AbstractJoueurDAO {
                 throw new Exception("Aucun joueur de pseudo " + pseudo);
 
             joueur = new Joueur(rs.getInt("id"), pseudo, rs.getString("pwd"));
+            mesure.reussie(1);
 
         } catch (Exception e) {
             throw new DAOException("Erreur d'accès au joueur spécifié " + e.getMessage(), e);
@@ -106,52 +140,135 @@ public final class JoueurDAO extends AbstractJoueurDAO {
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
         }
 
         return joueur;
     }
 
     /**
-     * Récupère la liste des joueurs à qui
-     * l'on peut céder un personnage donné.
-     * 
-     * @param idPerso Le personnage à céder
-     * @return La liste des joueurs
+     * Recharge l'annuaire des joueurs et des meneurs depuis la base.
+     * L'annuaire précédent reste servi jusqu'au remplacement.
+     *
+     * Aucun verrou n'est tenu pendant la lecture : des rechargements
+     * concurrents ne s'attendent pas (et n'immobilisent pas de connexion
+     * du pool), le plus récent l'emporte (cf. publier).
+     *
+     * L'annuaire, partagé, ne contient que des données validées
+     * (cf. getConnectionValidee) : une écriture en cours y entre
+     * après son commit (cf. apresCommit).
+     *
      * @throws DAOException
      */
-    @Override
-    public ArrayList<Joueur> whoCanReceive(int idPerso) throws DAOException {
-        ArrayList<Joueur> joueurs = new ArrayList<>();
-        PreparedStatement statement = null;
+    public void recharger() throws DAOException {
+        long g = generation.get();
+        List<Joueur> joueurs = new ArrayList<>();
+        Set<Integer> meneurs = new HashSet<>();
         Connection link = null;
+        PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("recharger");
 
         try {
-            link = getConnection();
-            statement = link.prepareStatement("SELECT j.id, pseudo "
-                    + "FROM Joueur j, Personnage p "
-                    + "WHERE p.id = ? AND (p.joueur_id != j.id "
-                    + "OR p.joueur_id IS NULL) AND (p.mj_id != j.id "
-                    + "OR p.mj_id IS NULL) ORDER BY pseudo");
-
-            statement.setInt(1, idPerso);
+            link = getConnectionValidee();
+            statement = prepare(link, Requete.JOUEURS);
             ResultSet rs = statement.executeQuery();
-            Joueur joueur;
 
             while (rs.next()) {
-                joueur = new Joueur();
-                joueur.setId(rs.getInt("id"));
-                joueur.setPseudo(rs.getString("pseudo"));
+                joueurs.add(new Joueur(rs.getInt("id"), rs.getString("pseudo")));
+            }
+
+            CloseStatement(statement);
+            statement = prepare(link, Requete.MENEURS);
+            rs = statement.executeQuery();
 
-                joueurs.add(joueur);
+            while (rs.next()) {
+                meneurs.add(rs.getInt("mj_id"));
             }
 
-        } catch (Exception e) {
-            throw new DAOException("Erreur d'accès à la liste des receveurs "
+            mesure.reussie(joueurs.size());
+
+        } catch (SQLException e) {
+            throw new DAOException("Erreur de chargement des joueurs "
                     + e.getMessage(), e);
 
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
+        }
+
+        publier(new Annuaire(joueurs, meneurs, g));
+    }
+
+    /**
+     * Publie un annuaire, sauf si un annuaire lu depuis une génération
+     * plus récente l'a déjà été.
+     *
+     * @param nouveau L'annuaire chargé
+     */
+    private void publier(Annuaire nouveau) {
+        Annuaire courant;
+
+        do {
+            courant = annuaire.get();
+
+            if (courant != null && courant.generation > nouveau.generation) {
+                return;
+            }
+        } while (!annuaire.compareAndSet(courant, nouveau));
+    }
+
+    /**
+     * Marque l'annuaire comme périmé : il sera rechargé au prochain accès.
+     * Un rechargement en cours, qui a pu lire la base avant la modification,
+     * publiera un annuaire encore périmé.
+     */
+    void invalider() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * L'annuaire courant, chargé si besoin.
+     * Une requete ayant des écritures non validées se voit servir
+     * l'annuaire précédent : ses écritures n'y entreront qu'après commit.
+     *
+     * @return L'annuaire
+     * @throws DAOException
+     */
+    private Annuaire getAnnuaire() throws DAOException {
+        Annuaire a = annuaire.get();
+
+        if (a == null || (a.generation != generation.get()
+                && !hasPendingWrites())) {
+            recharger();
+            a = annuaire.get();
+        }
+
+        return a;
+    }
+
+    /**
+     * Récupère la liste des joueurs à qui
+     * l'on peut céder un personnage donné.
+     * 
+     * @param idPerso Le personnage à céder
+     * @return La liste des joueurs
+     * @throws DAOException
+     */
+    @Override
+    public ArrayList<Joueur> whoCanReceive(int idPerso) throws DAOException {
+        ArrayList<Joueur> joueurs = new ArrayList<>();
+        List<Personnage> persos = PersonnageDAO.Get().getPersonnages(
+                Collections.singleton(idPerso));
+
+        // Tous les joueurs, sauf le propriétaire et le meneur du personnage
+        for (Personnage p : persos) {
+            for (Joueur j : getAnnuaire().joueurs) {
+                if (j.getId() != p.getJoueur().getId()
+                    && j.getId() != p.getMj().getId()) {
+                    joueurs.add(new Joueur(j.getId(), j.getPseudo()));
+                }
+            }
         }
 
         return joueurs;
@@ -167,34 +284,12 @@ public final class JoueurDAO extends AbstractJoueurDAO {
     @Override
     public ArrayList<Joueur> getAutresMeneurs(int idJoueur) throws DAOException {
         ArrayList<Joueur> meneurs = new ArrayList<>();
-        Connection link = null;
-        PreparedStatement statement = null;
+        Annuaire a = getAnnuaire();
 
-        try {
-            link = getConnection();
-            statement = link.prepareStatement("SELECT distinct j.id, j.pseudo "
-                    + "FROM Joueur j JOIN Aventure a on j.id = a.mj_id "
-                    + "WHERE j.id != ? ORDER BY pseudo");
-            
-            statement.setInt(1, idJoueur);
-            ResultSet res = statement.executeQuery();
-            Joueur meneur;
-
-            while (res.next()) {
-                meneur = new Joueur();
-                meneur.setId(res.getInt("id"));
-                meneur.setPseudo(res.getString("pseudo"));
-                
-                meneurs.add(meneur);
+        for (Joueur j : a.joueurs) {
+            if (j.getId() != idJoueur && a.meneurs.contains(j.getId())) {
+                meneurs.add(new Joueur(j.getId(), j.getPseudo()));
             }
-
-        } catch (Exception e) {
-            throw new DAOException("Erreur d'accès à la liste des meneurs "
-                    + e.getMessage(), e);
-
-        } finally {
-            CloseStatement(statement);
-            closeConnection(link);
         }
 
         return meneurs;
@@ -0,0 +1,278 @@
+package dao;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Journal des requetes SQL lentes (cf. Sonde) : texte, paramètres,
+ * durée passée dans le pilote, lignes lues ou modifiées, méthode de DAO
+ * appelante et requete HTTP.
+ *
+ * Les entrées sont déposées dans une file bornée et écrites par un thread
+ * dédié : un thread de requete n'attend jamais l'écriture, une entrée
+ * est perdue (et comptée) si la file est pleine. Le fichier est renouvelé
+ * au-delà de sa taille maximale (fichier.1, fichier.2, ...).
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public final class JournalLent {
+
+    private static final Logger LOG = Logger.getLogger(JournalLent.class.getName());
+
+    /**
+     * Longueur maximale d'un paramètre journalisé
+     */
+    private static final int PARAMETRE_MAX = 100;
+
+    /**
+     * Entrée de fin de journal (cf. fermer)
+     */
+    private static final String FIN = new String("fin");
+
+    private final File fichier;
+    private final long seuil;
+    private final long tailleMax;
+    private final int fichiers;
+    private final BlockingQueue<String> file;
+    private final Thread ecrivain;
+
+    private final AtomicLong ecrites = new AtomicLong();
+    private final AtomicLong perdues = new AtomicLong();
+
+    private Writer writer;
+    private long taille;
+
+    private JournalLent(File fichier, long seuil, long tailleMax,
+            int fichiers, int capacite) {
+        this.fichier = fichier;
+        this.seuil = seuil;
+        this.tailleMax = tailleMax;
+        this.fichiers = fichiers;
+        this.file = new ArrayBlockingQueue<>(capacite);
+
+        ecrivain = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ecrire();
+            }
+        }, "rpg-requetes-lentes");
+        ecrivain.setDaemon(true);
+    }
+
+    /**
+     * Ouvre le journal et démarre son thread d'écriture.
+     *
+     * @param fichier   Le fichier du journal
+     * @param seuil     La durée (ms) à partir de laquelle une requete est lente
+     * @param tailleMax La taille (octets) au-delà de laquelle le fichier est renouvelé
+     * @param fichiers  Le nombre de fichiers renouvelés conservés
+     * @param capacite  Le nombre d'entrées en attente d'écriture
+     * @return Le journal
+     */
+    public static JournalLent Create(String fichier, long seuil, long tailleMax,
+            int fichiers, int capacite) {
+        JournalLent journal = new JournalLent(new File(fichier),
+                seuil * 1000000, tailleMax, Math.max(0, fichiers),
+                Math.max(1, capacite));
+        journal.ecrivain.start();
+
+        return journal;
+    }
+
+    /**
+     * Indique si une durée relève du journal
+     *
+     * @param nanos La durée (ns)
+     * @return true si la requete est lente
+     */
+    boolean estLente(long nanos) {
+        return nanos >= seuil;
+    }
+
+    /**
+     * Dépose une requete lente dans la file d'écriture, sans attendre.
+     *
+     * @param sql        Le texte de la requete
+     * @param parametres Les paramètres, par position
+     * @param nanos      La durée passée dans le pilote (ns)
+     * @param lignes     Les lignes lues ou modifiées
+     * @param methode    La méthode de DAO appelante, null si inconnue
+     * @param requete    La requete HTTP, null hors requete observée
+     */
+    void noter(String sql, List<Object> parametres, long nanos, int lignes,
+            String methode, String requete) {
+        StringBuilder sb = new StringBuilder(256);
+
+        sb.append(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS", Locale.ROOT)
+                .format(new Date()));
+        sb.append(String.format(Locale.ROOT, " %.3f ms", nanos / 1e6));
+        sb.append(" lignes=").append(lignes);
+        sb.append(" methode=").append(methode == null ? "?" : methode);
+
+        if (requete != null) {
+            sb.append(" requete=[").append(requete).append(']');
+        }
+
+        sb.append(" sql=[").append(sql.replaceAll("\\s+", " ")).append(']');
+        sb.append(" parametres=[");
+
+        for (int i = 0; i < parametres.size(); i++) {
+            sb.append(i == 0 ? "" : ", ").append(formater(parametres.get(i)));
+        }
+
+        sb.append("]\n");
+
+        if (!file.offer(sb.toString())) {
+            perdues.incrementAndGet();
+        }
+    }
+
+    private static String formater(Object valeur) {
+        if (valeur == null) {
+            return "null";
+        }
+
+        if (valeur instanceof Number || valeur instanceof Boolean
+                || valeur instanceof Date) {
+            return String.valueOf(valeur);
+        }
+
+        if (!(valeur instanceof String)) {
+            return "<" + valeur.getClass().getSimpleName() + ">";
+        }
+
+        String s = (String) valeur;
+
+        if (s.length() > PARAMETRE_MAX) {
+            s = s.substring(0, PARAMETRE_MAX) + "...";
+        }
+
+        return "'" + s.replace("'", "''").replace('\n', ' ') + "'";
+    }
+
+    /**
+     * Boucle du thread d'écriture : le fichier est vidé dès que la file
+     * est vide.
+     */
+    private void ecrire() {
+        try {
+            while (true) {
+                String entree = file.take();
+
+                if (entree == FIN) {
+                    break;
+                }
+
+                try {
+                    if (writer == null || taille >= tailleMax) {
+                        renouveler();
+                    }
+
+                    writer.write(entree);
+                    taille += entree.length();
+                    ecrites.incrementAndGet();
+
+                    if (file.isEmpty()) {
+                        writer.flush();
+                    }
+
+                } catch (IOException e) {
+                    perdues.incrementAndGet();
+                    LOG.log(Level.WARNING, "Ecriture du journal "
+                            + fichier + " impossible", e);
+                    fermerFichier();
+                }
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        fermerFichier();
+    }
+
+    /**
+     * Ouvre le fichier, en renouvelant d'abord le fichier courant
+     * s'il a atteint sa taille maximale.
+     *
+     * @throws IOException
+     */
+    private void renouveler() throws IOException {
+        fermerFichier();
+
+        if (fichier.length() >= tailleMax) {
+            for (int i = fichiers; i > 0; i--) {
+                File ancien = i == 1 ? fichier
+                        : new File(fichier.getPath() + "." + (i - 1));
+                File suivant = new File(fichier.getPath() + "." + i);
+
+                if (ancien.exists()) {
+                    suivant.delete();
+                    ancien.renameTo(suivant);
+                }
+            }
+
+            if (fichiers == 0) {
+                fichier.delete();
+            }
+        }
+
+        File dossier = fichier.getAbsoluteFile().getParentFile();
+
+        if (dossier != null) {
+            dossier.mkdirs();
+        }
+
+        taille = fichier.length();
+        writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(fichier, true), StandardCharsets.UTF_8));
+    }
+
+    private void fermerFichier() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {}
+
+            writer = null;
+        }
+    }
+
+    /**
+     * Ecrit les entrées en attente puis arrete le thread d'écriture.
+     */
+    public void fermer() {
+        try {
+            file.put(FIN);
+            ecrivain.join(5000);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Compteurs du journal, au format texte (une métrique par ligne).
+     *
+     * @return Les métriques
+     */
+    public String getStatistiques() {
+        return "lentes.ecrites " + ecrites.get() + "\n"
+                + "lentes.perdues " + perdues.get() + "\n"
+                + "lentes.en_attente " + file.size() + "\n";
+    }
+}
@@ -0,0 +1,171 @@
+package dao;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache borné d'entités, à éviction LRU et durée de vie limitée.
+ *
+ * Un compteur de génération, incrémenté à chaque invalidation, permet
+ * à un lecteur de ne pas remettre en cache une valeur lue en base avant
+ * une modification concurrente (cf. put).
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ *
+ * @param <K> Le type de clé
+ * @param <V> Le type de valeur
+ */
+public final class LruCache<K, V> {
+
+    /**
+     * Une valeur et sa date d'expiration
+     */
+    private static final class Entree<V> {
+        final V valeur;
+        final long expiration;
+
+        Entree(V valeur, long expiration) {
+            this.valeur = valeur;
+            this.expiration = expiration;
+        }
+    }
+
+    private final String nom;
+    private final int capacite;
+    private final long ttl;
+    private final LinkedHashMap<K, Entree<V>> entrees;
+
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * Crée un cache vide.
+     *
+     * @param nom      Le nom du cache (événements JFR)
+     * @param capacite Le nombre maximal d'entrées
+     * @param ttl      La durée de vie d'une entrée (ms)
+     */
+    public LruCache(String nom, final int capacite, long ttl) {
+        this.nom = nom;
+        this.capacite = capacite;
+        this.ttl = ttl;
+        this.entrees = new LinkedHashMap<K, Entree<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entree<V>> eldest) {
+                if (size() > capacite) {
+                    evictions++;
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Récupère une valeur du cache.
+     *
+     * @param cle La clé
+     * @return La valeur, null si absente ou expirée
+     */
+    public V get(K cle) {
+        Object evenement = Evenements.DebutCache();
+        V valeur = chercher(cle);
+
+        Evenements.FinCache(evenement, nom, cle, valeur != null);
+        return valeur;
+    }
+
+    private synchronized V chercher(K cle) {
+        Entree<V> entree = entrees.get(cle);
+
+        if (entree != null && entree.expiration < System.currentTimeMillis()) {
+            entrees.remove(cle);
+            evictions++;
+            entree = null;
+        }
+
+        if (entree == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entree.valeur;
+    }
+
+    /**
+     * Getter de la génération courante, à relever avant de lire en base
+     * une valeur destinée au cache.
+     *
+     * @return La génération
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Met une valeur en cache, sauf si une invalidation a eu lieu
+     * depuis la génération indiquée.
+     *
+     * @param cle        La clé
+     * @param valeur     La valeur
+     * @param generation La génération relevée avant la lecture
+     */
+    public synchronized void put(K cle, V valeur, long generation) {
+        if (generation == this.generation) {
+            entrees.put(cle, new Entree<>(valeur,
+                    System.currentTimeMillis() + ttl));
+        }
+    }
+
+    /**
+     * Retire une valeur du cache.
+     *
+     * @param cle La clé
+     */
+    public synchronized void remove(K cle) {
+        generation++;
+        invalidations++;
+        entrees.remove(cle);
+    }
+
+    /**
+     * Vide le cache.
+     */
+    public synchronized void clear() {
+        generation++;
+        invalidations++;
+        entrees.clear();
+    }
+
+    /**
+     * Etat courant du cache, au format texte (une métrique par ligne).
+     *
+     * @param prefixe Le préfixe des noms de métriques
+     * @return Les métriques
+     */
+    public synchronized String getStatistiques(String prefixe) {
+        long total = hits + misses;
+        long maintenant = System.currentTimeMillis();
+        int expirees = 0;
+
+        for (Iterator<Entree<V>> it = entrees.values().iterator(); it.hasNext();) {
+            if (it.next().expiration < maintenant) {
+                expirees++;
+            }
+        }
+
+        return prefixe + ".taille " + (entrees.size() - expirees) + "\n"
+                + prefixe + ".capacite " + capacite + "\n"
+                + prefixe + ".hits " + hits + "\n"
+                + prefixe + ".misses " + misses + "\n"
+                + prefixe + ".taux " + (total == 0 ? 0 : (double) hits / total) + "\n"
+                + prefixe + ".evictions " + evictions + "\n"
+                + prefixe + ".invalidations " + invalidations + "\n";
+    }
+}
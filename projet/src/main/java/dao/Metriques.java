@@ -0,0 +1,496 @@
+package dao;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latences des méthodes de DAO (cf. AbstractDAO.mesurer) : nombre
+ * d'appels, d'erreurs, de lignes lues et histogramme des durées.
+ *
+ * L'histogramme est logarithmique : chaque puissance de 2 (en µs) est
+ * découpée en 8 cases, les centiles sont donc donnés à 12,5 % près
+ * (borne supérieure de leur case), sans conserver les durées.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public final class Metriques {
+
+    /**
+     * Cases par puissance de 2 (2^PRECISION)
+     */
+    private static final int PRECISION = 3;
+    private static final int SOUS_CASES = 1 << PRECISION;
+
+    /**
+     * Plus grande puissance de 2 distinguée (2^40 µs, soit 12 jours)
+     */
+    private static final int EXPOSANT_MAX = 40;
+
+    private static final int CASES = SOUS_CASES
+            + (EXPOSANT_MAX - PRECISION + 1) * SOUS_CASES;
+
+    /**
+     * Centiles publiés
+     */
+    private static final double[] CENTILES = {0.5, 0.95, 0.99};
+
+    /**
+     * Cases publiées pour Prometheus : les puissances de 2 (en µs)
+     * de 2^BORNE_MIN (64 µs) à 2^BORNE_MAX (16,8 s), qui sont des
+     * bornes de cases de l'histogramme
+     */
+    private static final int BORNE_MIN = 6;
+    private static final int BORNE_MAX = 24;
+
+    /**
+     * Les compteurs de chaque méthode, par nom (DAO.methode)
+     */
+    private static final ConcurrentHashMap<String, Histogramme> methodes
+            = new ConcurrentHashMap<>();
+
+    /**
+     * L'appel de méthode de DAO en cours sur chaque thread
+     * (cf. JournalLent, Evenements)
+     */
+    private static final ThreadLocal<Mesure> courante = new ThreadLocal<>();
+
+    /**
+     * Le temps passé dans les méthodes de DAO (les plus externes),
+     * cumulé sur chaque thread (cf. getCumul)
+     */
+    private static final ThreadLocal<long[]> cumul = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    private Metriques() {
+    }
+
+    /**
+     * Compteurs d'une méthode
+     */
+    private static final class Histogramme {
+        private final AtomicLongArray cases = new AtomicLongArray(CASES);
+        private final AtomicLong appels = new AtomicLong();
+        private final AtomicLong erreurs = new AtomicLong();
+        private final AtomicLong lignes = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+
+        void ajouter(long duree, boolean erreur, int n) {
+            cases.incrementAndGet(indice(duree / 1000));
+            nanos.addAndGet(duree);
+            lignes.addAndGet(n);
+            appels.incrementAndGet();
+
+            if (erreur) {
+                erreurs.incrementAndGet();
+            }
+        }
+
+        /**
+         * Copie des cases, pour un calcul cohérent
+         */
+        long[] copie() {
+            long[] copie = new long[CASES];
+
+            for (int i = 0; i < CASES; i++) {
+                copie[i] = cases.get(i);
+            }
+
+            return copie;
+        }
+
+        /**
+         * Centile, en µs (borne supérieure de sa case)
+         */
+        long centile(double c) {
+            long[] copie = copie();
+            long total = 0;
+
+            for (long n : copie) {
+                total += n;
+            }
+
+            long rang = (long) Math.ceil(c * total);
+            long cumul = 0;
+
+            for (int i = 0; i < CASES; i++) {
+                cumul += copie[i];
+
+                if (cumul >= rang && cumul > 0) {
+                    return borne(i);
+                }
+            }
+
+            return 0;
+        }
+    }
+
+    /**
+     * Case d'une durée
+     *
+     * @param micros La durée (µs)
+     * @return L'indice de sa case
+     */
+    static int indice(long micros) {
+        if (micros < SOUS_CASES) {
+            return (int) Math.max(0, micros);
+        }
+
+        int exposant = Math.min(EXPOSANT_MAX,
+                63 - Long.numberOfLeadingZeros(micros));
+        int sousCase = (int) (micros >>> (exposant - PRECISION)) & (SOUS_CASES - 1);
+
+        return SOUS_CASES + (exposant - PRECISION) * SOUS_CASES + sousCase;
+    }
+
+    /**
+     * Borne supérieure (exclue) d'une case
+     *
+     * @param indice L'indice de la case
+     * @return La borne (µs)
+     */
+    static long borne(int indice) {
+        if (indice < SOUS_CASES) {
+            return indice + 1;
+        }
+
+        int exposant = (indice - SOUS_CASES) / SOUS_CASES + PRECISION;
+        int sousCase = (indice - SOUS_CASES) % SOUS_CASES;
+
+        return (long) (SOUS_CASES + sousCase + 1) << (exposant - PRECISION);
+    }
+
+    /**
+     * Mesure d'un appel de méthode : terminer doit être appelé dans un
+     * finally, après reussie si l'appel a abouti (sinon c'est une erreur).
+     * L'appel est aussi un événement JFR s'il est enregistré.
+     */
+    static final class Mesure {
+        private final Histogramme histogramme;
+        private final String methode;
+        private final Mesure englobante;
+        private final Object evenement;
+        private final long debut = System.nanoTime();
+        private StringBuilder requetes;
+        private boolean reussie;
+        private int lignes;
+
+        private Mesure(Histogramme histogramme, String methode) {
+            this.histogramme = histogramme;
+            this.methode = methode;
+            this.englobante = courante.get();
+            this.evenement = Evenements.DebutDao();
+            courante.set(this);
+        }
+
+        /**
+         * L'appel a abouti
+         *
+         * @param n Le nombre de lignes lues
+         */
+        void reussie(int n) {
+            reussie = true;
+            lignes = n;
+        }
+
+        /**
+         * Fin de l'appel
+         */
+        void terminer() {
+            long duree = System.nanoTime() - debut;
+            histogramme.ajouter(duree, !reussie, lignes);
+
+            if (englobante == null) {
+                cumul.get()[0] += duree;
+                courante.remove();
+            } else {
+                courante.set(englobante);
+            }
+
+            Evenements.FinDao(evenement, methode,
+                    requetes == null ? "" : requetes.toString(),
+                    lignes, reussie);
+        }
+    }
+
+    /**
+     * Débute la mesure d'un appel.
+     *
+     * @param methode Le nom de la méthode (DAO.methode)
+     * @return La mesure
+     */
+    static Mesure Debut(String methode) {
+        Histogramme h = methodes.get(methode);
+
+        if (h == null) {
+            methodes.putIfAbsent(methode, new Histogramme());
+            h = methodes.get(methode);
+        }
+
+        return new Mesure(h, methode);
+    }
+
+    /**
+     * La méthode de DAO en cours sur le thread courant
+     *
+     * @return Son nom (DAO.methode), null hors d'une méthode mesurée
+     */
+    static String getMethodeCourante() {
+        Mesure mesure = courante.get();
+
+        return mesure == null ? null : mesure.methode;
+    }
+
+    /**
+     * Note une requete du catalogue préparée par l'appel en cours,
+     * pour son événement JFR.
+     *
+     * @param requete Le nom de la requete
+     */
+    static void Preparee(String requete) {
+        Mesure mesure = courante.get();
+
+        if (mesure != null && mesure.evenement != null) {
+            if (mesure.requetes == null) {
+                mesure.requetes = new StringBuilder(requete);
+            } else {
+                mesure.requetes.append(", ").append(requete);
+            }
+        }
+    }
+
+    /**
+     * Temps passé dans les méthodes de DAO par le thread courant, depuis
+     * son démarrage : la différence entre deux lectures est le temps passé
+     * dans les DAO entre elles.
+     *
+     * @return La durée cumulée (ns)
+     */
+    public static long getCumul() {
+        return cumul.get()[0];
+    }
+
+    /**
+     * Histogramme glissant : les durées des dernières tranches de temps
+     * seulement, chaque tranche étant remise à zéro à sa réutilisation.
+     */
+    public static final class Fenetre {
+        private final long tranche;
+        private final AtomicLongArray[] cases;
+        private final long[] periodes;
+
+        /**
+         * @param duree    La durée de la fenetre (ms)
+         * @param tranches Le nombre de tranches de la fenetre
+         */
+        public Fenetre(long duree, int tranches) {
+            this.tranche = Math.max(1, duree / tranches);
+            this.cases = new AtomicLongArray[tranches];
+            this.periodes = new long[tranches];
+
+            for (int i = 0; i < tranches; i++) {
+                cases[i] = new AtomicLongArray(CASES);
+                periodes[i] = -1;
+            }
+        }
+
+        /**
+         * Ajoute une durée
+         *
+         * @param nanos La durée (ns)
+         */
+        public void ajouter(long nanos) {
+            long periode = System.currentTimeMillis() / tranche;
+            int i = (int) (periode % cases.length);
+
+            synchronized (cases[i]) {
+                if (periodes[i] != periode) {
+                    for (int c = 0; c < CASES; c++) {
+                        cases[i].set(c, 0);
+                    }
+
+                    periodes[i] = periode;
+                }
+            }
+
+            cases[i].incrementAndGet(indice(nanos / 1000));
+        }
+
+        /**
+         * Copie des cases des tranches encore dans la fenetre
+         */
+        private long[] copier() {
+            long periode = System.currentTimeMillis() / tranche;
+            long[] copie = new long[CASES];
+
+            for (int i = 0; i < cases.length; i++) {
+                synchronized (cases[i]) {
+                    if (periodes[i] <= periode - cases.length) {
+                        continue;
+                    }
+                }
+
+                for (int c = 0; c < CASES; c++) {
+                    copie[c] += cases[i].get(c);
+                }
+            }
+
+            return copie;
+        }
+
+        /**
+         * Nombre de durées dans la fenetre
+         *
+         * @return Le nombre
+         */
+        public long getNombre() {
+            long total = 0;
+
+            for (long n : copier()) {
+                total += n;
+            }
+
+            return total;
+        }
+
+        /**
+         * Centiles des durées de la fenetre, en ms (borne supérieure
+         * de leur case)
+         *
+         * @param centiles Les centiles (0.5, 0.95...)
+         * @return Leurs valeurs, 0 si la fenetre est vide
+         */
+        public double[] getCentiles(double... centiles) {
+            long[] copie = copier();
+            double[] valeurs = new double[centiles.length];
+            long total = 0;
+
+            for (long n : copie) {
+                total += n;
+            }
+
+            for (int k = 0; k < centiles.length; k++) {
+                long rang = (long) Math.ceil(centiles[k] * total);
+                long cumule = 0;
+
+                for (int i = 0; i < CASES && total > 0; i++) {
+                    cumule += copie[i];
+
+                    if (cumule >= rang && cumule > 0) {
+                        valeurs[k] = borne(i) / 1000.0;
+                        break;
+                    }
+                }
+            }
+
+            return valeurs;
+        }
+    }
+
+    /**
+     * Métriques des méthodes, au format texte (une métrique par ligne,
+     * durées en ms).
+     *
+     * @return Les métriques
+     */
+    public static String getStatistiques() {
+        StringBuilder sb = new StringBuilder();
+
+        for (Map.Entry<String, Histogramme> e
+                : new TreeMap<>(methodes).entrySet()) {
+            Histogramme h = e.getValue();
+            String nom = "dao." + e.getKey();
+
+            sb.append(nom).append(".appels ").append(h.appels.get()).append('\n');
+            sb.append(nom).append(".erreurs ").append(h.erreurs.get()).append('\n');
+            sb.append(nom).append(".lignes ").append(h.lignes.get()).append('\n');
+
+            for (double c : CENTILES) {
+                sb.append(nom).append(".p").append(Math.round(c * 100)).append(' ')
+                  .append(h.centile(c) / 1000.0).append('\n');
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Métriques des méthodes, au format texte de Prometheus
+     * (durées en secondes).
+     *
+     * Les durées sont un histogramme cumulatif (cases le, cf. BORNE_MIN) :
+     * les centiles se calculent côté Prometheus, sur la période voulue
+     * (histogram_quantile(0.99, rate(rpg_dao_duree_secondes_bucket[5m]))).
+     *
+     * @return Les métriques
+     */
+    public static String getPrometheus() {
+        Map<String, Histogramme> triees = new TreeMap<>(methodes);
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("# HELP rpg_dao_duree_secondes Durée des appels de DAO\n");
+        sb.append("# TYPE rpg_dao_duree_secondes histogram\n");
+
+        for (Map.Entry<String, Histogramme> e : triees.entrySet()) {
+            Histogramme h = e.getValue();
+            String methode = "methode=\"" + e.getKey() + "\"";
+            long[] copie = h.copie();
+            long cumul = 0;
+            int i = 0;
+
+            for (int exposant = BORNE_MIN; exposant <= BORNE_MAX; exposant++) {
+                long limite = 1L << exposant;
+
+                for (; i < CASES && borne(i) <= limite; i++) {
+                    cumul += copie[i];
+                }
+
+                sb.append("rpg_dao_duree_secondes_bucket{").append(methode)
+                  .append(",le=\"").append(secondes(limite * 1000)).append("\"} ")
+                  .append(cumul).append('\n');
+            }
+
+            for (; i < CASES; i++) {
+                cumul += copie[i];
+            }
+
+            sb.append("rpg_dao_duree_secondes_bucket{").append(methode)
+              .append(",le=\"+Inf\"} ").append(cumul).append('\n');
+            sb.append("rpg_dao_duree_secondes_sum{").append(methode).append("} ")
+              .append(secondes(h.nanos.get())).append('\n');
+            sb.append("rpg_dao_duree_secondes_count{").append(methode).append("} ")
+              .append(cumul).append('\n');
+        }
+
+        compteur(sb, triees, "erreurs", "Appels de DAO en erreur");
+        compteur(sb, triees, "lignes", "Lignes lues par les DAO");
+
+        return sb.toString();
+    }
+
+    private static void compteur(StringBuilder sb, Map<String, Histogramme> triees,
+            String nom, String aide) {
+        sb.append("# HELP rpg_dao_").append(nom).append("_total ").append(aide).append('\n');
+        sb.append("# TYPE rpg_dao_").append(nom).append("_total counter\n");
+
+        for (Map.Entry<String, Histogramme> e : triees.entrySet()) {
+            Histogramme h = e.getValue();
+
+            sb.append("rpg_dao_").append(nom).append("_total{methode=\"")
+              .append(e.getKey()).append("\"} ")
+              .append("erreurs".equals(nom) ? h.erreurs.get() : h.lignes.get())
+              .append('\n');
+        }
+    }
+
+    private static String secondes(long nanos) {
+        return String.format(Locale.ROOT, "%.6f", nanos / 1e9);
+    }
+}
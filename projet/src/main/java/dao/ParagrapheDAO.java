@@ -57,11 +57,11 @@ public final class ParagrapheDAO extends AbstractParagrapheDAO {
         LinkedList<Paragraphe> pars = null;
         PreparedStatement ps = null;
         Connection c = null;
+        Metriques.Mesure mesure = mesurer("getParagraphes");
 
         try {
-            c = getConnection();
-            ps = c.prepareStatement("select * from Paragraphe p "
-                    + "WHERE p.episode_id = ? ORDER BY id");
+            c = getConnectionLecture();
+            ps = prepare(c, Requete.PARAGRAPHES);
 
             ps.setInt(1, e.getId());
             ResultSet rs = ps.executeQuery();
@@ -74,12 +74,15 @@ public final class ParagrapheDAO extends AbstractParagrapheDAO {
                         rs.getString("texte")));
             }
 
+            mesure.reussie(pars.size());
+
         } catch (Exception ex) {
             throw new DAOException(null, ex);
 
         } finally {
             CloseStatement(ps);
             closeConnection(c);
+            mesure.terminer();
         }
 
         return pars;
@@ -90,19 +93,21 @@ public final class ParagrapheDAO extends AbstractParagrapheDAO {
         PreparedStatement ps = null;
         Connection c = null;
         Paragraphe p = null;
+        Metriques.Mesure mesure = mesurer("getParagraphe");
         
         try {
-            c = getConnection();
+            c = getConnectionLecture();
             
-            ps = c.prepareStatement("select * "
-                    + "from Paragraphe where id=?");
+            ps = prepare(c, Requete.PARAGRAPHE);
             ps.setInt(1, pid);
             ResultSet res = ps.executeQuery();
             
             res.next();
             p = new Paragraphe(res.getInt("id"), res.getBoolean("secret"),
                     res.getString("texte"));
+            p.setVersion(res.getInt("version"));
 
+            mesure.reussie(1);
             
         } catch (Exception e) {
             throw new DAOException("", e);
@@ -110,6 +115,7 @@ public final class ParagrapheDAO extends AbstractParagrapheDAO {
         } finally {
             CloseStatement(ps);
             closeConnection(c);
+            mesure.terminer();
         }
         
         return p;
@@ -119,23 +125,25 @@ public final class ParagrapheDAO extends AbstractParagrapheDAO {
     public void reveleParagraphe(int pid) throws DAOException {
         PreparedStatement ps = null;
         Connection c = null;
+        Metriques.Mesure mesure = mesurer("reveleParagraphe");
         
         try {
             c = initConnection();
-            ps = c.prepareStatement("update paragraphe "
-                    + "set secret = '0' where id =?");
+            ps = prepare(c, Requete.PARAGRAPHE_REVELATION);
             
             ps.setInt(1, pid);
             ps.executeUpdate();
-            commit();
+            commit(c);
+            mesure.reussie(0);
             
         } catch (SQLException | DAOException e) {
-            rollback();
+            rollback(c);
             throw new DAOException(e.getMessage(), e);
             
         } finally {
             CloseStatement(ps);
             closeConnection(c);
+            mesure.terminer();
         }
     }
 
@@ -143,54 +151,64 @@ public final class ParagrapheDAO extends AbstractParagrapheDAO {
     public void ajouteParagraphe(boolean secret, String texte, int episode) throws DAOException {
         PreparedStatement ps = null;
         Connection c = null;
+        Metriques.Mesure mesure = mesurer("ajouteParagraphe");
         
         try {
             c = initConnection();
             
-            ps = c.prepareStatement("INSERT INTO PARAGRAPHE "
-                    + "(SECRET, TEXTE, EPISODE_ID) "
-                    + "VALUES (?, ?, ?)");
+            ps = prepare(c, Requete.PARAGRAPHE_INSERT);
 
             ps.setInt(1, secret == true ? 1 : 0);
             ps.setString(2, texte);
             ps.setInt(3, episode);
             ps.executeUpdate();
             
-            commit();
+            commit(c);
+            mesure.reussie(0);
             
         } catch (Exception e) {
-            rollback();
+            rollback(c);
             throw new DAOException("Erreur à l'insertion d'un paragraphe "
                     + "dans la base de données", e);
             
         } finally {
             CloseStatement(ps);
             closeConnection(c);
+            mesure.terminer();
         }
     }
 
     @Override
-    public void updateParagraphe(int paragid, String texte) throws DAOException {
+    public void updateParagraphe(int paragid, String texte, int version)
+            throws DAOException {
         PreparedStatement ps = null;
         Connection c = null;
+        Metriques.Mesure mesure = mesurer("updateParagraphe");
         
         try {
             c = initConnection();
             
-            ps = c.prepareStatement("update paragraphe set  texte =? where id =?");
+            ps = prepare(c, Requete.PARAGRAPHE_UPDATE);
             ps.setString(1, texte);
             ps.setInt(2, paragid);
-            ps.executeUpdate();
+            ps.setInt(3, version);
+            verifierVersion(ps.executeUpdate());
             
-            commit();
+            commit(c);
+            mesure.reussie(0);
             
+        } catch (ConflitException e) {
+            rollback(c);
+            throw e;
+
         } catch (Exception e) {
-            rollback();
+            rollback(c);
             throw new DAOException(e.getMessage(), e);
             
         } finally {
             CloseStatement(ps);
             closeConnection(c);
+            mesure.terminer();
         }
     }
 
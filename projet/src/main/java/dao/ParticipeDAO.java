@@ -3,7 +3,7 @@ package dao;
 import static dao.AbstractDAO.CloseStatement;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.sql.SQLException;
 import javax.sql.DataSource;
 import modele.Aventure;
 import modele.Participe;
@@ -58,57 +58,43 @@ public class ParticipeDAO extends AbstractParticipeDAO {
      * @throws DAOException
      */
     @Override
-    public void creerParticipe(Participe p) throws DAOException {
-        Connection link = null;
-        PreparedStatement statement = null;
-        Personnage perso = p.getPersonnage();
+    public void creerParticipe(final Participe p) throws DAOException {
+        final Personnage perso = p.getPersonnage();
 
-        try {
-            link = initConnection();
-            
-            // On vérifie que ce personnage est bien mené par ce MJ 
-            // dans l'univers indiqué et ne participe à aucune partie en cours.
-            statement = link.prepareStatement("SELECT 1 FROM Personnage p "
-                    + "JOIN Univers u on p.univers_id = u.id "
-                    + "LEFT JOIN Participe r on r.personnage_id = p.id "
-                    + "WHERE mj_id = ? AND u.id = ? AND p.id = ? AND valide = 1 "
-                    + "AND NOT EXISTS (SELECT 1 FROM Aventure a "
-                    + "WHERE r.aventure_id = a.id and finie = 0) "
-                    + "GROUP BY p.id, p.nom "
-                    + "HAVING COUNT(p.id) = (SELECT COUNT(p2.id) FROM Personnage p2 "
-                    + "LEFT JOIN Participe s on s.personnage_id = p2.id "
-                    + "WHERE p2.id = p.id) ORDER BY p.nom ");
-            
-            statement.setInt(1, perso.getMj().getId());
-            statement.setInt(2, perso.getUnivers().getId());
-            statement.setInt(3, perso.getId());
-            ResultSet rs = statement.executeQuery();
-            
-            if (!rs.next())
-                throw new DAOException("Accès refusé");
-            
-            // Effectue l'ajout
-            statement = link.prepareStatement("INSERT INTO Participe "
-                    + "(aventure_id, personnage_id) VALUES (?, ?)");
+        enTransaction("creerParticipe", new Travail<Void>() {
+            @Override
+            protected Void executer(Connection link)
+                    throws SQLException, DAOException {
+                PreparedStatement statement = null;
 
-            statement.setInt(1, p.getAventure().getId());
-            statement.setInt(2, perso.getId());
-            statement.executeUpdate();
-            
-            link.commit();
+                try {
+                    // Le personnage est verrouillé : une autre participation
+                    // ou un transfert attend le commit de celle-ci
+                    statement = prepare(link, Requete.PERSONNAGE_VERROU);
+                    statement.setInt(1, perso.getId());
 
-        } catch (DAOException e) {
-            throw new DAOException(e.getMessage(), e);
+                    if (!statement.executeQuery().next())
+                        throw new DAOException("Accès refusé");
 
-        } catch (Exception e) {
-            rollback();
-            throw new DAOException("Erreur à l'ajout d'un participant "
-                    + e.getMessage(), e);
+                    CloseStatement(statement);
 
-        } finally {
-            CloseStatement(statement);
-            closeConnection(link);
-        }
+                    // Effectue l'ajout si ce personnage est bien mené par ce MJ
+                    // dans l'univers indiqué et ne participe à aucune partie en cours.
+                    statement = prepare(link, Requete.PARTICIPE_INSERT);
+
+                    statement.setInt(1, p.getAventure().getId());
+                    statement.setInt(2, perso.getId());
+                    statement.setInt(3, perso.getMj().getId());
+                    statement.setInt(4, perso.getUnivers().getId());
+                    verifierDroit(statement.executeUpdate());
+
+                } finally {
+                    CloseStatement(statement);
+                }
+
+                return null;
+            }
+        });
     }
 
     /**
@@ -122,27 +108,29 @@ public class ParticipeDAO extends AbstractParticipeDAO {
     public void supprimerParticipe(Aventure aventure, Personnage perso) throws DAOException {
         Connection link = null;
         PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("supprimerParticipe");
 
         try {
             link = initConnection();
             
-            statement = link.prepareStatement("DELETE FROM Participe p"
-                    + " WHERE p.aventure_id=? AND p.personnage_id = ?");
+            statement = prepare(link, Requete.PARTICIPE_DELETE);
 
             statement.setInt(1, aventure.getId());
             statement.setInt(2, perso.getId());
             statement.executeUpdate();
             
-            link.commit();
+            commit(link);
+            mesure.reussie(0);
 
         } catch (Exception e) {
-            rollback();
+            rollback(link);
             throw new DAOException("Erreur à la suppression d'un participant "
                     + e.getMessage(), e);
 
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
         }
     }
     
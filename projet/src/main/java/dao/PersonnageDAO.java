@@ -7,7 +7,10 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import javax.sql.DataSource;
 import modele.Aventure;
 import modele.Biographie;
@@ -26,7 +29,30 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
      * Le singleton
      */
     private static PersonnageDAO instance;
+
+    /**
+     * Taille maximale d'une liste IN (limite Oracle)
+     */
+    private static final int MAX_IN = 1000;
+
+    /**
+     * Nombre de personnages en cache et durée de vie (ms) d'une entrée
+     */
+    private static final int CACHE_CAPACITE = 1000;
+    private static final long CACHE_TTL = 60000;
+
+    /**
+     * Tailles des listes IN préparées : une liste est complétée jusqu'à
+     * la taille supérieure, pour limiter le nombre de requetes distinctes
+     */
+    private static final int[] TAILLES_IN = {1, 10, 100, MAX_IN};
     
+    /**
+     * Cache des personnages chargés par getPersonnage
+     */
+    private final LruCache<Integer, Personnage> cache
+            = new LruCache<>("personnages", CACHE_CAPACITE, CACHE_TTL);
+
     /**
      * Constructeur privé du singleton
      */
@@ -58,22 +84,29 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
     }
 
 
-    /**
-     * Récupère la liste de tous les personnages classés par nom
-     *
-     * @return La liste de tous les personnages
-     * @throws DAOException
-     */
     @Override
-    public Collection<Personnage> getPersonnages() throws DAOException {
+    public List<Personnage> getPersonnages(Personnage apres, int limite)
+            throws DAOException {
         List<Personnage> result = new ArrayList<>();
         PreparedStatement ps = null;
         Connection link = null;
+        Metriques.Mesure mesure = mesurer("getPersonnages");
         
         try {
-            link = getConnection();
-            ps = link.prepareStatement("SELECT id, nom, profession "
-                                     + "FROM Personnage ORDER BY nom");
+            link = getConnectionLecture();
+            
+            if (apres == null) {
+                ps = prepare(link, Requete.PERSONNAGES_PREMIERS);
+                ps.setInt(1, limite);
+                
+            } else {
+                ps = prepare(link, Requete.PERSONNAGES_SUIVANTS);
+                ps.setString(1, apres.getNom());
+                ps.setString(2, apres.getNom());
+                ps.setInt(3, apres.getId());
+                ps.setInt(4, limite);
+            }
+            
             ResultSet rs = ps.executeQuery();
             Personnage perso;
             
@@ -85,6 +118,8 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
                 
                 result.add(perso);
             }
+
+            mesure.reussie(result.size());
             
         } catch (SQLException e) {
             throw new DAOException("Erreur d'accès aux personnages "
@@ -93,6 +128,7 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
         } finally {
             CloseStatement(ps);
             closeConnection(link);
+            mesure.terminer();
         }
         
         return result;
@@ -111,11 +147,11 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
         ArrayList<Personnage> persos = new ArrayList<>();
         Connection link = null;
         PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("getPersonnagesJoueur");
 
         try {
-            link = getConnection();
-            statement = link.prepareStatement("SELECT id, nom, profession "
-                    + "FROM Personnage where joueur_id = ? ORDER BY nom");
+            link = getConnectionLecture();
+            statement = prepare(link, Requete.PERSONNAGES_JOUEUR);
             
             statement.setInt(1, j.getId());
             ResultSet rs = statement.executeQuery();
@@ -130,6 +166,8 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
                 persos.add(perso);
             }
 
+            mesure.reussie(persos.size());
+
         } catch (Exception e) {
             throw new DAOException("Erreur d'accès à la liste des personnages "
                     + "possédés : " + e.getMessage(), e);
@@ -137,6 +175,7 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
         }
 
         return persos;
@@ -156,12 +195,11 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
         ArrayList<Personnage> persos = new ArrayList<>();
         Connection link = null;
         PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("getPersonnagesAValider");
 
         try {
-            link = getConnection();
-            statement = link.prepareStatement("SELECT id, nom, profession "
-                    + "FROM Personnage where valide = 0 and validateur_id = ? "
-                    + "ORDER BY nom");
+            link = getConnectionLecture();
+            statement = prepare(link, Requete.PERSONNAGES_A_VALIDER);
             
             statement.setInt(1, j.getId());
             ResultSet res = statement.executeQuery();
@@ -176,6 +214,8 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
                 persos.add(perso);
             }
 
+            mesure.reussie(persos.size());
+
         } catch (Exception e) {
             throw new DAOException("Erreur d'accès à la liste des personnages "
                     + "à valider : " + e.getMessage(), e);
@@ -183,6 +223,7 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
         }
 
         return persos;
@@ -193,12 +234,11 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
         ArrayList<Personnage> persos = new ArrayList<>();
         Connection link = null;
         PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("getTransfertsAValider");
 
         try {
-            link = getConnection();
-            statement = link.prepareStatement("SELECT id, nom, profession "
-                    + "FROM Personnage WHERE transfert_id = ? and mj_id != ? "
-                    + "and valide = 1 ORDER BY nom");
+            link = getConnectionLecture();
+            statement = prepare(link, Requete.TRANSFERTS_A_VALIDER);
             
             statement.setInt(1, j.getId());
             statement.setInt(2, j.getId());
@@ -214,6 +254,8 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
                 persos.add(perso);
             }
 
+            mesure.reussie(persos.size());
+
         } catch (Exception e) {
             throw new DAOException("Erreur d'accès à la liste des transferts "
                     + "à valider : " + e.getMessage(), e);
@@ -221,6 +263,7 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
         }
 
         return persos;
@@ -231,12 +274,11 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
         ArrayList<Personnage> persos = new ArrayList<>();
         Connection link = null;
         PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("getPersonnagesMenes");
 
         try {
-            link = getConnection();
-            statement = link.prepareStatement("SELECT id, nom, profession "
-                    + "FROM Personnage WHERE mj_id = ? and valide = 1 "
-                    + "ORDER BY nom");
+            link = getConnectionLecture();
+            statement = prepare(link, Requete.PERSONNAGES_MENES);
             
             statement.setInt(1, mj.getId());
             ResultSet res = statement.executeQuery();
@@ -251,6 +293,8 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
                 persos.add(perso);
             }
 
+            mesure.reussie(persos.size());
+
         } catch (Exception e) {
             throw new DAOException("Erreur d'accès à la liste des personnages "
                     + "menés : " + e.getMessage(), e);
@@ -258,6 +302,7 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
         }
 
         return persos;
@@ -277,19 +322,11 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
         ArrayList<Personnage> persos = new ArrayList<>();
         Connection link = null;
         PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("getCandidats");
 
         try {
-            link = getConnection();
-            statement = link.prepareStatement("SELECT p.id, p.nom, profession "
-                    + "FROM Personnage p JOIN Univers u on p.univers_id = u.id "
-                    + "LEFT JOIN Participe r on r.personnage_id = p.id "
-                    + "WHERE mj_id = ? AND u.id = ? AND valide = 1 "
-                    + "AND NOT EXISTS (SELECT 1 FROM Aventure a "
-                    + "WHERE r.aventure_id = a.id and finie = 0) "
-                    + "GROUP BY p.id, p.nom, p.profession "
-                    + "HAVING COUNT(p.id) = (SELECT COUNT(p2.id) FROM Personnage p2 "
-                    + "LEFT JOIN Participe s on s.personnage_id = p2.id "
-                    + "WHERE p2.id = p.id) ORDER BY p.nom ");
+            link = getConnectionLecture();
+            statement = prepare(link, Requete.CANDIDATS);
             
             statement.setInt(1, mj.getId());
             statement.setInt(2, u.getId());
@@ -305,6 +342,8 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
                 persos.add(perso);
             }
 
+            mesure.reussie(persos.size());
+
         } catch (Exception e) {
             throw new DAOException("Erreur d'accès à la liste des candidats "
                     + e.getMessage(), e);
@@ -312,65 +351,68 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
         }
 
         return persos;
     }
 
     @Override
-    public void creer(Personnage p, String bio) throws DAOException {
-        Connection link = null;
-        PreparedStatement statement = null;
-
-        try {
-            link = initConnection();
-            
-            statement = link.prepareStatement("INSERT INTO Biographie (texte) VALUES (?)");
-            statement.setString(1, bio);
-            statement.executeUpdate();
-            
-            statement = link.prepareStatement("INSERT INTO Personnage "
-                    + "(naissance, nom, portrait, profession, joueur_id, "
-                    + "univers_id, biographie_id) VALUES (?, ?, ?, ?, ?, ?, "
-                    + "bio_seq.currval)");
-
-            statement.setString(1, p.getNaissance());
-            statement.setString(2, p.getNom());
-            statement.setString(3, p.getPortrait());
-            statement.setString(4, p.getProfession());
-            statement.setInt(5, p.getJoueur().getId());
-            statement.setInt(6, p.getUnivers().getId());
-            statement.executeUpdate();
-            
-            link.commit();
-
-        } catch (Exception e) {
-            rollback();
-            throw new DAOException(e.getMessage(), e);
-
-        } finally {
-            CloseStatement(statement);
-            closeConnection(link);
-        }
+    public void creer(final Personnage p, final String bio) throws DAOException {
+        enTransaction("creer", new Travail<Void>() {
+            @Override
+            protected Void executer(Connection link) throws SQLException {
+                PreparedStatement statement = null;
+
+                try {
+                    statement = prepare(link, Requete.BIOGRAPHIE_INSERT);
+                    statement.setString(1, bio);
+                    statement.executeUpdate();
+
+                    // Identifiant de la biographie créée
+                    ResultSet cles = statement.getGeneratedKeys();
+                    cles.next();
+                    int bioID = cles.getInt(1);
+                    CloseStatement(statement);
+
+                    statement = prepare(link, Requete.PERSONNAGE_INSERT);
+
+                    statement.setString(1, p.getNaissance());
+                    statement.setString(2, p.getNom());
+                    statement.setString(3, p.getPortrait());
+                    statement.setString(4, p.getProfession());
+                    statement.setInt(5, p.getJoueur().getId());
+                    statement.setInt(6, p.getUnivers().getId());
+                    statement.setInt(7, bioID);
+                    statement.executeUpdate();
+
+                } finally {
+                    CloseStatement(statement);
+                }
+
+                return null;
+            }
+        });
     }
 
     @Override
     public Personnage getPersonnage(int id) throws DAOException {
-        Personnage perso = null;
+        // Une requete ayant déjà écrit ne partage pas le cache
+        boolean cacheable = !hasPendingWrites();
+        Personnage perso = cacheable ? cache.get(id) : null;
+
+        if (perso != null) {
+            return copie(perso);
+        }
+
+        long generation = cache.getGeneration();
         Connection link = null;
         PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("getPersonnage");
 
         try {
             link = getConnection();
-            statement = link.prepareStatement("SELECT p.id, p.nom, naissance, "
-                    + "profession, portrait, valide, biographie_id, mj_id, "
-                    + "transfert_id, validateur_id, joueur_id, u.id as u_id, "
-                    + "u.nom as u_nom, j.pseudo as meneur, "
-                    + "o.pseudo as owner FROM Personnage p "
-                    + "JOIN Univers u on p.univers_id = u.id "
-                    + "LEFT JOIN Joueur j on j.id = mj_id "
-                    + "LEFT JOIN Joueur o on o.id = joueur_id "
-                    + "WHERE p.id = ?");
+            statement = prepare(link, Requete.PERSONNAGE);
             
             statement.setInt(1, id);
             ResultSet rs = statement.executeQuery();
@@ -378,22 +420,8 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
             if (!rs.next())
                 throw new Exception("Aucun personnage d'identifiant " + id);
 
-            perso = new Personnage();
-            perso.setId(rs.getInt("id"));
-            perso.setNom(rs.getString("nom"));
-            perso.setNaissance(rs.getString("naissance"));
-            perso.setProfession(rs.getString("profession"));
-            perso.setPortrait(rs.getString("portrait"));
-            perso.setValide(rs.getBoolean("valide"));
-            perso.setBiographie(new Biographie(rs.getInt("biographie_id")));
-            perso.setMj(new Joueur(rs.getInt("mj_id"), rs.getString("meneur")));
-            perso.setJoueur(new Joueur(rs.getInt("joueur_id"), rs.getString("owner")));
-            perso.setTransfert(new Joueur(rs.getInt("transfert_id")));
-            perso.setValidateur(new Joueur(rs.getInt("validateur_id")));
-
-            Univers univers = new Univers(rs.getInt("u_id"),
-                                          rs.getString("u_nom"));
-            perso.setUnivers(univers);
+            perso = lirePersonnage(rs);
+            mesure.reussie(1);
 
         } catch (Exception e) {
             throw new DAOException(e.getMessage(), e);
@@ -401,267 +429,405 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
+        }
+
+        if (cacheable) {
+            cache.put(id, copie(perso), generation);
         }
 
         return perso;
     }
 
-    @Override
-    public void requestValidation(int idPerso, int idMJ, int idUser) throws DAOException {
-        Connection link = null;
-        PreparedStatement statement = null;
-
-        try {
-            // Pas le droit de valider soi-même ses propres personnages
-            if (idMJ == idUser)
-                throw new DAOException("Accès refusé");
-
-            
-            link = initConnection();
-
-            // On vérifie que l'utilisateur a le droit de demander validation
-            statement = link.prepareStatement("SELECT 1 FROM Joueur j join Personnage p "
-                    + "on p.joueur_id = j.id where p.id = ? and j.id = ? and p.valide = 0");
-
-            statement.setInt(1, idPerso);
-            statement.setInt(2, idUser);
-            ResultSet rs = statement.executeQuery();
-
-            if (!rs.next())
-                throw new DAOException("Accès refusé");
-
-
-            statement.close();
-            
-            // On demande la validation
-            statement = link.prepareStatement("UPDATE Personnage "
-                    + "SET validateur_id = ? WHERE id = ?");
-
-            statement.setInt(1, idMJ);
-            statement.setInt(2, idPerso);
-            statement.executeUpdate();
+    /**
+     * Getter du cache de personnages (pour ses statistiques)
+     *
+     * @return Le cache
+     */
+    public LruCache<Integer, Personnage> getCache() {
+        return cache;
+    }
 
-            link.commit();
+    /**
+     * Retire un personnage modifié des caches (personnages et droits), maintenant
+     * et une fois la modification validée.
+     *
+     * @param link    La connexion ayant effectué la modification
+     * @param idPerso Le personnage modifié
+     */
+    private void invalider(Connection link, final int idPerso) {
+        apresCommit(link, new Runnable() {
+            @Override
+            public void run() {
+                cache.remove(idPerso);
+                DroitsDAO.Get().invalider(idPerso);
+            }
+        });
+    }
 
-        } catch (DAOException e) {
-            throw e;
+    /**
+     * Copie d'un personnage du cache : les appelants pouvant modifier
+     * le personnage obtenu, le cache ne partage aucun objet avec eux.
+     *
+     * @param p Le personnage
+     * @return Une copie indépendante
+     */
+    private static Personnage copie(Personnage p) {
+        Personnage perso = new Personnage(p.getId(), p.getNom(),
+                p.getNaissance(), p.getProfession());
+        perso.setPortrait(p.getPortrait());
+        perso.setValide(p.isValide());
+        perso.setVersion(p.getVersion());
+        perso.setBiographie(new Biographie(p.getBiographie().getID()));
+        perso.setMj(copie(p.getMj()));
+        perso.setJoueur(copie(p.getJoueur()));
+        perso.setTransfert(copie(p.getTransfert()));
+        perso.setValidateur(copie(p.getValidateur()));
+        perso.setUnivers(new Univers(p.getUnivers().getId(),
+                                     p.getUnivers().getNom()));
 
-        } catch (SQLException e) {
-            rollback();
-            throw new DAOException(e.getMessage(), e);
+        return perso;
+    }
 
-        } finally {
-            CloseStatement(statement);
-            closeConnection(link);
-        }
+    private static Joueur copie(Joueur j) {
+        return new Joueur(j.getId(), j.getPseudo());
     }
 
+    /**
+     * Charge en une seule requete (par tranche de 1000) les personnages
+     * demandés, dans l'ordre des identifiants fournis.
+     *
+     * @param ids Les identifiants des personnages
+     * @return La liste des personnages trouvés
+     * @throws DAOException
+     */
     @Override
-    public void requestTransfer(int idPerso, int idMJ, int idUser) throws DAOException {
+    public List<Personnage> getPersonnages(Collection<Integer> ids) throws DAOException {
+        List<Integer> distincts = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Integer, Personnage> persos = new HashMap<>();
+        boolean cacheable = !hasPendingWrites();
+        long generation = cache.getGeneration();
         Connection link = null;
         PreparedStatement statement = null;
 
-        try {
-            // Pas le droit de se transférer à soi-même ses propres personnages
-            if (idMJ == idUser)
-                throw new DAOException("Accès refusé");
-
+        // On ne charge que les personnages absents du cache
+        List<Integer> manquants = new ArrayList<>();
 
-            link = initConnection();
+        for (Integer id : distincts) {
+            Personnage perso = cacheable ? cache.get(id) : null;
 
-            // On vérifie que l'utilisateur a le droit de demander un transfert :
-            // - le perso ne doit pas participer à une partie en cours
-            // - doit être propriétaire
-            statement = link.prepareStatement("SELECT 1 FROM Joueur j "
-                    + "JOIN Personnage p on p.joueur_id = j.id "
-                    + "WHERE p.id = ? and j.id = ? and p.valide = 1 "
-                    + "AND NOT EXISTS (SELECT 1 FROM Participe r JOIN "
-                    + "Aventure a on a.id = r.aventure_id "
-                    + "WHERE p.id = r.personnage_id and finie = 0)");
-
-            statement.setInt(1, idPerso);
-            statement.setInt(2, idUser);
-            ResultSet rs = statement.executeQuery();
-
-            if (!rs.next())
-                throw new DAOException("Accès refusé");
-
-            statement.close();
-            
-            // On demande le transfert
-            statement = link.prepareStatement("UPDATE Personnage "
-                    + "SET transfert_id = ? WHERE id = ?");
-
-            statement.setInt(1, idMJ);
-            statement.setInt(2, idPerso);
-            statement.executeUpdate();
+            if (perso != null) {
+                persos.put(id, copie(perso));
+            } else {
+                manquants.add(id);
+            }
+        }
 
-            link.commit();
+        if (manquants.isEmpty()) {
+            return ordonner(distincts, persos);
+        }
 
-        } catch (DAOException e) {
-            throw e;
+        Metriques.Mesure mesure = mesurer("getPersonnagesParIds");
 
-        } catch (SQLException e) {
-            rollback();
-            throw new DAOException(e.getMessage(), e);
+        try {
+            link = getConnection();
 
-        } finally {
-            CloseStatement(statement);
-            closeConnection(link);
-        }
-    }
+            for (int debut = 0; debut < manquants.size(); debut += MAX_IN) {
+                List<Integer> tranche = manquants.subList(debut,
+                        Math.min(debut + MAX_IN, manquants.size()));
 
-    @Override
-    public void acceptValidation(int idPerso, int idUser) throws DAOException {
-        Connection link = null;
-        PreparedStatement statement = null;
+                int taille = 0;
 
-        try {
-            link = initConnection();
+                while (TAILLES_IN[taille] < tranche.size()) {
+                    taille++;
+                }
 
-            // On vérifie que l'utilisateur a le droit de valider
-            statement = link.prepareStatement("SELECT 1 FROM Joueur j join "
-                    + "Aventure a on j.id = a.mj_id join Personnage p "
-                    + "on p.validateur_id = j.id where p.id = ? and j.id = ?");
+                statement = prepare(link, Requete.PERSONNAGES_PAR_IDS,
+                                    TAILLES_IN[taille]);
 
-            statement.setInt(1, idPerso);
-            statement.setInt(2, idUser);
-            ResultSet rs = statement.executeQuery();
+                // Les places restantes répètent le dernier identifiant
+                for (int i = 0; i < TAILLES_IN[taille]; i++) {
+                    statement.setInt(i + 1,
+                            tranche.get(Math.min(i, tranche.size() - 1)));
+                }
 
-            if (!rs.next())
-                throw new DAOException("Accès refusé");
+                ResultSet rs = statement.executeQuery();
 
-            statement.close();
-            
-            // On valide le personnage
-            statement = link.prepareStatement("UPDATE Personnage "
-                    + "SET valide = 1, mj_id = validateur_id WHERE id = ?");
+                while (rs.next()) {
+                    Personnage perso = lirePersonnage(rs);
+                    persos.put(perso.getId(), perso);
 
-            statement.setInt(1, idPerso);
-            statement.executeUpdate();
+                    if (cacheable) {
+                        cache.put(perso.getId(), copie(perso), generation);
+                    }
+                }
 
-            link.commit();
+                CloseStatement(statement);
+                statement = null;
+            }
 
-        } catch (DAOException e) {
-            throw e;
+            mesure.reussie(manquants.size());
 
         } catch (SQLException e) {
-            rollback();
-            throw new DAOException(e.getMessage(), e);
+            throw new DAOException("Erreur d'accès aux personnages "
+                    + e.getMessage(), e);
 
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
         }
+
+        return ordonner(distincts, persos);
     }
 
-    @Override
-    public void acceptTransfer(int idPerso, int idUser) throws DAOException {
-        Connection link = null;
-        PreparedStatement statement = null;
+    /**
+     * Liste les personnages trouvés dans l'ordre des identifiants demandés.
+     *
+     * @param distincts Les identifiants demandés, sans doublon
+     * @param persos    Les personnages trouvés, par identifiant
+     * @return La liste ordonnée
+     */
+    private static List<Personnage> ordonner(List<Integer> distincts,
+            Map<Integer, Personnage> persos) {
+        List<Personnage> result = new ArrayList<>(persos.size());
 
-        try {
-            link = initConnection();
-
-            // On vérifie que l'utilisateur a le droit de valider le transfert :
-            // - le perso ne doit pas participer à une partie en cours
-            // - doit être le MJ concerné
-            statement = link.prepareStatement("SELECT 1 FROM Joueur j join "
-                    + "Aventure a on j.id = a.mj_id join Personnage p "
-                    + "on p.transfert_id = j.id where p.id = ? and j.id = ? "
-                    + "AND NOT EXISTS (SELECT 1 FROM Participe r "
-                    + "WHERE a.id = r.aventure_id and p.id = r.personnage_id "
-                    + "and finie = 0)");
+        for (Integer id : distincts) {
+            Personnage perso = persos.get(id);
 
-            statement.setInt(1, idPerso);
-            statement.setInt(2, idUser);
-            ResultSet rs = statement.executeQuery();
+            if (perso != null) {
+                result.add(perso);
+            }
+        }
 
-            if (!rs.next())
-                throw new DAOException("Accès refusé");
+        return result;
+    }
 
-            statement.close();
+    /**
+     * Construit un personnage complet à partir de la ligne courante
+     * d'une requete commençant par Requete.SELECT_PERSONNAGE.
+     *
+     * @param rs Le résultat positionné sur la ligne
+     * @return Le personnage
+     * @throws SQLException
+     */
+    private static Personnage lirePersonnage(ResultSet rs) throws SQLException {
+        Personnage perso = new Personnage();
+        perso.setId(rs.getInt("id"));
+        perso.setNom(rs.getString("nom"));
+        perso.setNaissance(rs.getString("naissance"));
+        perso.setProfession(rs.getString("profession"));
+        perso.setPortrait(rs.getString("portrait"));
+        perso.setValide(rs.getBoolean("valide"));
+        perso.setVersion(rs.getInt("version"));
+        perso.setBiographie(new Biographie(rs.getInt("biographie_id")));
+        perso.setMj(new Joueur(rs.getInt("mj_id"), rs.getString("meneur")));
+        perso.setJoueur(new Joueur(rs.getInt("joueur_id"), rs.getString("owner")));
+        perso.setTransfert(new Joueur(rs.getInt("transfert_id")));
+        perso.setValidateur(new Joueur(rs.getInt("validateur_id")));
+
+        Univers univers = new Univers(rs.getInt("u_id"),
+                                      rs.getString("u_nom"));
+        perso.setUnivers(univers);
 
-            // On modifie l'id du meneur qui doit valider
-            // les épisodes demandés du personnage
-            statement = link.prepareStatement("UPDATE Episode "
-                    + "SET mj_id = ? WHERE id IN (SELECT e.id FROM Episode e "
-                    + "JOIN Biographie b on e.biographie_id = b.id JOIN "
-                    + "Personnage p on b.id = p.biographie_id WHERE p.id = ? "
-                    + "AND e.mj_id IS NOT NULL)");
+        return perso;
+    }
 
-            statement.setInt(1, idUser);
-            statement.setInt(2, idPerso);
-            statement.executeUpdate();
-            statement.close();
+    @Override
+    public void requestValidation(final int idPerso, final int idMJ,
+            final int idUser) throws DAOException {
+        // Pas le droit de valider soi-même ses propres personnages
+        if (idMJ == idUser)
+            throw new DAOException("Accès refusé");
+
+        enTransaction("requestValidation", new Travail<Void>() {
+            @Override
+            protected Void executer(Connection link)
+                    throws SQLException, DAOException {
+                // On demande la validation, si l'utilisateur
+                // possède le personnage et qu'il n'est pas encore validé
+                PreparedStatement statement = prepare(link,
+                        Requete.PERSONNAGE_DEMANDE_VALIDATION);
+
+                try {
+                    statement.setInt(1, idMJ);
+                    statement.setInt(2, idPerso);
+                    statement.setInt(3, idUser);
+                    verifierDroit(statement.executeUpdate());
+
+                } finally {
+                    CloseStatement(statement);
+                }
+
+                return null;
+            }
 
-            // On change le MJ du personnage
-            statement = link.prepareStatement("UPDATE Personnage "
-                    + "SET mj_id = transfert_id, transfert_id = NULL "
-                    + "WHERE id = ?");
+            @Override
+            protected void termine(Connection link) {
+                invalider(link, idPerso);
+            }
+        });
+    }
 
-            statement.setInt(1, idPerso);
-            statement.executeUpdate();
+    @Override
+    public void requestTransfer(final int idPerso, final int idMJ,
+            final int idUser) throws DAOException {
+        // Pas le droit de se transférer à soi-même ses propres personnages
+        if (idMJ == idUser)
+            throw new DAOException("Accès refusé");
+
+        enTransaction("requestTransfer", new Travail<Void>() {
+            @Override
+            protected Void executer(Connection link)
+                    throws SQLException, DAOException {
+                // On demande le transfert, si l'utilisateur en a le droit :
+                // - le perso ne doit pas participer à une partie en cours
+                // - doit être propriétaire
+                PreparedStatement statement = prepare(link,
+                        Requete.PERSONNAGE_DEMANDE_TRANSFERT);
+
+                try {
+                    statement.setInt(1, idMJ);
+                    statement.setInt(2, idPerso);
+                    statement.setInt(3, idUser);
+                    verifierDroit(statement.executeUpdate());
+
+                } finally {
+                    CloseStatement(statement);
+                }
+
+                return null;
+            }
 
-            link.commit();
+            @Override
+            protected void termine(Connection link) {
+                invalider(link, idPerso);
+            }
+        });
+    }
 
-        } catch (DAOException e) {
-            throw e;
+    @Override
+    public void acceptValidation(final int idPerso, final int idUser)
+            throws DAOException {
+        enTransaction("acceptValidation", new Travail<Void>() {
+            @Override
+            protected Void executer(Connection link)
+                    throws SQLException, DAOException {
+                // On valide le personnage, si l'utilisateur
+                // est le MJ sollicité
+                PreparedStatement statement = prepare(link,
+                        Requete.PERSONNAGE_VALIDATION);
+
+                try {
+                    statement.setInt(1, idPerso);
+                    statement.setInt(2, idUser);
+                    verifierDroit(statement.executeUpdate());
+
+                } finally {
+                    CloseStatement(statement);
+                }
+
+                return null;
+            }
 
-        } catch (SQLException e) {
-            rollback();
-            throw new DAOException(e.getMessage(), e);
+            @Override
+            protected void termine(Connection link) {
+                invalider(link, idPerso);
+            }
+        });
+    }
 
-        } finally {
-            CloseStatement(statement);
-            closeConnection(link);
-        }
+    @Override
+    public void acceptTransfer(final int idPerso, final int idUser)
+            throws DAOException {
+        enTransaction("acceptTransfer", new Travail<Void>() {
+            @Override
+            protected Void executer(Connection link)
+                    throws SQLException, DAOException {
+                PreparedStatement statement = null;
+
+                try {
+                    // On change le MJ du personnage, si l'utilisateur
+                    // a le droit de valider le transfert :
+                    // - le perso ne doit pas participer à une partie en cours
+                    // - doit être le MJ concerné
+                    statement = prepare(link, Requete.PERSONNAGE_TRANSFERT);
+
+                    statement.setInt(1, idPerso);
+                    statement.setInt(2, idUser);
+                    verifierDroit(statement.executeUpdate());
+                    CloseStatement(statement);
+
+                    // On modifie l'id du meneur qui doit valider
+                    // les épisodes demandés du personnage
+                    statement = prepare(link, Requete.EPISODES_TRANSFERT);
+
+                    statement.setInt(1, idUser);
+                    statement.setInt(2, idPerso);
+                    statement.executeUpdate();
+
+                } finally {
+                    CloseStatement(statement);
+                }
+
+                return null;
+            }
+
+            @Override
+            protected void termine(Connection link) {
+                invalider(link, idPerso);
+            }
+        });
     }
 
     @Override
-    public void modifierPersonnage(Personnage p, int idUser)
+    public void modifierPersonnage(final Personnage p, final int idUser)
             throws DAOException, SecurityException {
-        Connection link = null;
-        PreparedStatement statement = null;
+        enTransaction("modifierPersonnage", new Travail<Void>() {
+            @Override
+            protected Void executer(Connection link)
+                    throws SQLException, DAOException {
+                PreparedStatement statement = null;
 
-        try {
-            link = initConnection();
+                try {
+                    // On modifie le personnage, si l'utilisateur en est
+                    // propriétaire et qu'il n'a pas changé entre temps
+                    statement = prepare(link, Requete.PERSONNAGE_MODIFICATION);
 
-            // On vérifie que l'utilisateur est bien propriétaire du personnage
-            statement = link.prepareStatement("SELECT 1 FROM Joueur j "
-                    + "JOIN Personnage p on p.joueur_id = j.id "
-                    + "WHERE p.id = ? and j.id = ?");
+                    statement.setString(1, p.getProfession());
+                    statement.setInt(2, p.getId());
+                    statement.setInt(3, idUser);
+                    statement.setInt(4, p.getVersion());
 
-            statement.setInt(1, p.getId());
-            statement.setInt(2, idUser);
-            ResultSet rs = statement.executeQuery();
+                    if (statement.executeUpdate() > 0)
+                        return null;
 
-            if (!rs.next())
-                throw new SecurityException("Accès refusé");
+                    CloseStatement(statement);
 
-            statement.close();
-            
-            // On modifie le personnage
-            statement = link.prepareStatement("UPDATE Personnage "
-                    + "SET profession = ? WHERE id = ?");
+                    // Echec : refus d'accès ou modification concurrente
+                    statement = prepare(link, Requete.DROIT_MODIFICATION);
 
-            statement.setString(1, p.getProfession());
-            statement.setInt(2, p.getId());
-            statement.executeUpdate();
+                    statement.setInt(1, p.getId());
+                    statement.setInt(2, idUser);
+                    ResultSet rs = statement.executeQuery();
 
-            link.commit();
+                    if (!rs.next())
+                        throw new SecurityException("Accès refusé");
 
-        } catch (SecurityException se) {
-            throw se;
+                    verifierVersion(0);
 
-        } catch (SQLException e) {
-            rollback();
-            throw new DAOException(e.getMessage(), e);
+                } finally {
+                    CloseStatement(statement);
+                }
 
-        } finally {
-            CloseStatement(statement);
-            closeConnection(link);
-        }
+                return null;
+            }
+
+            @Override
+            protected void termine(Connection link) {
+                invalider(link, p.getId());
+            }
+        });
     }
 
     /**
@@ -673,54 +839,37 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
      * @throws DAOException
      */
     @Override
-    public void donnerPersonnage(int idPerso, int idDest, int idUser) throws DAOException {
-        Connection link = null;
-        PreparedStatement statement = null;
-
-        try {
-            link = initConnection();
-
-            // On vérifie que le destinataire a le droit de 
-            // recevoir ce personnage et que cet utilisateur 
-            // en est bien le propriétaire
-            statement = link.prepareStatement("SELECT 1 "
-                    + "FROM Joueur j, Personnage p "
-                    + "WHERE j.id = ? AND p.id = ? AND joueur_id = ? "
-                    + "AND (p.joueur_id != j.id "
-                    + "OR p.joueur_id IS NULL) AND (p.mj_id != j.id "
-                    + "OR p.mj_id IS NULL)");
-
-            statement.setInt(1, idDest);
-            statement.setInt(2, idPerso);
-            statement.setInt(3, idUser);
-            ResultSet rs = statement.executeQuery();
-
-            if (!rs.next())
-                throw new DAOException("Accès refusé");
-
-
-            CloseStatement(statement);
-            statement = link.prepareStatement("UPDATE Personnage "
-                    + "SET joueur_id = ?, transfert_id = NULL, "
-                    + "validateur_id = NULL WHERE id = ?");
-
-            statement.setInt(1, idDest);
-            statement.setInt(2, idPerso);
-            statement.executeUpdate();
-
-            link.commit();
-
-        } catch (DAOException e) {
-            throw e;
-
-        } catch (SQLException e) {
-            rollback();
-            throw new DAOException(e.getMessage(), e);
+    public void donnerPersonnage(final int idPerso, final int idDest,
+            final int idUser) throws DAOException {
+        enTransaction("donnerPersonnage", new Travail<Void>() {
+            @Override
+            protected Void executer(Connection link)
+                    throws SQLException, DAOException {
+                // On donne le personnage, si le destinataire a le droit
+                // de le recevoir et que cet utilisateur
+                // en est bien le propriétaire
+                PreparedStatement statement = prepare(link,
+                        Requete.PERSONNAGE_DON);
+
+                try {
+                    statement.setInt(1, idDest);
+                    statement.setInt(2, idPerso);
+                    statement.setInt(3, idUser);
+                    statement.setInt(4, idDest);
+                    verifierDroit(statement.executeUpdate());
+
+                } finally {
+                    CloseStatement(statement);
+                }
+
+                return null;
+            }
 
-        } finally {
-            CloseStatement(statement);
-            closeConnection(link);
-        }
+            @Override
+            protected void termine(Connection link) {
+                invalider(link, idPerso);
+            }
+        });
     }
 
     @Override
@@ -728,17 +877,16 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
         boolean result = true;
         Connection link = null;
         PreparedStatement statement = null;
+        Metriques.Mesure mesure = mesurer("dansPartieEnCours");
 
         try {
             link = getConnection();
-            statement = link.prepareStatement("SELECT 1 FROM Personnage p "
-                    + "JOIN Participe r on p.id = r.personnage_id JOIN "
-                    + "Aventure a on a.id = r.aventure_id "
-                    + "WHERE finie = 0 AND p.id = ?");
+            statement = prepare(link, Requete.PERSONNAGE_EN_PARTIE);
 
             statement.setInt(1, idPerso);
             ResultSet rs = statement.executeQuery();
             result = rs.next();
+            mesure.reussie(result ? 1 : 0);
 
         } catch (SQLException e) {
             throw new DAOException(e.getMessage(), e);
@@ -746,6 +894,7 @@ public final class PersonnageDAO extends AbstractPersonnageDAO {
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
         }
 
         return result;
@@ -0,0 +1,18 @@
+package dao;
+
+import java.sql.Connection;
+
+/**
+ * Connexion empruntée au pool interne (cf. PooledDataSource).
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+interface PoolHandle {
+
+    /**
+     * Getter de la connexion enveloppée, stable d'un emprunt à l'autre
+     *
+     * @return La connexion d'origine
+     */
+    Connection getDelegate();
+}
@@ -0,0 +1,506 @@
+package dao;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Pool de connexions instrumenté, optionnel, placé devant le
+ * datasource du conteneur (activé par le paramètre rpg.pool du web.xml).
+ *
+ * Les connexions physiques sont empruntées au datasource d'origine et
+ * conservées ; le pool mesure les temps d'attente, signale les
+ * connexions gardées trop longtemps et ajuste sa taille entre min et max
+ * selon la contention observée.
+ * Le datasource d'origine doit autoriser au moins max connexions.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public final class PooledDataSource implements DataSource {
+
+    private static final Logger LOG = Logger.getLogger(PooledDataSource.class.getName());
+
+    /**
+     * Bornes (en ms) des classes de l'histogramme des temps d'attente
+     */
+    private static final long[] BORNES_ATTENTE = {1, 5, 10, 50, 100, 500, 1000, 5000};
+
+    /**
+     * Le singleton
+     */
+    private static PooledDataSource instance;
+
+    private final DataSource source;
+    private final int min;
+    private final int max;
+    private final long attenteMax;
+    private final long dureeFuite;
+
+    /**
+     * Taille courante autorisée, entre min et max
+     */
+    private int limite;
+
+    private int total;
+    private int enAttente;
+    private boolean ferme;
+    private final Deque<Connection> libres = new ArrayDeque<>();
+    private final Map<Emprunt, Boolean> empruntees = new LinkedHashMap<>();
+
+    private final AtomicLongArray histogramme
+            = new AtomicLongArray(BORNES_ATTENTE.length + 1);
+    private long emprunts;
+    private long expirations;
+    private long fuites;
+
+    /**
+     * Contention depuis le dernier ajustement de taille
+     */
+    private long attentesPeriode;
+    private int picPeriode;
+
+    private final ScheduledExecutorService surveillance;
+
+    /**
+     * Une connexion empruntée
+     */
+    private final class Emprunt implements InvocationHandler {
+        final Connection connexion;
+        final long debut = System.currentTimeMillis();
+        final String thread = Thread.currentThread().getName();
+        final Throwable pile;
+        boolean signale;
+        boolean rendue;
+
+        Emprunt(Connection connexion) {
+            this.connexion = connexion;
+            this.pile = dureeFuite > 0
+                    ? new Throwable("Emprunt de la connexion") : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    rendre(this);
+                    return null;
+
+                case "isClosed":
+                    return rendue || connexion.isClosed();
+
+                case "getDelegate":
+                    return connexion;
+
+                case "equals":
+                    return proxy == args[0];
+
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+
+                case "toString":
+                    return "Emprunt[" + connexion + "]";
+            }
+
+            if (rendue) {
+                throw new SQLException("Connexion rendue au pool");
+            }
+
+            try {
+                return method.invoke(connexion, args);
+
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Constructeur privé du singleton
+     */
+    private PooledDataSource(DataSource source, int min, int max,
+            long attenteMax, long dureeFuite) {
+        this.source = source;
+        this.min = Math.max(0, min);
+        this.max = Math.max(1, Math.max(min, max));
+        this.attenteMax = attenteMax;
+        this.dureeFuite = dureeFuite;
+        this.limite = Math.max(1, this.min);
+
+        surveillance = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "rpg-pool");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        surveillance.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                surveiller();
+            }
+        }, 5, 5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Crée le singleton
+     *
+     * @param source     Le datasource d'origine
+     * @param min        Le nombre minimal de connexions conservées
+     * @param max        Le nombre maximal de connexions
+     * @param attenteMax L'attente maximale d'une connexion (ms)
+     * @param dureeFuite La durée d'emprunt signalée comme fuite (ms, 0 : jamais)
+     * @return Le singleton
+     */
+    public static synchronized PooledDataSource Create(DataSource source,
+            int min, int max, long attenteMax, long dureeFuite) {
+        if (instance == null) {
+            instance = new PooledDataSource(source, min, max,
+                                            attenteMax, dureeFuite);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Getter du singleton
+     *
+     * @return Le singleton, null si le pool n'est pas activé
+     */
+    public static synchronized PooledDataSource Get() {
+        return instance;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long debut = System.nanoTime();
+        Connection physique = null;
+        boolean creer = false;
+
+        synchronized (this) {
+            long reste = attenteMax;
+            long limiteAttente = System.currentTimeMillis() + attenteMax;
+
+            while (!ferme && libres.isEmpty() && total >= limite) {
+                if (reste <= 0) {
+                    expirations++;
+                    throw new SQLException("Aucune connexion disponible "
+                            + "après " + attenteMax + " ms");
+                }
+
+                if (reste == attenteMax) {
+                    attentesPeriode++;
+                }
+
+                enAttente++;
+
+                try {
+                    wait(reste);
+
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Attente de connexion interrompue", e);
+
+                } finally {
+                    enAttente--;
+                }
+
+                reste = limiteAttente - System.currentTimeMillis();
+            }
+
+            if (ferme) {
+                throw new SQLException("Pool de connexions fermé");
+            }
+
+            if (!libres.isEmpty()) {
+                physique = libres.pop();
+            } else {
+                total++;
+                creer = true;
+            }
+        }
+
+        try {
+            if (creer) {
+                physique = source.getConnection();
+
+            } else if (physique.isClosed()) {
+                physique.close();
+                physique = source.getConnection();
+            }
+
+        } catch (SQLException | RuntimeException e) {
+            synchronized (this) {
+                total--;
+                notifyAll();
+            }
+
+            throw e;
+        }
+
+        noterAttente((System.nanoTime() - debut) / 1000000);
+
+        Emprunt emprunt = new Emprunt(physique);
+
+        synchronized (this) {
+            emprunts++;
+            empruntees.put(emprunt, Boolean.TRUE);
+            picPeriode = Math.max(picPeriode, empruntees.size());
+        }
+
+        return (Connection) Proxy.newProxyInstance(
+                PooledDataSource.class.getClassLoader(),
+                new Class<?>[] {Connection.class, PoolHandle.class}, emprunt);
+    }
+
+    /**
+     * Rend une connexion au pool après l'avoir remise à son état initial.
+     *
+     * @param emprunt La connexion empruntée
+     */
+    private void rendre(Emprunt emprunt) {
+        synchronized (this) {
+            if (emprunt.rendue) {
+                return;
+            }
+
+            emprunt.rendue = true;
+            empruntees.remove(emprunt);
+        }
+
+        Connection c = emprunt.connexion;
+        boolean reutilisable;
+
+        try {
+            if (!c.getAutoCommit()) {
+                c.rollback();
+                c.setAutoCommit(true);
+            }
+
+            reutilisable = !c.isClosed();
+
+        } catch (SQLException e) {
+            reutilisable = false;
+        }
+
+        synchronized (this) {
+            if (reutilisable && !ferme && total <= limite) {
+                libres.push(c);
+                c = null;
+            } else {
+                total--;
+            }
+
+            notifyAll();
+        }
+
+        fermer(c);
+    }
+
+    private static void fermer(Connection c) {
+        if (c != null) {
+            try {
+                c.close();
+            } catch (SQLException e) {}
+        }
+    }
+
+    private void noterAttente(long ms) {
+        int i = 0;
+
+        while (i < BORNES_ATTENTE.length && ms > BORNES_ATTENTE[i]) {
+            i++;
+        }
+
+        histogramme.incrementAndGet(i);
+    }
+
+    /**
+     * Tâche périodique : signalement des fuites et ajustement de la taille.
+     */
+    private void surveiller() {
+        List<Emprunt> suspects = new ArrayList<>();
+        List<Connection> enTrop = new ArrayList<>();
+        long maintenant = System.currentTimeMillis();
+
+        synchronized (this) {
+            if (dureeFuite > 0) {
+                for (Emprunt e : empruntees.keySet()) {
+                    if (!e.signale && maintenant - e.debut > dureeFuite) {
+                        e.signale = true;
+                        fuites++;
+                        suspects.add(e);
+                    }
+                }
+            }
+
+            // Des threads ont attendu : on autorise une connexion de plus
+            if (attentesPeriode > 0 && limite < max) {
+                limite++;
+                notifyAll();
+            }
+
+            // Pool sous-utilisé : on rend une connexion inutile
+            else if (attentesPeriode == 0 && picPeriode < limite - 1
+                     && limite > Math.max(1, min)) {
+                limite--;
+            }
+
+            while (total > limite && !libres.isEmpty()) {
+                enTrop.add(libres.removeLast());
+                total--;
+            }
+
+            attentesPeriode = 0;
+            picPeriode = empruntees.size();
+        }
+
+        for (Connection c : enTrop) {
+            fermer(c);
+        }
+
+        for (Emprunt e : suspects) {
+            signaler(e, maintenant);
+        }
+    }
+
+    private static void signaler(Emprunt e, long maintenant) {
+        LOG.log(Level.WARNING, "Connexion empruntée par " + e.thread
+                + " depuis " + (maintenant - e.debut) + " ms", e.pile);
+    }
+
+    /**
+     * Ferme le pool et toutes les connexions libres.
+     * Les connexions encore empruntées sont fermées à leur restitution.
+     */
+    public void close() {
+        List<Connection> aFermer;
+
+        synchronized (this) {
+            ferme = true;
+            aFermer = new ArrayList<>(libres);
+            total -= libres.size();
+            libres.clear();
+            notifyAll();
+        }
+
+        surveillance.shutdownNow();
+
+        for (Connection c : aFermer) {
+            fermer(c);
+        }
+
+        synchronized (PooledDataSource.class) {
+            if (instance == this) {
+                instance = null;
+            }
+        }
+    }
+
+    /**
+     * Etat courant du pool, au format texte (une métrique par ligne).
+     *
+     * @return Les métriques
+     */
+    public synchronized String getStatistiques() {
+        StringBuilder sb = new StringBuilder();
+        long maintenant = System.currentTimeMillis();
+
+        sb.append("pool.actives ").append(empruntees.size()).append('\n');
+        sb.append("pool.libres ").append(libres.size()).append('\n');
+        sb.append("pool.total ").append(total).append('\n');
+        sb.append("pool.limite ").append(limite).append('\n');
+        sb.append("pool.min ").append(min).append('\n');
+        sb.append("pool.max ").append(max).append('\n');
+        sb.append("pool.en_attente ").append(enAttente).append('\n');
+        sb.append("pool.emprunts ").append(emprunts).append('\n');
+        sb.append("pool.expirations ").append(expirations).append('\n');
+        sb.append("pool.fuites ").append(fuites).append('\n');
+
+        for (int i = 0; i <= BORNES_ATTENTE.length; i++) {
+            sb.append("pool.attente_ms{")
+              .append(i < BORNES_ATTENTE.length
+                      ? "le=" + BORNES_ATTENTE[i] : "le=+Inf")
+              .append("} ").append(histogramme.get(i)).append('\n');
+        }
+
+        for (Emprunt e : empruntees.keySet()) {
+            sb.append("pool.emprunt ").append(e.thread).append(' ')
+              .append(maintenant - e.debut).append(" ms\n");
+
+            if (e.signale && e.pile != null) {
+                for (StackTraceElement el : e.pile.getStackTrace()) {
+                    sb.append("\tat ").append(el).append('\n');
+                }
+            }
+        }
+
+        return sb.toString();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password)
+            throws SQLException {
+        throw new SQLFeatureNotSupportedException("Identifiants fixés par le conteneur");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return source.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        source.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        source.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return source.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return LOG.getParent();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+
+        return source.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || source.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,155 @@
+package dao;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Politique de reprise des transactions d'écriture (cf. AbstractDAO.enTransaction)
+ * sur échec transitoire : interblocage ou annulation de transaction.
+ *
+ * En READ COMMITTED, ces échecs sont signalés par l'ordre SQL en cause et
+ * non au commit : le commit de fin de requete (RequestTransaction.end)
+ * n'est pas rejoué.
+ *
+ * L'attente avant chaque nouvelle tentative est tirée au hasard entre 0
+ * et un plafond doublé à chaque échec (« full jitter »), pour que les
+ * transactions en conflit ne se retrouvent pas de nouveau simultanément.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public final class Reprise {
+
+    /**
+     * Nombre maximal d'exécutions d'une unité de travail
+     */
+    static final int TENTATIVES_MAX = 4;
+
+    /**
+     * Plafond de la première attente (ms)
+     */
+    private static final long ATTENTE_BASE = 10;
+
+    /**
+     * Plafond de toutes les attentes (ms)
+     */
+    private static final long ATTENTE_MAX = 200;
+
+    /**
+     * Codes d'erreur Oracle transitoires : ORA-00060 (interblocage)
+     */
+    private static final int[] ERREURS_ORACLE = {60};
+
+    private static final AtomicLong unites = new AtomicLong();
+    private static final AtomicLong reprises = new AtomicLong();
+    private static final AtomicLong abandons = new AtomicLong();
+
+    /**
+     * Nombre de reprises de chaque unité de travail, par nom
+     */
+    private static final ConcurrentHashMap<String, AtomicLong> reprisesParUnite
+            = new ConcurrentHashMap<>();
+
+    private Reprise() {
+    }
+
+    /**
+     * Indique si une erreur justifie de rejouer la transaction :
+     * classe SQLSTATE 40 (annulation de transaction) ou code Oracle
+     * transitoire, sur l'exception ou l'une de ses suivantes.
+     *
+     * @param e L'erreur
+     * @return true si une nouvelle tentative peut réussir
+     */
+    static boolean estTransitoire(SQLException e) {
+        for (SQLException ex = e; ex != null; ex = ex.getNextException()) {
+            if (ex instanceof SQLTransactionRollbackException) {
+                return true;
+            }
+
+            String etat = ex.getSQLState();
+
+            if (etat != null && etat.startsWith("40")) {
+                return true;
+            }
+
+            for (int code : ERREURS_ORACLE) {
+                if (ex.getErrorCode() == code) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Comptabilise le lancement d'une unité de travail.
+     */
+    static void debut() {
+        unites.incrementAndGet();
+    }
+
+    /**
+     * Comptabilise l'échec définitif d'une unité de travail
+     * après TENTATIVES_MAX échecs transitoires.
+     */
+    static void abandon() {
+        abandons.incrementAndGet();
+    }
+
+    /**
+     * Comptabilise une reprise puis attend avant la tentative suivante.
+     *
+     * @param nom       Le nom de l'unité de travail
+     * @param tentative Le numéro de la tentative qui vient d'échouer
+     * @throws DAOException si le thread est interrompu pendant l'attente
+     */
+    static void attendre(String nom, int tentative) throws DAOException {
+        reprises.incrementAndGet();
+
+        AtomicLong compteur = reprisesParUnite.get(nom);
+
+        if (compteur == null) {
+            reprisesParUnite.putIfAbsent(nom, new AtomicLong());
+            compteur = reprisesParUnite.get(nom);
+        }
+
+        compteur.incrementAndGet();
+
+        long plafond = Math.min(ATTENTE_MAX, ATTENTE_BASE << (tentative - 1));
+
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(plafond + 1));
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DAOException("Reprise interrompue", e);
+        }
+    }
+
+    /**
+     * Compteurs de reprise, au format texte (une métrique par ligne).
+     *
+     * @return Les métriques
+     */
+    public static String getStatistiques() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("reprises.unites ").append(unites.get()).append('\n');
+        sb.append("reprises.total ").append(reprises.get()).append('\n');
+        sb.append("reprises.abandons ").append(abandons.get()).append('\n');
+
+        for (Map.Entry<String, AtomicLong> e
+                : new TreeMap<>(reprisesParUnite).entrySet()) {
+            sb.append("reprises.").append(e.getKey()).append(' ')
+              .append(e.getValue().get()).append('\n');
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,245 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+
+/**
+ * Transaction attachée à la requete HTTP en cours de traitement.
+ *
+ * Une seule connexion est empruntée au pool pour toute la requete,
+ * elle est partagée par tous les DAO appelés dans le même thread
+ * et validée par un unique commit en fin de requete.
+ * Les lectures routées vers la réplique (cf. AbstractDAO.getConnectionLecture)
+ * partagent de même une seconde connexion.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public final class RequestTransaction {
+
+    /**
+     * La transaction du thread courant
+     */
+    private static final ThreadLocal<RequestTransaction> current = new ThreadLocal<>();
+
+    private Connection link;
+    private Connection lecture;
+    private boolean ecriture;
+    private final long derniereEcriture;
+    private boolean rollbackOnly;
+    private final List<Runnable> apresCommit = new ArrayList<>();
+
+    private RequestTransaction(long derniereEcriture) {
+        this.derniereEcriture = derniereEcriture;
+    }
+
+    /**
+     * Ouvre une transaction pour le thread courant.
+     * La connexion n'est empruntée qu'au premier accès d'un DAO.
+     *
+     * @return La transaction ouverte
+     */
+    public static RequestTransaction Begin() {
+        return Begin(0);
+    }
+
+    /**
+     * Ouvre une transaction pour le thread courant, pour une session
+     * ayant validé des écritures à la date donnée : ses lectures
+     * restent sur la base principale tant que la réplique peut ne pas
+     * les avoir reçues.
+     *
+     * @param derniereEcriture La date (ms) du dernier commit de la session,
+     *                         0 si aucun
+     * @return La transaction ouverte
+     */
+    public static RequestTransaction Begin(long derniereEcriture) {
+        RequestTransaction tx = new RequestTransaction(derniereEcriture);
+        current.set(tx);
+
+        return tx;
+    }
+
+    /**
+     * Getter de la transaction du thread courant
+     *
+     * @return La transaction, null si aucune n'est ouverte
+     */
+    public static RequestTransaction Get() {
+        return current.get();
+    }
+
+    /**
+     * Récupère la connexion partagée, en l'ouvrant si besoin.
+     *
+     * @param ds    Le datasource d'accès bdd
+     * @param write true si la connexion est destinée à une écriture
+     * @return La connexion de la requete
+     * @throws SQLException
+     */
+    Connection getConnection(DataSource ds, boolean write) throws SQLException {
+        if (link == null) {
+            link = ds.getConnection();
+            link.setAutoCommit(false);
+            AbstractDAO.isoler(link);
+        }
+
+        if (write) {
+            ecriture = true;
+        }
+
+        return link;
+    }
+
+    /**
+     * Récupère la connexion de lecture sur la réplique, en l'ouvrant si besoin.
+     *
+     * @param replique Le datasource de la réplique
+     * @return La connexion de lecture de la requete
+     * @throws SQLException
+     */
+    Connection getLecture(DataSource replique) throws SQLException {
+        if (lecture == null) {
+            lecture = replique.getConnection();
+            lecture.setAutoCommit(false);
+            lecture.setReadOnly(true);
+            AbstractDAO.isoler(lecture);
+        }
+
+        return lecture;
+    }
+
+    /**
+     * Indique si les lectures peuvent être servies par la réplique :
+     * aucune écriture dans cette requete, ni dans la session depuis
+     * moins de delai ms.
+     *
+     * @param delai Le retard maximal de la réplique (ms)
+     * @return true si la réplique voit toutes les écritures de la session
+     */
+    boolean peutLireReplique(long delai) {
+        return !ecriture
+                && System.currentTimeMillis() - derniereEcriture > delai;
+    }
+
+    /**
+     * Indique si la connexion donnée est l'une de celles de cette transaction.
+     *
+     * @param c La connexion
+     * @return true si elle est partagée par la requete
+     */
+    boolean owns(Connection c) {
+        return c != null && (c == link || c == lecture);
+    }
+
+    /**
+     * Indique si la transaction a déjà effectué des écritures
+     * (non encore validées).
+     *
+     * @return true après le premier accès en écriture
+     */
+    boolean hasWrites() {
+        return ecriture;
+    }
+
+    /**
+     * Enregistre une action à exécuter une fois la transaction validée
+     * (invalidation de cache par exemple). Elle est ignorée en cas
+     * d'annulation.
+     *
+     * @param action L'action
+     */
+    void apresCommit(Runnable action) {
+        apresCommit.add(action);
+    }
+
+    /**
+     * Annule tout le travail effectué pour qu'une unité de travail soit
+     * rejouée depuis le début de la transaction (cf. AbstractDAO.enTransaction).
+     * Les actions enregistrées par apresCommit sont conservées : elles
+     * sont idempotentes.
+     *
+     * @throws SQLException
+     */
+    void recommencer() throws SQLException {
+        if (link != null) {
+            link.rollback();
+        }
+    }
+
+    /**
+     * Annule immédiatement le travail effectué et interdit
+     * tout commit ultérieur dans cette transaction.
+     *
+     * @throws SQLException
+     */
+    void rollback() throws SQLException {
+        rollbackOnly = true;
+
+        if (link != null) {
+            link.rollback();
+        }
+    }
+
+    /**
+     * Termine la transaction : commit (ou rollback si une erreur
+     * est survenue) puis restitution des connexions au pool.
+     *
+     * @param success false pour forcer l'annulation
+     * @return true si des écritures ont été validées
+     * @throws DAOException si problème lors du commit
+     */
+    public boolean end(boolean success) throws DAOException {
+        current.remove();
+
+        if (lecture != null) {
+            try {
+                lecture.rollback();
+                lecture.close();
+
+            } catch (SQLException ex) {}
+
+            lecture = null;
+        }
+
+        if (link == null) {
+            return false;
+        }
+
+        boolean valide = false;
+
+        try {
+            if (success && !rollbackOnly) {
+                link.commit();
+                valide = true;
+            } else {
+                link.rollback();
+            }
+
+        } catch (SQLException sqle) {
+            try {
+                link.rollback();
+            } catch (SQLException ex) {}
+
+            throw new DAOException("Erreur de commit", sqle);
+
+        } finally {
+            try {
+                link.close();
+
+            } catch (SQLException ex) {}
+
+            link = null;
+        }
+
+        if (valide) {
+            for (Runnable action : apresCommit) {
+                action.run();
+            }
+        }
+
+        return valide && ecriture;
+    }
+}
@@ -0,0 +1,320 @@
+package dao;
+
+/**
+ * Catalogue des requetes SQL utilisées par les DAO.
+ *
+ * Chaque requete est identifiée par son nom, qui sert de clé
+ * au cache de requetes préparées (cf. StatementCache).
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public enum Requete {
+
+    // PersonnageDAO
+    PERSONNAGES_PREMIERS(Forme.PAGE, "SELECT id, nom, profession "
+            + "FROM Personnage ORDER BY nom, id"),
+    PERSONNAGES_SUIVANTS(Forme.PAGE, "SELECT id, nom, profession "
+            + "FROM Personnage WHERE nom >= ? AND (nom > ? OR id > ?) "
+            + "ORDER BY nom, id"),
+    PERSONNAGES_JOUEUR("SELECT id, nom, profession "
+            + "FROM Personnage where joueur_id = ? ORDER BY nom"),
+    PERSONNAGES_A_VALIDER("SELECT id, nom, profession "
+            + "FROM Personnage where valide = 0 and validateur_id = ? "
+            + "ORDER BY nom"),
+    TRANSFERTS_A_VALIDER("SELECT id, nom, profession "
+            + "FROM Personnage WHERE transfert_id = ? and mj_id != ? "
+            + "and valide = 1 ORDER BY nom"),
+    PERSONNAGES_MENES("SELECT id, nom, profession "
+            + "FROM Personnage WHERE mj_id = ? and valide = 1 "
+            + "ORDER BY nom"),
+    CANDIDATS("SELECT p.id, p.nom, profession "
+            + "FROM Personnage p JOIN Univers u on p.univers_id = u.id "
+            + "LEFT JOIN Participe r on r.personnage_id = p.id "
+            + "WHERE mj_id = ? AND u.id = ? AND valide = 1 "
+            + "AND NOT EXISTS (SELECT 1 FROM Aventure a "
+            + "WHERE r.aventure_id = a.id and finie = 0) "
+            + "GROUP BY p.id, p.nom, p.profession "
+            + "HAVING COUNT(p.id) = (SELECT COUNT(p2.id) FROM Personnage p2 "
+            + "LEFT JOIN Participe s on s.personnage_id = p2.id "
+            + "WHERE p2.id = p.id) ORDER BY p.nom "),
+    BIOGRAPHIE_INSERT(Forme.CLE_GENEREE,
+            "INSERT INTO Biographie (texte) VALUES (?)"),
+    PERSONNAGE_INSERT("INSERT INTO Personnage "
+            + "(naissance, nom, portrait, profession, joueur_id, "
+            + "univers_id, biographie_id) VALUES (?, ?, ?, ?, ?, ?, ?)"),
+    PERSONNAGE(Requete.SELECT_PERSONNAGE
+            + "WHERE p.id = ?"),
+    PERSONNAGES_PAR_IDS(Requete.SELECT_PERSONNAGE
+            + "WHERE p.id IN (%s)"),
+    PERSONNAGE_DEMANDE_VALIDATION("UPDATE Personnage p "
+            + "SET validateur_id = ?, version = version + 1 "
+            + "WHERE p.id = ? AND p.joueur_id = ? AND p.valide = 0"),
+    PERSONNAGE_DEMANDE_TRANSFERT("UPDATE Personnage p "
+            + "SET transfert_id = ?, version = version + 1 "
+            + "WHERE p.id = ? AND p.joueur_id = ? AND p.valide = 1 "
+            + "AND NOT EXISTS (SELECT 1 FROM Participe r JOIN "
+            + "Aventure a on a.id = r.aventure_id "
+            + "WHERE p.id = r.personnage_id and finie = 0)"),
+    PERSONNAGE_VALIDATION("UPDATE Personnage p "
+            + "SET valide = 1, mj_id = validateur_id, version = version + 1 "
+            + "WHERE p.id = ? AND p.validateur_id = ? "
+            + "AND EXISTS (SELECT 1 FROM Aventure a "
+            + "WHERE a.mj_id = p.validateur_id)"),
+    PERSONNAGE_TRANSFERT("UPDATE Personnage p "
+            + "SET mj_id = transfert_id, transfert_id = NULL, "
+            + "version = version + 1 "
+            + "WHERE p.id = ? AND p.transfert_id = ? "
+            + "AND EXISTS (SELECT 1 FROM Aventure a "
+            + "WHERE a.mj_id = p.transfert_id "
+            + "AND NOT EXISTS (SELECT 1 FROM Participe r "
+            + "WHERE a.id = r.aventure_id and p.id = r.personnage_id "
+            + "and finie = 0))"),
+    EPISODES_TRANSFERT("UPDATE Episode "
+            + "SET mj_id = ?, version = version + 1 "
+            + "WHERE id IN (SELECT e.id FROM Episode e "
+            + "JOIN Biographie b on e.biographie_id = b.id JOIN "
+            + "Personnage p on b.id = p.biographie_id WHERE p.id = ? "
+            + "AND e.mj_id IS NOT NULL)"),
+    DROIT_MODIFICATION("SELECT 1 FROM Joueur j "
+            + "JOIN Personnage p on p.joueur_id = j.id "
+            + "WHERE p.id = ? and j.id = ?"),
+    PERSONNAGE_MODIFICATION("UPDATE Personnage "
+            + "SET profession = ?, version = version + 1 "
+            + "WHERE id = ? AND joueur_id = ? AND version = ?"),
+    PERSONNAGE_DON("UPDATE Personnage p "
+            + "SET joueur_id = ?, transfert_id = NULL, "
+            + "validateur_id = NULL, version = version + 1 "
+            + "WHERE p.id = ? AND p.joueur_id = ? "
+            + "AND EXISTS (SELECT 1 FROM Joueur j WHERE j.id = ? "
+            + "AND (p.joueur_id != j.id "
+            + "OR p.joueur_id IS NULL) AND (p.mj_id != j.id "
+            + "OR p.mj_id IS NULL))"),
+    PERSONNAGE_EN_PARTIE("SELECT 1 FROM Personnage p "
+            + "JOIN Participe r on p.id = r.personnage_id JOIN "
+            + "Aventure a on a.id = r.aventure_id "
+            + "WHERE finie = 0 AND p.id = ?"),
+
+    // AventureDAO
+    AVENTURE_INSERT("INSERT INTO Aventure "
+            + "(adate, lieu, situation, titre, mj_id, univers_id) "
+            + " VALUES (?, ?, ?, ?, ?, ?)"),
+    AVENTURES_PREMIERES(Forme.PAGE, "SELECT id, titre, finie "
+            + "FROM Aventure ORDER BY finie, titre, id"),
+    AVENTURES_SUIVANTES(Forme.PAGE, "SELECT id, titre, finie "
+            + "FROM Aventure WHERE finie >= ? AND (finie > ? "
+            + "OR (titre >= ? AND (titre > ? OR id > ?))) "
+            + "ORDER BY finie, titre, id"),
+    PARTIES_MENEES("SELECT a.id, titre, finie "
+            + "FROM Aventure a JOIN Joueur j on a.mj_id = j.id "
+            + "WHERE j.id = ? ORDER BY finie, titre"),
+    AVENTURES_ASSOCIEES("SELECT a.id, a.titre "
+            + "FROM Participe p JOIN Aventure a "
+            + "on p.aventure_id = a.id WHERE personnage_id = ? "
+            + "AND finie = 1 ORDER BY a.titre"),
+    AVENTURE("SELECT a.id, aDate, events, a.version, "
+            + "finie, lieu, situation, titre, mj_id, univers_id, "
+            + "nom, j.pseudo as meneur FROM Aventure a "
+            + "JOIN Univers u on a.univers_id = u.id "
+            + "LEFT JOIN Joueur j on j.id = mj_id WHERE a.id = ?"),
+    PARTICIPANTS("SELECT aventure_id, "
+            + "personnage_id FROM Participe WHERE aventure_id = ?"),
+    PARTIES_PERSONNAGE("SELECT a.id, titre, finie "
+            + "FROM Aventure a JOIN Participe r "
+            + "on a.id = r.aventure_id JOIN Personnage p "
+            + "on p.id = r.personnage_id WHERE p.id = ? ORDER BY finie, titre"),
+    PARTIES_JOUEUR("SELECT a.id, titre, finie, "
+            + "p.id as p_id, p.nom FROM Aventure a JOIN Participe r "
+            + "on a.id = r.aventure_id JOIN Personnage p "
+            + "on p.id = r.personnage_id JOIN Joueur j "
+            + "on p.joueur_id = j.id WHERE j.id = ? ORDER BY finie, titre"),
+    AVENTURE_FIN("UPDATE Aventure "
+            + "SET events = ?, finie=1, version = version + 1 "
+            + "WHERE id = ? AND version = ?"),
+    AVENTURE_DELETE("DELETE FROM Aventure "
+            + "WHERE id = ?"),
+
+    // BiographieDAO
+    BIOGRAPHIE_PERSONNAGE("select b.id, b.texte "
+            + "from Biographie b, Personnage p "
+            + "where b.id=p.biographie_id and p.id=?"),
+    BIOGRAPHIE("SELECT * "
+            + "FROM Biographie b "
+            + "where b.id = ?"),
+    BIOGRAPHIE_COMPLETE("SELECT b.id as bid, "
+            + "b.texte as btexte, e.id as eid, eDate, e.mj_id as mj, "
+            + "a.id as idAv, titre, p.id as pid, secret, "
+            + "p.texte as ptexte FROM Biographie b "
+            + "LEFT JOIN Episode e on e.biographie_id = b.id "
+            + "and e.valide = 1 and e.mj_id IS NULL "
+            + "LEFT JOIN Aventure a on a.id = e.aventure_id "
+            + "LEFT JOIN Paragraphe p on p.episode_id = e.id "
+            + "WHERE b.id = ? ORDER BY e.eDate, e.id, p.id"),
+    BIOGRAPHIE_EN_EDITION("SELECT b.id as bid, "
+            + "b.texte as btexte, e.id as eid, eDate, e.mj_id as mj, "
+            + "a.id as idAv, titre, p.id as pid, secret, "
+            + "p.texte as ptexte FROM Biographie b "
+            + "LEFT JOIN Episode e on e.biographie_id = b.id "
+            + "and e.valide = 0 "
+            + "LEFT JOIN Aventure a on a.id = e.aventure_id "
+            + "LEFT JOIN Paragraphe p on p.episode_id = e.id "
+            + "WHERE b.id = ? ORDER BY e.eDate, e.id, p.id"),
+
+    // DroitsDAO
+    DROITS("SELECT joueur_id, mj_id FROM Personnage WHERE id = ?"),
+
+    // EpisodeDAO
+    EPISODES_EN_EDITION("select * "
+            + "from Episode e where e.biographie_id = ? "
+            + "and e.valide = 0 order by e.eDate"),
+    EPISODES("select a.id as idAv, titre, "
+            + "e.id as eid, eDate, e.mj_id as mj "
+            + "from Episode e left join Aventure a "
+            + "on a.id = e.aventure_id "
+            + "where e.biographie_id = ? "
+            + "and e.valide = 1 and e.mj_id IS NULL "
+            + "order by e.eDate"),
+    BIOGRAPHIES_A_VALIDER("select b.id, b.texte "
+            + "from Biographie b where b.id in "
+            + "(select e.biographie_id from Episode e "
+            + "where e.mj_id = ? and e.valide = 1)"),
+    EPISODES_A_VALIDER("select a.id as idAv, titre, "
+            + "e.id as eid, eDate, e.mj_id as mj, biographie_id, "
+            + "p.id as pid, secret, p.texte as ptexte "
+            + "from Episode e left join Aventure a "
+            + "on a.id = e.aventure_id left join Paragraphe p "
+            + "on p.episode_id = e.id where e.mj_id = ? "
+            + "and e.valide = 1 order by e.eDate, e.id, p.id"),
+    EPISODE("select * "
+            + "from Episode e where e.id = ?"),
+    EPISODE_DELETE("delete from episode where id = ?"),
+    PERSONNAGE_VERROU("select id "
+            + "from personnage where id = ? for update"),
+    EPISODE_VALIDATION("update episode set valide = 1, "
+            + "mj_id = (select nullif(p.mj_id, ?) from personnage p "
+            + "where p.id = ?), version = version + 1 where id = ?"),
+    EPISODE_VALIDATION_MJ("UPDATE Episode e "
+            + "SET mj_id = NULL, version = version + 1 "
+            + "WHERE e.id = ? AND EXISTS (SELECT 1 FROM Personnage p "
+            + "WHERE p.biographie_id = e.biographie_id AND p.mj_id = ?)"),
+    EPISODE_INSERT_AVENTURE("insert into episode "
+            + "(eDate, aventure_id, biographie_id) values (?, ?, ?)"),
+    EPISODE_INSERT("insert into episode "
+            + "(eDate, biographie_id) values (?, ?)"),
+    PERSONNAGE_A_MJ("SELECT 1 FROM Personnage "
+            + "WHERE id = ? AND mj_id IS NOT NULL"),
+
+    // JoueurDAO
+    JOUEUR("SELECT pseudo, pwd FROM Joueur where id = ?"),
+    JOUEUR_PSEUDO("SELECT id, pwd FROM Joueur where pseudo = ?"),
+    JOUEURS("SELECT id, pseudo FROM Joueur ORDER BY pseudo"),
+    MENEURS("SELECT distinct mj_id FROM Aventure"),
+
+    // ParagrapheDAO
+    PARAGRAPHES("select * from Paragraphe p "
+            + "WHERE p.episode_id = ? ORDER BY id"),
+    PARAGRAPHE("select * "
+            + "from Paragraphe where id=?"),
+    PARAGRAPHE_REVELATION("update paragraphe "
+            + "set secret = '0', version = version + 1 where id =?"),
+    PARAGRAPHE_INSERT("INSERT INTO PARAGRAPHE "
+            + "(SECRET, TEXTE, EPISODE_ID) "
+            + "VALUES (?, ?, ?)"),
+    PARAGRAPHE_UPDATE("update paragraphe set  texte =?, "
+            + "version = version + 1 where id =? and version = ?"),
+
+    // ParticipeDAO
+    PARTICIPE_INSERT("INSERT INTO Participe "
+            + "(aventure_id, personnage_id) SELECT ?, p.id "
+            + "FROM Personnage p "
+            + "WHERE p.id = ? AND p.mj_id = ? AND p.univers_id = ? "
+            + "AND p.valide = 1 AND NOT EXISTS (SELECT 1 FROM Participe r "
+            + "JOIN Aventure a on r.aventure_id = a.id "
+            + "WHERE r.personnage_id = p.id AND a.finie = 0)"),
+    PARTICIPE_DELETE("DELETE FROM Participe p"
+            + " WHERE p.aventure_id=? AND p.personnage_id = ?"),
+
+    // UniversDAO
+    UNIVERS("SELECT id, nom FROM Univers ORDER BY nom");
+
+    /**
+     * Début de requete de chargement complet d'un personnage
+     */
+    static final String SELECT_PERSONNAGE = "SELECT p.id, p.nom, "
+            + "naissance, profession, portrait, valide, biographie_id, mj_id, "
+            + "p.version, transfert_id, validateur_id, joueur_id, u.id as u_id, "
+            + "u.nom as u_nom, j.pseudo as meneur, "
+            + "o.pseudo as owner FROM Personnage p "
+            + "JOIN Univers u on p.univers_id = u.id "
+            + "LEFT JOIN Joueur j on j.id = mj_id "
+            + "LEFT JOIN Joueur o on o.id = joueur_id ";
+
+    /**
+     * Forme d'une requete, pour celles qui dépendent du dialecte
+     * ou de l'appel JDBC
+     */
+    private enum Forme {
+        SIMPLE,
+
+        /**
+         * Page d'une requete triée, limitée par son dernier paramètre
+         */
+        PAGE,
+
+        /**
+         * Insertion dont l'identifiant généré est lu par getGeneratedKeys
+         */
+        CLE_GENEREE
+    }
+
+    /**
+     * Colonnes des clés générées (cf. Forme.CLE_GENEREE)
+     */
+    private static final String[] CLES = {"ID"};
+
+    private final Forme forme;
+    private final String sql;
+
+    private Requete(String sql) {
+        this(Forme.SIMPLE, sql);
+    }
+
+    private Requete(Forme forme, String sql) {
+        this.forme = forme;
+        this.sql = sql;
+    }
+
+    /**
+     * Getter du texte SQL, dans le dialecte courant
+     *
+     * @return La requete
+     */
+    public String getSql() {
+        return forme == Forme.PAGE ? Dialecte.Get().limiter(sql) : sql;
+    }
+
+    /**
+     * Getter des colonnes dont la valeur générée par l'insertion
+     * est à récupérer
+     *
+     * @return Les colonnes, null si aucune
+     */
+    public String[] getClesGenerees() {
+        return forme == Forme.CLE_GENEREE ? CLES.clone() : null;
+    }
+
+    /**
+     * Texte SQL d'une requete à liste IN, pour n paramètres.
+     *
+     * @param n Le nombre de paramètres de la liste
+     * @return La requete
+     */
+    public String getSql(int n) {
+        StringBuilder params = new StringBuilder("?");
+
+        for (int i = 1; i < n; i++) {
+            params.append(", ?");
+        }
+
+        return String.format(sql, params);
+    }
+}
@@ -0,0 +1,688 @@
+package dao;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Sonde JDBC : enveloppe le datasource de l'application pour compter,
+ * par requete HTTP (cf. Debut, Fin), les exécutions de requetes SQL,
+ * les allers-retours avec la base, les lignes lues et le temps passé
+ * dans le pilote.
+ *
+ * Une même requete SQL exécutée plus de seuil fois pendant une requete
+ * HTTP signale une boucle N+1 : un avertissement est journalisé, une
+ * seule fois, avec le point d'appel dans les DAO et les contrôleurs.
+ *
+ * Avec un journal (cf. SetJournal, JournalLent), chaque exécution est
+ * aussi chronométrée jusqu'à la fin de la lecture de son résultat, avec
+ * ses paramètres : celles dépassant le seuil du journal y sont écrites,
+ * avec la méthode de DAO en cours (cf. Metriques).
+ *
+ * Les requetes du cache (cf. StatementCache) sont préparées sur la
+ * connexion du pilote : elles sont observées à chaque emprunt (Observer).
+ * Sans journal, rien n'est enveloppé ni compté hors requete HTTP observée.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public final class Sonde implements DataSource {
+
+    private static final Logger LOG = Logger.getLogger(Sonde.class.getName());
+
+    /**
+     * Le relevé de la requete HTTP du thread courant
+     */
+    private static final ThreadLocal<Releve> courant = new ThreadLocal<>();
+
+    /**
+     * Indique si une sonde est installée
+     */
+    private static volatile boolean installee;
+
+    /**
+     * Nombre d'exécutions d'une même requete au-delà duquel
+     * elle est signalée, 0 pour ne rien signaler
+     */
+    private static volatile int seuil;
+
+    /**
+     * Le journal des requetes lentes, null si absent
+     */
+    private static volatile JournalLent journal;
+
+    private final DataSource source;
+
+    private Sonde(DataSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Installe la sonde autour d'un datasource.
+     *
+     * @param ds    Le datasource
+     * @param seuil Le nombre d'exécutions d'une même requete SQL par
+     *              requete HTTP au-delà duquel un N+1 est signalé
+     *              (0 pour ne rien signaler)
+     * @return Le datasource observé
+     */
+    public static Sonde Create(DataSource ds, int seuil) {
+        Sonde.seuil = Math.max(0, seuil);
+        installee = true;
+
+        return new Sonde(ds);
+    }
+
+    /**
+     * Indique si une sonde est installée
+     *
+     * @return true si les requetes HTTP doivent être observées
+     */
+    public static boolean isActive() {
+        return installee;
+    }
+
+    /**
+     * Setter du journal des requetes lentes
+     *
+     * @param journal Le journal, null pour ne plus journaliser
+     */
+    public static void SetJournal(JournalLent journal) {
+        Sonde.journal = journal;
+    }
+
+    /**
+     * Getter du journal des requetes lentes
+     *
+     * @return Le journal, null si absent
+     */
+    public static JournalLent getJournal() {
+        return journal;
+    }
+
+    /**
+     * Débute l'observation de la requete HTTP du thread courant.
+     *
+     * @param requete La description de la requete (méthode et URL)
+     */
+    public static void Debut(String requete) {
+        courant.set(new Releve(requete));
+    }
+
+    /**
+     * Termine l'observation de la requete HTTP du thread courant.
+     *
+     * @return Son relevé, null si elle n'était pas observée
+     */
+    public static Releve Fin() {
+        Releve releve = courant.get();
+        courant.remove();
+
+        return releve;
+    }
+
+    /**
+     * Getter du relevé de la requete HTTP en cours
+     *
+     * @return Le relevé, null hors requete observée
+     */
+    public static Releve getReleve() {
+        return courant.get();
+    }
+
+    /**
+     * Compteurs d'une requete HTTP
+     */
+    public static final class Releve {
+        private final String requete;
+        private final Map<String, Integer> executions = new HashMap<>();
+        private int requetes;
+        private int allersRetours;
+        private int lignes;
+        private long nanos;
+
+        private Releve(String requete) {
+            this.requete = requete;
+        }
+
+        /**
+         * Comptabilise une exécution de requete SQL
+         *
+         * @param sql       Le texte de la requete
+         * @param nombre    Le nombre d'exécutions (lot)
+         * @param duree     La durée (ns)
+         */
+        void executee(String sql, int nombre, long duree) {
+            requetes += nombre;
+            allersRetours++;
+            nanos += duree;
+
+            if (sql == null || seuil == 0) {
+                return;
+            }
+
+            Integer n = executions.get(sql);
+            n = n == null ? nombre : n + nombre;
+            executions.put(sql, n);
+
+            if (n > seuil && n - nombre <= seuil) {
+                LOG.log(Level.WARNING, "N+1 probable : {0} exécutions de "
+                        + "[{1}] pendant {2}, depuis {3}", new Object[] {
+                            n, sql, requete, pointAppel()});
+            }
+        }
+
+        /**
+         * Comptabilise un aller-retour sans requete (commit, lot de lignes)
+         */
+        void allerRetour(long duree) {
+            allersRetours++;
+            nanos += duree;
+        }
+
+        public int getRequetes() {
+            return requetes;
+        }
+
+        public int getAllersRetours() {
+            return allersRetours;
+        }
+
+        public int getLignes() {
+            return lignes;
+        }
+
+        /**
+         * Temps passé dans le pilote JDBC
+         *
+         * @return La durée (ns)
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Le relevé, au format de l'en-tête HTTP Server-Timing
+         *
+         * @return La valeur de l'en-tête
+         */
+        public String getServerTiming() {
+            return String.format(Locale.ROOT, "db;dur=%.3f, db-requetes;desc=%d, "
+                    + "db-allers-retours;desc=%d, db-lignes;desc=%d",
+                    nanos / 1e6, requetes, allersRetours, lignes);
+        }
+    }
+
+    /**
+     * Point d'appel d'une requete : méthodes de DAO et de contrôleur
+     * de la pile courante.
+     *
+     * @return Les méthodes, de la plus profonde à la moins profonde
+     */
+    private static String pointAppel() {
+        StringBuilder sb = new StringBuilder();
+
+        for (StackTraceElement e : new Throwable().getStackTrace()) {
+            String classe = e.getClassName();
+
+            if ((classe.startsWith("dao.") && classe.endsWith("DAO"))
+                    || classe.startsWith("controleur.")) {
+                sb.append(sb.length() == 0 ? "" : " < ").append(e);
+            }
+        }
+
+        return sb.length() == 0 ? "?" : sb.toString();
+    }
+
+    /**
+     * Observe une requete préparée empruntée au cache, pendant une
+     * requete HTTP observée.
+     *
+     * @param ps  La requete
+     * @param sql Son texte
+     * @return La requete observée, ou ps
+     */
+    static PreparedStatement Observer(PreparedStatement ps, String sql) {
+        if ((courant.get() == null && journal == null)
+                || Proxy.isProxyClass(ps.getClass())) {
+            return ps;
+        }
+
+        return (PreparedStatement) envelopper(ps, sql);
+    }
+
+    /**
+     * Retrouve la requete enveloppée par Observer, en terminant sa
+     * dernière exécution.
+     *
+     * @param statement La requete, observée ou non
+     * @return La requete du pilote
+     */
+    static Statement Reel(Statement statement) {
+        if (statement != null && Proxy.isProxyClass(statement.getClass())) {
+            InvocationHandler h = Proxy.getInvocationHandler(statement);
+
+            if (h instanceof Execution) {
+                ((Execution) h).terminer();
+                return ((Execution) h).statement;
+            }
+        }
+
+        return statement;
+    }
+
+    private static Statement envelopper(Statement statement, String sql) {
+        Class<?> type = statement instanceof CallableStatement
+                ? CallableStatement.class
+                : statement instanceof PreparedStatement
+                ? PreparedStatement.class : Statement.class;
+
+        return (Statement) Proxy.newProxyInstance(
+                Sonde.class.getClassLoader(), new Class<?>[] {type},
+                new Execution(statement, sql));
+    }
+
+    /**
+     * Appel de la cible d'un proxy, en restituant ses exceptions
+     */
+    private static Object appeler(Object cible, Method method, Object[] args)
+            throws Throwable {
+        try {
+            return method.invoke(cible, args);
+
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Une connexion observée
+     */
+    private static final class Connexion implements InvocationHandler {
+        private final Connection connexion;
+
+        Connexion(Connection connexion) {
+            this.connexion = connexion;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                case "prepareCall":
+                    return envelopper((Statement) appeler(connexion, method, args),
+                                      (String) args[0]);
+
+                case "createStatement":
+                    return envelopper((Statement) appeler(connexion, method, args),
+                                      null);
+
+                case "commit":
+                case "rollback": {
+                    Releve releve = courant.get();
+                    long debut = System.nanoTime();
+                    Object resultat = appeler(connexion, method, args);
+
+                    if (releve != null) {
+                        releve.allerRetour(System.nanoTime() - debut);
+                    }
+
+                    return resultat;
+                }
+
+                case "equals":
+                    return proxy == args[0];
+
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+
+                case "toString":
+                    return "Sonde[" + connexion + "]";
+            }
+
+            // unwrap et isWrapperFor compris : le cache de requetes
+            // retrouve la connexion du pilote
+            return appeler(connexion, method, args);
+        }
+    }
+
+    /**
+     * Une exécution de requete pour le journal des requetes lentes :
+     * durée dans le pilote et lignes, jusqu'à la fin de son résultat
+     */
+    private static final class Trace {
+        private final String sql;
+        private final List<Object> parametres;
+        private final String methode;
+        private final String requete;
+        private long nanos;
+        private int lignes;
+        private boolean terminee;
+
+        Trace(String sql, List<Object> parametres, Releve releve) {
+            this.sql = sql;
+            this.parametres = parametres;
+            this.methode = Metriques.getMethodeCourante();
+            this.requete = releve == null ? null : releve.requete;
+        }
+
+        void ajouter(long duree, int n) {
+            nanos += duree;
+            lignes += n;
+        }
+
+        void terminer() {
+            JournalLent j = journal;
+
+            if (!terminee && j != null && j.estLente(nanos)) {
+                j.noter(sql, parametres, nanos, lignes, methode, requete);
+            }
+
+            terminee = true;
+        }
+    }
+
+    /**
+     * Une requete observée
+     */
+    private static final class Execution implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+        private final List<Object> parametres = new ArrayList<>();
+        private Trace trace;
+        private int lot;
+
+        Execution(Statement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        /**
+         * Termine la dernière exécution
+         */
+        void terminer() {
+            if (trace != null) {
+                trace.terminer();
+                trace = null;
+            }
+        }
+
+        /**
+         * Retient un paramètre (setInt(1, ...), setNull(2, ...), ...)
+         */
+        private void parametre(String nom, Object[] args) {
+            if (journal == null || args == null || args.length < 2
+                    || !(args[0] instanceof Integer)) {
+                return;
+            }
+
+            int indice = (Integer) args[0] - 1;
+
+            while (parametres.size() <= indice) {
+                parametres.add(null);
+            }
+
+            parametres.set(indice, "setNull".equals(nom) ? null : args[1]);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            String nom = method.getName();
+            Releve releve = courant.get();
+
+            if (releve == null && journal == null) {
+                return appeler(statement, method, args);
+            }
+
+            switch (nom) {
+                case "addBatch":
+                    lot++;
+                    return appeler(statement, method, args);
+
+                case "clearBatch":
+                    lot = 0;
+                    return appeler(statement, method, args);
+
+                case "clearParameters":
+                    parametres.clear();
+                    return appeler(statement, method, args);
+
+                case "getGeneratedKeys":
+                    return lignes(statement, appeler(statement, method, args),
+                                  null);
+
+                case "getResultSet":
+                    return lignes(statement, appeler(statement, method, args),
+                                  trace);
+
+                case "close":
+                    terminer();
+                    return appeler(statement, method, args);
+
+                case "equals":
+                    return proxy == args[0];
+
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+            }
+
+            if (nom.startsWith("set")) {
+                parametre(nom, args);
+                return appeler(statement, method, args);
+            }
+
+            if (!nom.startsWith("execute")) {
+                return appeler(statement, method, args);
+            }
+
+            String texte = args != null && args.length > 0
+                    && args[0] instanceof String ? (String) args[0] : sql;
+            long debut = System.nanoTime();
+            Object resultat = null;
+            int nombre = 1;
+
+            terminer();
+
+            if (journal != null) {
+                trace = new Trace(texte, Arrays.asList(parametres.toArray()),
+                                  releve);
+            }
+
+            try {
+                resultat = appeler(statement, method, args);
+
+                return "executeQuery".equals(nom)
+                        ? lignes(statement, resultat, trace) : resultat;
+
+            } finally {
+                long duree = System.nanoTime() - debut;
+
+                if ("executeBatch".equals(nom)) {
+                    nombre = Math.max(1, lot);
+                    lot = 0;
+                }
+
+                if (releve != null) {
+                    releve.executee(texte, nombre, duree);
+                }
+
+                if (trace != null) {
+                    trace.ajouter(duree, modifiees(resultat));
+
+                    // Le résultat éventuel reste à lire
+                    if (!"executeQuery".equals(nom)
+                            && !Boolean.TRUE.equals(resultat)) {
+                        terminer();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Lignes modifiées d'après le résultat d'une exécution
+     */
+    private static int modifiees(Object resultat) {
+        if (resultat instanceof Number) {
+            return Math.max(0, ((Number) resultat).intValue());
+        }
+
+        int n = 0;
+
+        if (resultat instanceof int[]) {
+            for (int i : (int[]) resultat) {
+                n += Math.max(0, i);
+            }
+        }
+
+        return n;
+    }
+
+    /**
+     * Observe la lecture d'un résultat
+     */
+    private static Object lignes(Statement statement, Object resultat,
+            Trace trace) throws SQLException {
+        if (!(resultat instanceof ResultSet)) {
+            return resultat;
+        }
+
+        return Proxy.newProxyInstance(Sonde.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class},
+                new Lecture((ResultSet) resultat, statement.getFetchSize(),
+                            trace));
+    }
+
+    /**
+     * Un résultat observé : chaque ligne est comptée, ainsi que chaque
+     * lot de fetchSize lignes (un aller-retour du pilote) ; l'exécution
+     * est terminée à la dernière ligne ou à la fermeture
+     */
+    private static final class Lecture implements InvocationHandler {
+        private final ResultSet resultat;
+        private final int lot;
+        private final Trace trace;
+        private int lues;
+
+        Lecture(ResultSet resultat, int lot, Trace trace) {
+            this.resultat = resultat;
+            this.lot = lot;
+            this.trace = trace;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            if ("close".equals(method.getName()) && trace != null) {
+                trace.terminer();
+            }
+
+            if (!"next".equals(method.getName())) {
+                return appeler(resultat, method, args);
+            }
+
+            Releve releve = courant.get();
+            long debut = System.nanoTime();
+            boolean suivante = resultat.next();
+            long duree = System.nanoTime() - debut;
+
+            if (trace != null) {
+                trace.ajouter(duree, suivante ? 1 : 0);
+
+                if (!suivante) {
+                    trace.terminer();
+                }
+            }
+
+            if (releve != null) {
+                if (suivante && lot > 0 && lues > 0 && lues % lot == 0) {
+                    releve.allerRetour(duree);
+                } else {
+                    releve.nanos += duree;
+                }
+
+                if (suivante) {
+                    lues++;
+                    releve.lignes++;
+                }
+            }
+
+            return suivante;
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return observer(source.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password)
+            throws SQLException {
+        return observer(source.getConnection(username, password));
+    }
+
+    private static Connection observer(Connection link) {
+        return (Connection) Proxy.newProxyInstance(
+                Sonde.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new Connexion(link));
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return source.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        source.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        source.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return source.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return source.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+
+        return source.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || source.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,319 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache de requetes préparées, par connexion physique et par requete.
+ *
+ * Les requetes sont préparées sur la connexion physique du pilote
+ * (et non sur l'enveloppe rendue par le pool, qui ferme ses requetes
+ * à chaque restitution) : elles survivent ainsi d'une requete HTTP
+ * à l'autre tant que le pool conserve la connexion.
+ * Une connexion physique est initialisée par le dialecte courant
+ * à sa première requete (cf. Dialecte.initialiser).
+ * Une connexion n'étant utilisée que par un thread à la fois,
+ * seules les tables globales sont synchronisées.
+ *
+ * Une requete empruntée peut être enveloppée par la sonde JDBC
+ * (cf. Sonde.Observer) : release retrouve la requete du cache.
+ *
+ * Chaque requete en cache garde un curseur ouvert sur le serveur : le
+ * cache d'une connexion est borné (cf. SetCapacite, à garder sous
+ * OPEN_CURSORS d'Oracle), les requetes les moins récemment utilisées
+ * sont fermées au-delà.
+ *
+ * @author Jules-Eugène Demets, Léo Gouttefarde, Salim Aboubacar, Simon Rey
+ */
+public final class StatementCache {
+
+    /**
+     * Classes de connexion physique des pilotes supportés
+     */
+    private static final String[] CONNEXIONS_PILOTES = {
+        "oracle.jdbc.OracleConnection",
+        "org.h2.jdbc.JdbcConnection"
+    };
+
+    /**
+     * Les classes de CONNEXIONS_PILOTES présentes dans le classpath
+     */
+    private static final List<Class<?>> pilotes = new ArrayList<>();
+
+    /**
+     * Les requetes de chaque connexion physique
+     */
+    private static final Map<Connection, Requetes> caches
+            = Collections.synchronizedMap(new WeakHashMap<Connection, Requetes>());
+
+    /**
+     * Connexion d'origine de chaque requete en cache.
+     * Les requetes d'une connexion en sont retirées avec elle (cf. purger).
+     */
+    private static final Map<Statement, Requetes> origines
+            = Collections.synchronizedMap(new IdentityHashMap<Statement, Requetes>());
+
+    /**
+     * Nombre maximal de requetes en cache par connexion
+     */
+    private static volatile int capacite = 50;
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+
+    static {
+        for (String nom : CONNEXIONS_PILOTES) {
+            try {
+                pilotes.add(Class.forName(nom, false,
+                        StatementCache.class.getClassLoader()));
+            } catch (ClassNotFoundException | LinkageError e) {}
+        }
+    }
+
+    /**
+     * Requetes préparées d'une connexion physique
+     */
+    private static final class Requetes {
+        final Connection physique;
+        final Map<String, PreparedStatement> statements
+                = new LinkedHashMap<>(16, 0.75f, true);
+        final Map<Statement, Boolean> empruntees = new IdentityHashMap<>();
+
+        Requetes(Connection physique) {
+            this.physique = physique;
+        }
+    }
+
+    private StatementCache() {
+    }
+
+    /**
+     * Borne le nombre de requetes en cache de chaque connexion.
+     *
+     * @param n Le nombre maximal de requetes par connexion
+     */
+    public static void SetCapacite(int n) {
+        capacite = Math.max(1, n);
+    }
+
+    /**
+     * Retrouve la connexion du pilote derrière celle rendue par le pool.
+     * A défaut, une connexion du pool interne (cf. PooledDataSource)
+     * est identifiée par la connexion qu'elle enveloppe.
+     *
+     * @param link La connexion
+     * @return La connexion physique, ou link si elle est inaccessible
+     */
+    private static Connection physique(Connection link) {
+        if (link instanceof PoolHandle) {
+            link = ((PoolHandle) link).getDelegate();
+        }
+
+        for (Class<?> pilote : pilotes) {
+            try {
+                if (link.isWrapperFor(pilote)) {
+                    return (Connection) link.unwrap(pilote);
+                }
+            } catch (SQLException | ClassCastException e) {}
+        }
+
+        return link;
+    }
+
+    /**
+     * Oublie les connexions physiques fermées depuis leur mise en cache,
+     * ainsi que leurs requetes.
+     * Les requetes gardant une référence à leur connexion, celle-ci
+     * ne peut pas être libérée par la seule WeakHashMap.
+     */
+    private static void purger() {
+        List<Requetes> fermees = new ArrayList<>();
+
+        synchronized (caches) {
+            Iterator<Requetes> it = caches.values().iterator();
+
+            while (it.hasNext()) {
+                Requetes requetes = it.next();
+                boolean fermee;
+
+                try {
+                    fermee = requetes.physique.isClosed();
+                } catch (SQLException e) {
+                    fermee = true;
+                }
+
+                if (fermee) {
+                    fermees.add(requetes);
+                    it.remove();
+                }
+            }
+        }
+
+        for (Requetes requetes : fermees) {
+            for (PreparedStatement ps : requetes.statements.values()) {
+                origines.remove(ps);
+            }
+        }
+    }
+
+    /**
+     * Emprunte la requete préparée correspondant à sql.
+     * Si elle est déjà empruntée (requetes imbriquées), une requete
+     * hors cache est préparée sur link.
+     *
+     * @param link     La connexion
+     * @param cle      Le nom de la requete
+     * @param sql      Le texte de la requete
+     * @param colonnes Les colonnes des clés générées à récupérer, ou null
+     * @return La requete préparée, à rendre par release
+     * @throws SQLException
+     */
+    static PreparedStatement prepare(Connection link, String cle, String sql,
+            String[] colonnes) throws SQLException {
+        Object evenement = Evenements.DebutCache();
+        Connection physique = physique(link);
+        Requetes requetes = caches.get(physique);
+
+        Metriques.Preparee(cle);
+
+        if (requetes == null) {
+            purger();
+            Dialecte.Get().initialiser(physique);
+            requetes = new Requetes(physique);
+            caches.put(physique, requetes);
+        }
+
+        PreparedStatement ps = requetes.statements.get(cle);
+
+        if (ps != null && requetes.empruntees.containsKey(ps)) {
+            misses.incrementAndGet();
+            Evenements.FinCache(evenement, "statements", cle, false);
+            return Sonde.Observer(preparer(link, sql, colonnes), sql);
+        }
+
+        if (ps != null && !ps.isClosed()) {
+            hits.incrementAndGet();
+            Evenements.FinCache(evenement, "statements", cle, true);
+
+        } else {
+            misses.incrementAndGet();
+            Evenements.FinCache(evenement, "statements", cle, false);
+            if (ps != null) {
+                origines.remove(ps);
+            }
+
+            ps = preparer(physique, sql, colonnes);
+            requetes.statements.put(cle, ps);
+            origines.put(ps, requetes);
+        }
+
+        requetes.empruntees.put(ps, Boolean.TRUE);
+        evincer(requetes);
+
+        return Sonde.Observer(ps, sql);
+    }
+
+    /**
+     * Ferme les requetes les moins récemment utilisées d'une connexion
+     * au-delà de la capacité (les requetes empruntées sont conservées).
+     *
+     * @param requetes Les requetes de la connexion
+     */
+    private static void evincer(Requetes requetes) {
+        Iterator<PreparedStatement> it = requetes.statements.values().iterator();
+
+        while (requetes.statements.size() > capacite && it.hasNext()) {
+            PreparedStatement ps = it.next();
+
+            if (requetes.empruntees.containsKey(ps)) {
+                continue;
+            }
+
+            it.remove();
+            origines.remove(ps);
+            evictions.incrementAndGet();
+
+            try {
+                ps.close();
+            } catch (SQLException e) {}
+        }
+    }
+
+    private static PreparedStatement preparer(Connection link, String sql,
+            String[] colonnes) throws SQLException {
+        return colonnes == null ? link.prepareStatement(sql)
+                                : link.prepareStatement(sql, colonnes);
+    }
+
+    /**
+     * Rend une requete empruntée par prepare, en fermant son dernier
+     * résultat (curseur) s'il ne l'a pas été.
+     *
+     * @param statement La requete
+     * @return false si la requete n'est pas en cache (elle doit être fermée)
+     */
+    static boolean release(Statement statement) {
+        statement = Sonde.Reel(statement);
+        Requetes requetes = origines.get(statement);
+
+        if (requetes == null) {
+            return false;
+        }
+
+        requetes.empruntees.remove(statement);
+
+        try {
+            ResultSet rs = statement.getResultSet();
+
+            if (rs != null) {
+                rs.close();
+            }
+        } catch (SQLException e) {}
+
+        try {
+            ((PreparedStatement) statement).clearParameters();
+        } catch (SQLException e) {}
+
+        return true;
+    }
+
+    /**
+     * Nombre de requetes trouvées dans le cache
+     *
+     * @return Le nombre de hits
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Nombre de requetes qu'il a fallu préparer
+     *
+     * @return Le nombre de misses
+     */
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Nombre de requetes fermées pour respecter la capacité
+     *
+     * @return Le nombre d'évictions
+     */
+    public static long getEvictions() {
+        return evictions.get();
+    }
+}
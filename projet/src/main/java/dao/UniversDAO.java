@@ -4,6 +4,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import javax.sql.DataSource;
 import modele.Univers;
 
@@ -19,6 +21,11 @@ public final class UniversDAO extends AbstractUniversDAO {
      */
     private static UniversDAO instance;
 
+    /**
+     * Instantané immuable des univers, trié par nom
+     */
+    private volatile List<Univers> univers;
+
     /**
      * Constructeur privé du singleton
      */
@@ -50,34 +57,66 @@ public final class UniversDAO extends AbstractUniversDAO {
     }
 
     /**
-     * Récupère la liste des univers ordonnés par nom
+     * Recharge depuis la base l'instantané des univers.
+     * L'instantané, partagé, ne contient que des données validées
+     * (cf. getConnectionValidee).
+     *
+     * Aucun verrou n'est tenu pendant la lecture : des rechargements
+     * concurrents ne s'attendent pas, le dernier publié l'emporte.
      *
-     * @return La liste des univers
      * @throws dao.DAOException
      */
-    @Override
-    public ArrayList<Univers> getUnivers() throws DAOException {
-        ArrayList<Univers> univers = new ArrayList<>();
+    public void recharger() throws DAOException {
+        List<Univers> liste = new ArrayList<>();
         PreparedStatement statement = null;
         Connection link = null;
+        Metriques.Mesure mesure = mesurer("recharger");
 
         try {
-            link = getConnection();
-            statement = link.prepareStatement("SELECT id, nom FROM Univers ORDER BY nom");
+            link = getConnectionValidee();
+            statement = prepare(link, Requete.UNIVERS);
             ResultSet res = statement.executeQuery();
 
             while (res.next()) {
-                univers.add(new Univers(res.getInt("id"), res.getString("nom")));
+                liste.add(new Univers(res.getInt("id"), res.getString("nom")));
             }
 
+            mesure.reussie(liste.size());
+
         } catch (Exception e) {
             throw new DAOException("Erreur d'accès à la liste des univers " + e.getMessage(), e);
 
         } finally {
             CloseStatement(statement);
             closeConnection(link);
+            mesure.terminer();
+        }
+
+        univers = Collections.unmodifiableList(liste);
+    }
+
+    /**
+     * Récupère la liste des univers ordonnés par nom
+     *
+     * @return La liste des univers
+     * @throws dao.DAOException
+     */
+    @Override
+    public ArrayList<Univers> getUnivers() throws DAOException {
+        List<Univers> instantane = univers;
+
+        if (instantane == null) {
+            recharger();
+            instantane = univers;
+        }
+
+        // Copie : les appelants ne partagent pas l'instantané
+        ArrayList<Univers> liste = new ArrayList<>(instantane.size());
+
+        for (Univers u : instantane) {
+            liste.add(new Univers(u.getId(), u.getNom()));
         }
 
-        return univers;
+        return liste;
     }
 }
@@ -18,6 +18,7 @@ public class Aventure {
     private String lieu;
     private String events;
     private boolean finie;
+    private int version;
     public Univers univers;
     public Joueur mj;
     public List<Personnage> personnages = new LinkedList<>();
@@ -175,5 +176,12 @@ public class Aventure {
     public Personnage getPersonnage() {
         return getPersonnage(0);
     }
-}
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+}
@@ -13,6 +13,7 @@ public class Episode {
     private int id;
     private int eDate;
     private boolean valide;
+    private int version;
     public Aventure aventure;
     public Joueur mj;
     public Biographie biographie;
@@ -103,5 +104,12 @@ public class Episode {
     public void setParagraphes(List<Paragraphe> paragraphes) {
         this.paragraphes = paragraphes;
     }
-}
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+}
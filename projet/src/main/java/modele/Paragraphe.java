@@ -11,6 +11,7 @@ public class Paragraphe {
     private int id;
     private String texte;
     private boolean secret;
+    private int version;
     public Episode episode;
 
     public Paragraphe(){
@@ -63,5 +64,12 @@ public class Paragraphe {
     public void setEpisode(Episode episode) {
         this.episode = episode;
     }
-}
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+}
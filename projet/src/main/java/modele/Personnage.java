@@ -23,6 +23,7 @@ public class Personnage {
     private Joueur validateur;
     private List<Aventure> parties;
     private Biographie biographie;
+    private int version;
        
 
     public Personnage(int id, String nom, String naissance, String profession,
@@ -169,5 +170,12 @@ public class Personnage {
     public void setId(int id) {
         this.id = id;
     }
-}
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+}
@@ -28,6 +28,7 @@
                     required="required" data-rule-required="true"></textarea>
           <input type="hidden" name="action" value="finish"/>
           <input type="hidden" name="idAventure" value="${aventure.getId()}"/>
+          <input type="hidden" name="version" value="${aventure.getVersion()}"/>
           <button id="finishForm" type="submit" class="hide"></button>
         </div>
       </form>
@@ -37,6 +37,22 @@
             </c:forEach>
             </tbody>
         </table>
+        <c:if test="${pagine or not empty suivant}">
+            <ul class="pager">
+                <c:if test="${pagine}">
+                    <li class="previous"><a href="game?action=list">Début de la liste</a></li>
+                </c:if>
+                <c:if test="${not empty suivant}">
+                    <c:url var="urlSuivant" value="game">
+                        <c:param name="action" value="list"/>
+                        <c:param name="apresFinie" value="${suivant.isFinie()}"/>
+                        <c:param name="apresTitre" value="${suivant.getTitre()}"/>
+                        <c:param name="apresId" value="${suivant.getId()}"/>
+                    </c:url>
+                    <li class="next"><a href="${urlSuivant}">Suivantes</a></li>
+                </c:if>
+            </ul>
+        </c:if>
         <c:if test="${isPerso}"><br/><a href="character?action=show&id=${param.id}" class="btn btn-default">
                 Retour au personnage</a></c:if>
     </jsp:body>
@@ -23,6 +23,7 @@
             </div>
             <input type="hidden" name="idBio" value="${param.idBio}"/>
             <input type="hidden" name="id" value="${parag.getID()}"/>
+            <input type="hidden" name="version" value="${parag.getVersion()}"/>
             <input type="hidden" name="action" value="edit"/>
             <input type="hidden" name="persoID" value="${persoID}"/>
             <input type="hidden" name="idEpi" value="${param.idEpi}"/>
@@ -0,0 +1,56 @@
+<%@page contentType="text/html" pageEncoding="UTF-8"%>
+<%@taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core"%>
+<%@taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt"%>
+<%@taglib prefix="t" tagdir="/WEB-INF/tags"%>
+<fmt:setLocale value="fr_FR"/>
+
+<t:wrapper>
+    <jsp:attribute name="title"> - Performances</jsp:attribute>
+    <jsp:attribute name="header">
+        <h1>Performances</h1>
+    </jsp:attribute>
+
+    <jsp:body>
+        <p>Temps de réponse (ms) sur les dernières
+            <fmt:formatNumber value="${fenetre / 60000}" maxFractionDigits="1"/> minutes :
+            total, dont DAO et rendu des JSP
+            (<a href="performances.txt">texte brut</a>).</p>
+        <table class="table table-hover table-condensed text-right">
+            <thead>
+                <tr>
+                    <th class="text-left">Contrôleur</th>
+                    <th class="text-left">Action</th>
+                    <th>Requetes</th>
+                    <c:forEach var="c" items="${centiles}">
+                        <th>Total p<fmt:formatNumber value="${c * 100}" maxFractionDigits="0"/></th>
+                    </c:forEach>
+                    <c:forEach var="c" items="${centiles}">
+                        <th>DAO p<fmt:formatNumber value="${c * 100}" maxFractionDigits="0"/></th>
+                    </c:forEach>
+                    <c:forEach var="c" items="${centiles}">
+                        <th>JSP p<fmt:formatNumber value="${c * 100}" maxFractionDigits="0"/></th>
+                    </c:forEach>
+                </tr>
+            </thead>
+
+            <tbody>
+                <c:forEach var="a" items="${actions}">
+                    <tr>
+                        <td class="text-left"><c:out value="${a.getServlet()}"/></td>
+                        <td class="text-left"><c:out value="${a.getAction()}"/></td>
+                        <td>${a.getNombre()}</td>
+                        <c:forEach var="v" items="${a.getTotal()}">
+                            <td><fmt:formatNumber value="${v}" maxFractionDigits="1"/></td>
+                        </c:forEach>
+                        <c:forEach var="v" items="${a.getBase()}">
+                            <td><fmt:formatNumber value="${v}" maxFractionDigits="1"/></td>
+                        </c:forEach>
+                        <c:forEach var="v" items="${a.getRendu()}">
+                            <td><fmt:formatNumber value="${v}" maxFractionDigits="1"/></td>
+                        </c:forEach>
+                    </tr>
+                </c:forEach>
+            </tbody>
+        </table>
+    </jsp:body>
+</t:wrapper>
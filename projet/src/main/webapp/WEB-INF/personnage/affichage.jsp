@@ -39,6 +39,7 @@
                           <input name="newWork" type="text" class="form-control" placeholder="Profession" value="<c:out value="${perso.getProfession()}"/>">
                         </div>
                         <input type="hidden" name="idPerso" value="${perso.getId()}">
+                        <input type="hidden" name="version" value="${perso.getVersion()}">
                         <button type="submit" class="btn btn-default">Modifier</button>
                       </form>
                         </c:when>
@@ -42,6 +42,21 @@
                 </c:forEach>
             </tbody>
         </table>
+        <c:if test="${pagine or not empty suivant}">
+            <ul class="pager">
+                <c:if test="${pagine}">
+                    <li class="previous"><a href="character?action=list">Début de la liste</a></li>
+                </c:if>
+                <c:if test="${not empty suivant}">
+                    <c:url var="urlSuivant" value="character">
+                        <c:param name="action" value="list"/>
+                        <c:param name="apresNom" value="${suivant.getNom()}"/>
+                        <c:param name="apresId" value="${suivant.getId()}"/>
+                    </c:url>
+                    <li class="next"><a href="${urlSuivant}">Suivants</a></li>
+                </c:if>
+            </ul>
+        </c:if>
         <c:if test="${persoKiller}"><br/><a href="game?action=show&id=${idPartie}" class="btn btn-default">
                 Retour à la partie</a></c:if>
     </jsp:body>